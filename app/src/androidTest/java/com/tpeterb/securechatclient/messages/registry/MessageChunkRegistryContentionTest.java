@@ -0,0 +1,169 @@
+package com.tpeterb.securechatclient.messages.registry;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.tpeterb.securechatclient.messages.config.MessageChunkConfig;
+import com.tpeterb.securechatclient.messages.model.MessageChunkChangeObserver;
+import com.tpeterb.securechatclient.messages.model.MessageContentType;
+import com.tpeterb.securechatclient.messages.model.MessageReassemblyBuffer;
+import com.tpeterb.securechatclient.messages.storage.MediaFileCipher;
+import com.tpeterb.securechatclient.messages.storage.ReassemblyStorageFactory;
+import com.tpeterb.securechatclient.security.model.EncryptedReceivedMessageChunkDTO;
+import com.tpeterb.securechatclient.security.model.EncryptionResult;
+import com.tpeterb.securechatclient.security.service.ChaCha20Service;
+import com.tpeterb.securechatclient.utils.MessageChunkAssociatedDataUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(AndroidJUnit4.class)
+public class MessageChunkRegistryContentionTest {
+
+    private static final String TAG = "MessageChunkRegistryContentionTest";
+
+    private static final int[] NUMBERS_OF_THREADS = {1, 2, 4, 8};
+
+    private static final int NUMBER_OF_WARM_UP_RUNS = 3;
+
+    private static final int NUMBER_OF_MEASURED_RUNS = 5;
+
+    private static final int NUMBER_OF_SINGLE_CHUNK_MESSAGES = 20000;
+
+    private static final int SINGLE_CHUNK_MESSAGE_SIZE_IN_BYTES = 64;
+
+    private static final int NUMBER_OF_MULTI_CHUNK_MESSAGES = 400;
+
+    private static final int NUMBER_OF_CHUNKS_PER_MULTI_CHUNK_MESSAGE = 8;
+
+    private static final int MULTI_CHUNK_MESSAGE_CHUNK_SIZE_IN_BYTES = 16 * 1024;
+
+    private final ChaCha20Service chaCha20Service = new ChaCha20Service();
+
+    private final Random random = new Random();
+
+    @Test
+    public void measureMessageAdmissionUnderContention() throws Exception {
+        for (int run = 0; run < NUMBER_OF_WARM_UP_RUNS; run++) {
+            deliverMessagesConcurrently(2, 4000, 1, SINGLE_CHUNK_MESSAGE_SIZE_IN_BYTES);
+            deliverMessagesConcurrently(2, 200, NUMBER_OF_CHUNKS_PER_MULTI_CHUNK_MESSAGE, MULTI_CHUNK_MESSAGE_CHUNK_SIZE_IN_BYTES);
+        }
+        Log.i(TAG, "Available processors = " + Runtime.getRuntime().availableProcessors());
+        for (int numberOfThreads : NUMBERS_OF_THREADS) {
+            double singleChunkMessageTimeUs = 0;
+            double multiChunkMessageTimeUs = 0;
+            for (int run = 0; run < NUMBER_OF_MEASURED_RUNS; run++) {
+                singleChunkMessageTimeUs += deliverMessagesConcurrently(numberOfThreads, NUMBER_OF_SINGLE_CHUNK_MESSAGES / numberOfThreads, 1, SINGLE_CHUNK_MESSAGE_SIZE_IN_BYTES);
+                multiChunkMessageTimeUs += deliverMessagesConcurrently(numberOfThreads, NUMBER_OF_MULTI_CHUNK_MESSAGES / numberOfThreads, NUMBER_OF_CHUNKS_PER_MULTI_CHUNK_MESSAGE, MULTI_CHUNK_MESSAGE_CHUNK_SIZE_IN_BYTES);
+            }
+            Log.i(TAG, String.format("threads = %d, single chunk message = %.2f us, %dx%d B encrypted message = %.1f us",
+                    numberOfThreads,
+                    singleChunkMessageTimeUs / NUMBER_OF_MEASURED_RUNS,
+                    NUMBER_OF_CHUNKS_PER_MULTI_CHUNK_MESSAGE,
+                    MULTI_CHUNK_MESSAGE_CHUNK_SIZE_IN_BYTES,
+                    multiChunkMessageTimeUs / NUMBER_OF_MEASURED_RUNS));
+        }
+    }
+
+    private double deliverMessagesConcurrently(int numberOfThreads, int numberOfMessagesPerThread, int numberOfChunks, int chunkSizeInBytes) throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        MessageChunkConfig messageChunkConfig = new MessageChunkConfig();
+        ReassemblyStorageFactory reassemblyStorageFactory = new ReassemblyStorageFactory(context, new MediaFileCipher(chaCha20Service), messageChunkConfig);
+        MessageChunkRegistry messageChunkRegistry = new MessageChunkRegistry(chaCha20Service, reassemblyStorageFactory, messageChunkConfig);
+        AtomicInteger numberOfCompletedMessages = new AtomicInteger();
+        messageChunkRegistry.subscribe(new MessageChunkChangeObserver() {
+            @Override
+            public void handleMessageChunkReceivedEvent(MessageReassemblyBuffer partiallyReceivedMessage, int serialNumberWithinFullMessage) {}
+
+            @Override
+            public void handleAllMessageChunksReceivedEvent(MessageReassemblyBuffer fullyReceivedMessage) {
+                numberOfCompletedMessages.incrementAndGet();
+                messageChunkRegistry.removeAllMessageChunksForMessage(fullyReceivedMessage.getFullMessageId());
+            }
+
+            @Override
+            public void handleMissingMessageChunksEvent(MessageReassemblyBuffer partiallyReceivedMessage, List<Integer> missingSerialNumbers) {}
+        });
+        CyclicBarrier startBarrier = new CyclicBarrier(numberOfThreads + 1);
+        List<Thread> deliveryThreads = new ArrayList<>(numberOfThreads);
+        for (int threadIndex = 0; threadIndex < numberOfThreads; threadIndex++) {
+            List<EncryptedReceivedMessageChunkDTO> messageChunks = new ArrayList<>();
+            for (int messageIndex = 0; messageIndex < numberOfMessagesPerThread; messageIndex++) {
+                messageChunks.addAll(createEncryptedMessageChunks("sender" + threadIndex, numberOfChunks, chunkSizeInBytes));
+            }
+            Thread deliveryThread = new Thread(() -> {
+                awaitStart(startBarrier);
+                for (EncryptedReceivedMessageChunkDTO messageChunk : messageChunks) {
+                    messageChunkRegistry.addMessageChunk(messageChunk);
+                }
+            });
+            deliveryThread.start();
+            deliveryThreads.add(deliveryThread);
+        }
+        startBarrier.await();
+        long startTimeNs = System.nanoTime();
+        for (Thread deliveryThread : deliveryThreads) {
+            deliveryThread.join();
+        }
+        long elapsedTimeNs = System.nanoTime() - startTimeNs;
+        int numberOfMessages = numberOfThreads * numberOfMessagesPerThread;
+        assertEquals(numberOfMessages, numberOfCompletedMessages.get());
+        return elapsedTimeNs / 1000.0 / numberOfMessages;
+    }
+
+    private List<EncryptedReceivedMessageChunkDTO> createEncryptedMessageChunks(String sender, int numberOfChunks, int chunkSizeInBytes) {
+        String fullMessageId = UUID.randomUUID().toString();
+        byte[] messageKey = chaCha20Service.generateSymmetricKey();
+        int sizeOfFullMessageInBytes = numberOfChunks * chunkSizeInBytes;
+        byte[] chunkContent = new byte[chunkSizeInBytes];
+        random.nextBytes(chunkContent);
+        List<EncryptedReceivedMessageChunkDTO> messageChunks = new ArrayList<>(numberOfChunks);
+        for (int chunkIndex = 0; chunkIndex < numberOfChunks; chunkIndex++) {
+            int serialNumberWithinFullMessage = chunkIndex + 1;
+            int offsetWithinFullMessageInBytes = chunkIndex * chunkSizeInBytes;
+            byte[] associatedData = MessageChunkAssociatedDataUtils.createAssociatedData(fullMessageId, serialNumberWithinFullMessage, offsetWithinFullMessageInBytes, sizeOfFullMessageInBytes);
+            EncryptionResult encryptionResult = chaCha20Service.encryptData(chunkContent, 0, chunkSizeInBytes, messageKey, associatedData);
+            boolean isFirstChunk = chunkIndex == 0;
+            messageChunks.add(new EncryptedReceivedMessageChunkDTO(
+                    fullMessageId,
+                    UUID.randomUUID().toString(),
+                    serialNumberWithinFullMessage,
+                    numberOfChunks,
+                    sizeOfFullMessageInBytes,
+                    offsetWithinFullMessageInBytes,
+                    sender,
+                    "receiver",
+                    encryptionResult.getEncryptedData(),
+                    isFirstChunk ? MessageContentType.JPEG : null,
+                    Instant.now(),
+                    isFirstChunk ? messageKey : null,
+                    null,
+                    true,
+                    encryptionResult.getInitializationVector()
+            ));
+        }
+        return messageChunks;
+    }
+
+    private static void awaitStart(CyclicBarrier startBarrier) {
+        try {
+            startBarrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to start message chunk delivery", e);
+        }
+    }
+
+}
@@ -3,6 +3,8 @@ package com.tpeterb.securechatclient.application;
 import android.app.Application;
 import android.content.Context;
 
+import androidx.lifecycle.ProcessLifecycleOwner;
+
 import com.jakewharton.threetenabp.AndroidThreeTen;
 import com.tpeterb.securechatclient.component.AppComponent;
 import com.tpeterb.securechatclient.component.DaggerAppComponent;
@@ -22,6 +24,7 @@ public class ChatApplication extends Application {
                 .build();
         AndroidThreeTen.init(this);
         context = getApplicationContext();
+        ProcessLifecycleOwner.get().getLifecycle().addObserver(daggerAppComponent.conversationWarmUpService());
     }
 
     public static AppComponent getAppComponent() {
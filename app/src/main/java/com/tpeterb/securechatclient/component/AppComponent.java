@@ -1,5 +1,6 @@
 package com.tpeterb.securechatclient.component;
 
+import com.tpeterb.securechatclient.messages.service.ConversationWarmUpService;
 import com.tpeterb.securechatclient.messages.service.MessageChunkService;
 import com.tpeterb.securechatclient.module.AppModule;
 import com.tpeterb.securechatclient.ui.ChatListActivity;
@@ -26,4 +27,6 @@ public interface AppComponent {
 
     void inject(PersonalChatActivity personalChatActivity);
 
+    ConversationWarmUpService conversationWarmUpService();
+
 }
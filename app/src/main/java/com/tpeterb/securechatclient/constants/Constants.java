@@ -18,6 +18,8 @@ public final class Constants {
 
     public static final String CHAT_SERVER_FULL_MESSAGE_RECEIPT_ACKNOWLEDGEMENT_DESTINATION = "/app/chat/ack/full";
 
+    public static final String CHAT_SERVER_MESSAGE_CHUNK_RECEIPT_ACKNOWLEDGEMENT_DESTINATION = "/app/chat/ack/chunk";
+
     public static final int NUMBER_OF_MESSAGES_TO_FETCH_AT_ONCE = 20;
 
     public static final String CHAT_SERVER_MESSAGE_SINGLE_SENDING_DESTINATION = "/app/chat/private";
@@ -28,6 +30,12 @@ public final class Constants {
 
     public static final String SINGLE_MESSAGE_CHUNK_RECEIVING_GENERAL_DESTINATION = "/queue/private/chunk/";
 
+    public static final String CHAT_SERVER_MISSING_MESSAGE_CHUNKS_REQUEST_DESTINATION = "/app/chat/private/chunk/missing";
+
+    public static final String MISSING_MESSAGE_CHUNKS_REQUEST_RECEIVING_GENERAL_DESTINATION = "/queue/private/chunk/missing/";
+
+    public static final String MESSAGE_CHUNK_ACKNOWLEDGEMENT_RECEIVING_GENERAL_DESTINATION = "/queue/private/chunk/ack/";
+
     public static final String MESSAGE_BULK_FETCHING_GENERAL_DESTINATION = "/queue/conversationPart/";
 
     public static final String SERVER_PUBLIC_KEY_FOR_MESSAGES_DESTINATION_GENERAL_DESTINATION = "/queue/key/public/messages/";
@@ -36,7 +44,7 @@ public final class Constants {
 
     public static final String NEW_KEY_EXCHANGE_SIGNALING_GENERAL_ENDPOINT = "/queue/key/exchange/";
 
-    public static final int MESSAGE_SLICING_SIZE_THRESHOLD_IN_BYTES = Integer.MAX_VALUE;
+    public static final int MESSAGE_SLICING_SIZE_THRESHOLD_IN_BYTES = 64 * 1024;
 
     public static final int HTTP_STATUS_CODE_FOR_NON_EXISTENT_SESSION_KEY = 403;
 
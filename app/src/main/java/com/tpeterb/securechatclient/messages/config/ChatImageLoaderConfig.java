@@ -0,0 +1,27 @@
+package com.tpeterb.securechatclient.messages.config;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.Value;
+
+@Singleton
+@Value
+public class ChatImageLoaderConfig {
+
+    int bitmapCacheFractionOfMaxMemory = 8;
+
+    int numberOfImageDecodingThreads = 2;
+
+    int maxImageBubbleWidthDp = 250;
+
+    int maxImageBubbleHeightDp = 350;
+
+    boolean decodeOpaqueImagesAsRgb565 = true;
+
+    int maxNumberOfCachedImageDimensions = 512;
+
+    @Inject
+    public ChatImageLoaderConfig() {}
+
+}
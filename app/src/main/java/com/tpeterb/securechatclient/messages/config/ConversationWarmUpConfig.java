@@ -0,0 +1,23 @@
+package com.tpeterb.securechatclient.messages.config;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.Value;
+
+@Singleton
+@Value
+public class ConversationWarmUpConfig {
+
+    int maxNumberOfConversationsToWarmUp = 5;
+
+    long warmUpBudgetInBytes = 1024 * 1024;
+
+    long warmUpResponseTimeoutMs = 10000;
+
+    long warmUpStartDelayMs = 1500;
+
+    @Inject
+    public ConversationWarmUpConfig() {}
+
+}
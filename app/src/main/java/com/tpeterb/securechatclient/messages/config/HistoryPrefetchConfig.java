@@ -0,0 +1,23 @@
+package com.tpeterb.securechatclient.messages.config;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.Value;
+
+@Singleton
+@Value
+public class HistoryPrefetchConfig {
+
+    int numberOfPagesToPrefetchAhead = 2;
+
+    long expectedHistoryFetchLatencyMs = 800;
+
+    long historyFetchTimeoutMs = 10000;
+
+    double scrollVelocitySmoothingFactor = 0.3;
+
+    @Inject
+    public HistoryPrefetchConfig() {}
+
+}
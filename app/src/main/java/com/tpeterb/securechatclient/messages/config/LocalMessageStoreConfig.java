@@ -0,0 +1,21 @@
+package com.tpeterb.securechatclient.messages.config;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.Value;
+
+@Singleton
+@Value
+public class LocalMessageStoreConfig {
+
+    long writeBehindFlushDelayMs = 500;
+
+    int maxNumberOfPendingWritesBeforeFlush = 64;
+
+    int numberOfMessagesToHydrateFromLocalStore = 60;
+
+    @Inject
+    public LocalMessageStoreConfig() {}
+
+}
@@ -0,0 +1,21 @@
+package com.tpeterb.securechatclient.messages.config;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.Value;
+
+@Singleton
+@Value
+public class MediaPreparationConfig {
+
+    int maxImageDimensionPx = 1600;
+
+    int jpegQuality = 80;
+
+    boolean gzipImageContent = false;
+
+    @Inject
+    public MediaPreparationConfig() {}
+
+}
@@ -0,0 +1,69 @@
+package com.tpeterb.securechatclient.messages.config;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.Value;
+
+@Singleton
+@Value
+public class MessageChunkConfig {
+
+    int chunkSizeInBytes = 64 * 1024;
+
+    int minChunkSizeInBytes = 16 * 1024;
+
+    int maxChunkSizeInBytes = 256 * 1024;
+
+    int targetChunkTransmissionTimeMs = 250;
+
+    int initialSendWindowSizeInChunks = 4;
+
+    int minSendWindowSizeInChunks = 2;
+
+    int maxSendWindowSizeInChunks = 32;
+
+    int initialRetransmissionTimeoutMs = 3000;
+
+    int minRetransmissionTimeoutMs = 500;
+
+    int maxRetransmissionTimeoutMs = 30000;
+
+    int retransmissionCheckIntervalMs = 250;
+
+    int maxChunkTransmissionAttempts = 6;
+
+    int initialPacingRateInBytesPerMs = 256;
+
+    double pacingGain = 2.0;
+
+    int maxUnsentBytesInWebSocketBeforeBulkFrame = 16 * 1024;
+
+    int webSocketDrainPollIntervalMs = 5;
+
+    int reassemblyTimeoutMs = 60000;
+
+    int reassemblyTimerTickMs = 1000;
+
+    int reassemblyTimerWheelSize = 128;
+
+    int missingChunkRequestIntervalMs = 15000;
+
+    int retransmissionBufferSizeInBytes = 8 * 1024 * 1024;
+
+    int maxFullMessageSizeInBytes = 16 * 1024 * 1024;
+
+    long inFlightReassemblyBudgetInBytes = 48L * 1024 * 1024;
+
+    long perSenderInFlightReassemblyBudgetInBytes = 24L * 1024 * 1024;
+
+    int reassemblySpillThresholdInBytes = 2 * 1024 * 1024;
+
+    int maxNumberOfParkedMessageChunks = 64;
+
+    int maxNumberOfRecentlyCompletedMessageIds = 1024;
+
+    @Inject
+    public MessageChunkConfig() {}
+
+}
@@ -0,0 +1,21 @@
+package com.tpeterb.securechatclient.messages.config;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.Value;
+
+@Singleton
+@Value
+public class MessageRegistryConfig {
+
+    int maxResidentMessagesPerConversation = 200;
+
+    long maxResidentBytesPerConversation = 8L * 1024 * 1024;
+
+    long maxResidentBytes = 32L * 1024 * 1024;
+
+    @Inject
+    public MessageRegistryConfig() {}
+
+}
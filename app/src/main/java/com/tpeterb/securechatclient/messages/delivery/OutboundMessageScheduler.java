@@ -0,0 +1,209 @@
+package com.tpeterb.securechatclient.messages.delivery;
+
+import com.tpeterb.securechatclient.messages.config.MessageChunkConfig;
+import com.tpeterb.securechatclient.messages.service.ChunkTransferRateEstimator;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Singleton
+public class OutboundMessageScheduler {
+
+    private static final int STOMP_FRAME_OVERHEAD_IN_BYTES = 64;
+
+    private final WebSocketClient webSocketClient;
+
+    private final ChunkTransferRateEstimator chunkTransferRateEstimator;
+
+    private final WebSocketDrainMonitor webSocketDrainMonitor;
+
+    private final MessageChunkConfig messageChunkConfig;
+
+    private final ReentrantLock queueLock;
+
+    private final Condition frameAvailable;
+
+    private final Deque<OutboundFrame> highPriorityFrames;
+
+    private final Deque<OutboundFrame> bulkFrames;
+
+    private long nextBulkFrameSendTimeNanos;
+
+    private long numberOfHandedOffBytes;
+
+    @Inject
+    public OutboundMessageScheduler(WebSocketClient webSocketClient,
+                                    ChunkTransferRateEstimator chunkTransferRateEstimator,
+                                    WebSocketDrainMonitor webSocketDrainMonitor,
+                                    MessageChunkConfig messageChunkConfig) {
+        this.webSocketClient = webSocketClient;
+        this.chunkTransferRateEstimator = chunkTransferRateEstimator;
+        this.webSocketDrainMonitor = webSocketDrainMonitor;
+        this.messageChunkConfig = messageChunkConfig;
+        queueLock = new ReentrantLock();
+        frameAvailable = queueLock.newCondition();
+        highPriorityFrames = new ArrayDeque<>();
+        bulkFrames = new ArrayDeque<>();
+        nextBulkFrameSendTimeNanos = System.nanoTime();
+        numberOfHandedOffBytes = webSocketDrainMonitor.getNumberOfWrittenBytes();
+        webSocketClient.addConnectionStateListener(connected -> resetHandedOffBytes());
+        Thread dispatcherThread = new Thread(this::dispatchFrames, "outbound-message-scheduler");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+    }
+
+    public void sendHighPriority(String message, String destination) {
+        enqueue(highPriorityFrames, new OutboundFrame(message, destination));
+    }
+
+    public void sendBulk(String message, String destination) {
+        enqueue(bulkFrames, new OutboundFrame(message, destination));
+    }
+
+    public void sendBulk(String message, String destination, LongConsumer onDispatched) {
+        enqueue(bulkFrames, new OutboundFrame(message, destination, onDispatched));
+    }
+
+    public static int estimateWireSizeInBytes(String message, String destination) {
+        return message.length() + destination.length() + STOMP_FRAME_OVERHEAD_IN_BYTES;
+    }
+
+    public void clearPendingBulkFrames() {
+        queueLock.lock();
+        try {
+            bulkFrames.clear();
+            numberOfHandedOffBytes = webSocketDrainMonitor.getNumberOfWrittenBytes();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void resetHandedOffBytes() {
+        queueLock.lock();
+        try {
+            numberOfHandedOffBytes = webSocketDrainMonitor.getNumberOfWrittenBytes();
+            frameAvailable.signal();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void enqueue(Deque<OutboundFrame> frames, OutboundFrame frame) {
+        queueLock.lock();
+        try {
+            frames.addLast(frame);
+            frameAvailable.signal();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void dispatchFrames() {
+        while (!Thread.currentThread().isInterrupted()) {
+            OutboundFrame frame;
+            boolean isBulkFrame;
+            int frameWireSizeInBytes;
+            queueLock.lock();
+            try {
+                while (true) {
+                    if (!highPriorityFrames.isEmpty()) {
+                        frame = highPriorityFrames.pollFirst();
+                        isBulkFrame = false;
+                        break;
+                    }
+                    long nanosUntilNextBulkFrame = nextBulkFrameSendTimeNanos - System.nanoTime();
+                    boolean webSocketDrained = getNumberOfUnsentBytesInWebSocket() <= messageChunkConfig.getMaxUnsentBytesInWebSocketBeforeBulkFrame();
+                    if (!bulkFrames.isEmpty() && nanosUntilNextBulkFrame <= 0 && webSocketDrained) {
+                        frame = bulkFrames.pollFirst();
+                        isBulkFrame = true;
+                        break;
+                    }
+                    if (bulkFrames.isEmpty()) {
+                        frameAvailable.await();
+                    } else if (nanosUntilNextBulkFrame > 0) {
+                        frameAvailable.awaitNanos(nanosUntilNextBulkFrame);
+                    } else {
+                        frameAvailable.awaitNanos(TimeUnit.MILLISECONDS.toNanos(messageChunkConfig.getWebSocketDrainPollIntervalMs()));
+                    }
+                }
+                frameWireSizeInBytes = estimateWireSizeInBytes(frame.getMessage(), frame.getDestination());
+                numberOfHandedOffBytes += frameWireSizeInBytes;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                queueLock.unlock();
+            }
+            if (isBulkFrame) {
+                long pacingDelayNanos = TimeUnit.MILLISECONDS.toNanos(chunkTransferRateEstimator.getPacingDelayMs(frameWireSizeInBytes));
+                nextBulkFrameSendTimeNanos = System.nanoTime() + pacingDelayNanos;
+            }
+            long dispatchedAtMs = System.currentTimeMillis();
+            OutboundFrame dispatchedFrame = frame;
+            int dispatchedFrameWireSizeInBytes = frameWireSizeInBytes;
+            try {
+                webSocketClient.sendMessage(
+                        frame.getMessage(),
+                        frame.getDestination(),
+                        () -> {
+                            if (Objects.nonNull(dispatchedFrame.getOnDispatched())) {
+                                dispatchedFrame.getOnDispatched().accept(dispatchedAtMs);
+                            }
+                        },
+                        throwable -> releaseHandedOffBytes(dispatchedFrameWireSizeInBytes)
+                );
+            } catch (RuntimeException e) {
+                releaseHandedOffBytes(frameWireSizeInBytes);
+                log.error("Failed to send outbound frame to destination {}, reason: {}", frame.getDestination(), e.getMessage());
+            }
+        }
+    }
+
+    private void releaseHandedOffBytes(int numberOfBytes) {
+        queueLock.lock();
+        try {
+            numberOfHandedOffBytes -= numberOfBytes;
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private long getNumberOfUnsentBytesInWebSocket() {
+        long numberOfWrittenBytes = webSocketDrainMonitor.getNumberOfWrittenBytes();
+        if (numberOfHandedOffBytes <= numberOfWrittenBytes) {
+            numberOfHandedOffBytes = numberOfWrittenBytes;
+            return 0;
+        }
+        return numberOfHandedOffBytes - numberOfWrittenBytes;
+    }
+
+    @Value
+    @AllArgsConstructor
+    private static class OutboundFrame {
+
+        String message;
+
+        String destination;
+
+        LongConsumer onDispatched;
+
+        OutboundFrame(String message, String destination) {
+            this(message, destination, null);
+        }
+
+    }
+
+}
@@ -7,6 +7,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tpeterb.securechatclient.messages.config.WebSocketConnectionConfig;
 import com.tpeterb.securechatclient.messages.factory.CircuitBreakerFactory;
 import com.tpeterb.securechatclient.messages.factory.RetryPolicyFactory;
+import com.tpeterb.securechatclient.messages.listener.WebSocketConnectionStateListener;
 import com.tpeterb.securechatclient.messages.model.FullMessageAcknowledgementDTO;
 import com.tpeterb.securechatclient.users.session.UserSession;
 
@@ -16,6 +17,8 @@ import net.jodah.failsafe.RetryPolicy;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -41,6 +44,8 @@ public class WebSocketClient {
 
     private volatile boolean isConnected;
 
+    private final List<WebSocketConnectionStateListener> connectionStateListeners;
+
     @Inject
     public WebSocketClient(ObjectMapper objectMapper,
                            UserSession userSession,
@@ -50,6 +55,7 @@ public class WebSocketClient {
         this.userSession = userSession;
         this.stompClient = stompClient;
         isConnected = false;
+        connectionStateListeners = new CopyOnWriteArrayList<>();
         configureStompClient();
         webSocketRetryPolicy = RetryPolicyFactory.createWebSocketRetryPolicy(webSocketConnectionConfig);
         webSocketCircuitBreaker = CircuitBreakerFactory.createWebSocketCircuitBreaker(webSocketConnectionConfig);
@@ -73,15 +79,25 @@ public class WebSocketClient {
     }
 
     public void sendMessage(String message, String destination) {
+        sendMessage(message, destination, () -> {}, throwable -> {});
+    }
+
+    public void sendMessage(String message, String destination, Runnable onSent, Consumer<Throwable> onFailure) {
 
         var observable = stompClient.send(destination, message).subscribe(() -> {
             log.info("Message was successfully sent!");
+            onSent.run();
         }, throwable -> {
             log.error("There was an error while sending the message, reason: {}", throwable.getMessage());
+            onFailure.accept(throwable);
         });
 
     }
 
+    public void addConnectionStateListener(WebSocketConnectionStateListener connectionStateListener) {
+        connectionStateListeners.add(connectionStateListener);
+    }
+
     public boolean isConnected() {
         return isConnected;
     }
@@ -101,10 +117,12 @@ public class WebSocketClient {
                 case OPENED:
                     log.info("WebSocket connection opened successfully");
                     isConnected = true;
+                    notifyConnectionStateListeners(true);
                     break;
                 case CLOSED:
                     log.info("WebSocket connection closed!");
                     isConnected = false;
+                    notifyConnectionStateListeners(false);
                     connectToServerWithFailureHandling();
                     break;
                 case ERROR:
@@ -116,4 +134,10 @@ public class WebSocketClient {
         });
     }
 
+    private void notifyConnectionStateListeners(boolean connected) {
+        for (WebSocketConnectionStateListener connectionStateListener : connectionStateListeners) {
+            connectionStateListener.onWebSocketConnectionStateChanged(connected);
+        }
+    }
+
 }
@@ -0,0 +1,110 @@
+package com.tpeterb.securechatclient.messages.delivery;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.net.SocketFactory;
+
+@Singleton
+public class WebSocketDrainMonitor {
+
+    private final AtomicLong numberOfWrittenBytes;
+
+    private final SocketFactory socketFactory;
+
+    @Inject
+    public WebSocketDrainMonitor() {
+        numberOfWrittenBytes = new AtomicLong();
+        socketFactory = new ByteCountingSocketFactory();
+    }
+
+    public SocketFactory getSocketFactory() {
+        return socketFactory;
+    }
+
+    public long getNumberOfWrittenBytes() {
+        return numberOfWrittenBytes.get();
+    }
+
+    private class ByteCountingSocketFactory extends SocketFactory {
+
+        @Override
+        public Socket createSocket() {
+            return new ByteCountingSocket();
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            Socket socket = createSocket();
+            socket.connect(new InetSocketAddress(host, port));
+            return socket;
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localAddress, int localPort) throws IOException {
+            Socket socket = createSocket();
+            socket.bind(new InetSocketAddress(localAddress, localPort));
+            socket.connect(new InetSocketAddress(host, port));
+            return socket;
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port) throws IOException {
+            Socket socket = createSocket();
+            socket.connect(new InetSocketAddress(address, port));
+            return socket;
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            Socket socket = createSocket();
+            socket.bind(new InetSocketAddress(localAddress, localPort));
+            socket.connect(new InetSocketAddress(address, port));
+            return socket;
+        }
+
+    }
+
+    private class ByteCountingSocket extends Socket {
+
+        private OutputStream byteCountingOutputStream;
+
+        @Override
+        public synchronized OutputStream getOutputStream() throws IOException {
+            if (Objects.isNull(byteCountingOutputStream)) {
+                byteCountingOutputStream = new ByteCountingOutputStream(super.getOutputStream());
+            }
+            return byteCountingOutputStream;
+        }
+
+    }
+
+    private class ByteCountingOutputStream extends FilterOutputStream {
+
+        private ByteCountingOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            numberOfWrittenBytes.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            numberOfWrittenBytes.addAndGet(length);
+        }
+
+    }
+
+}
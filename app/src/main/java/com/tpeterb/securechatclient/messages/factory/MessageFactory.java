@@ -0,0 +1,55 @@
+package com.tpeterb.securechatclient.messages.factory;
+
+import com.tpeterb.securechatclient.messages.model.MessageContentType;
+import com.tpeterb.securechatclient.messages.model.MessageDTO;
+import com.tpeterb.securechatclient.utils.MediaSignatureUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Objects;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public final class MessageFactory {
+
+    private MessageFactory() {}
+
+    public static MessageDTO createMessage(String id,
+                                           String sender,
+                                           String receiver,
+                                           MessageContentType messageContentType,
+                                           Instant timestamp,
+                                           byte[] content) {
+        if (Objects.nonNull(messageContentType) && messageContentType.isImage()) {
+            return new MessageDTO(id, sender, receiver, null, toBinaryMediaContent(id, content), messageContentType, timestamp, null, null);
+        }
+        return new MessageDTO(id, sender, receiver, new String(content, StandardCharsets.UTF_8), null, messageContentType, timestamp, null, null);
+    }
+
+    public static MessageDTO createMediaMessage(String id,
+                                                String sender,
+                                                String receiver,
+                                                MessageContentType messageContentType,
+                                                Instant timestamp,
+                                                File contentFile,
+                                                Integer imageWidth,
+                                                Integer imageHeight) {
+        return new MessageDTO(id, sender, receiver, null, null, messageContentType, timestamp, imageWidth, imageHeight, contentFile);
+    }
+
+    public static byte[] toBinaryMediaContent(String messageId, byte[] content) {
+        if (MediaSignatureUtils.hasKnownMediaSignature(content)) {
+            return content;
+        }
+        try {
+            return Base64.getDecoder().decode(content);
+        } catch (IllegalArgumentException e) {
+            log.warn("Media content of message with id {} is neither binary nor base64 encoded", messageId);
+            return content;
+        }
+    }
+
+}
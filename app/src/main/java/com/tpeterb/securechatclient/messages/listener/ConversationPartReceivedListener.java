@@ -0,0 +1,8 @@
+package com.tpeterb.securechatclient.messages.listener;
+
+@FunctionalInterface
+public interface ConversationPartReceivedListener {
+
+    void onConversationPartReceived(String chatPartnerUsername, int sizeInBytes, boolean hasMoreNewerMessages);
+
+}
@@ -7,6 +7,6 @@ import java.util.List;
 @FunctionalInterface
 public interface PersonalChatMessageBulkUpdateListener {
 
-    void onNewMessages(List<MessageDTO> messages);
+    void onNewMessages(String chatPartnerUsername, List<MessageDTO> messages);
 
 }
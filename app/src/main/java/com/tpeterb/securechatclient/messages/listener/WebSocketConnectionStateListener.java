@@ -0,0 +1,8 @@
+package com.tpeterb.securechatclient.messages.listener;
+
+@FunctionalInterface
+public interface WebSocketConnectionStateListener {
+
+    void onWebSocketConnectionStateChanged(boolean connected);
+
+}
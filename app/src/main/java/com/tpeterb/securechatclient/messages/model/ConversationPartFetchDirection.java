@@ -0,0 +1,8 @@
+package com.tpeterb.securechatclient.messages.model;
+
+public enum ConversationPartFetchDirection {
+
+    BEFORE_CURSOR,
+    SINCE_CURSOR
+
+}
@@ -1,15 +1,23 @@
 package com.tpeterb.securechatclient.messages.model;
 
+import java.time.Instant;
+
+import lombok.Builder;
 import lombok.Value;
 
 @Value
+@Builder
 public class ConversationPartFetchRequestDTO {
 
     String loggedInUsername;
 
     String otherChatParticipantUsername;
 
-    int numberOfAlreadyFetchedMessages;
+    ConversationPartFetchDirection fetchDirection;
+
+    Instant cursorMessageTimestamp;
+
+    String cursorMessageId;
 
     int numberOfMessagesToFetch;
 
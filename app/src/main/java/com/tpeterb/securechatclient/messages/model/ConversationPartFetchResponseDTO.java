@@ -15,15 +15,23 @@ public class ConversationPartFetchResponseDTO {
 
     String chatPartnerUsername;
 
+    ConversationPartFetchDirection fetchDirection;
+
+    boolean hasMore;
+
     List<EncryptedReceivedMessageDTO> messages;
 
     @JsonCreator
     public ConversationPartFetchResponseDTO(
             @JsonProperty("conversationPartId") String conversationPartId,
             @JsonProperty("chatPartnerUsername") String chatPartnerUsername,
+            @JsonProperty("fetchDirection") ConversationPartFetchDirection fetchDirection,
+            @JsonProperty("hasMore") boolean hasMore,
             @JsonProperty("messages") List<EncryptedReceivedMessageDTO> messages) {
         this.conversationPartId = conversationPartId;
         this.chatPartnerUsername = chatPartnerUsername;
+        this.fetchDirection = fetchDirection;
+        this.hasMore = hasMore;
         this.messages = messages;
     }
 
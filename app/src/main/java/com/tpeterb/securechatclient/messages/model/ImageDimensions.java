@@ -0,0 +1,12 @@
+package com.tpeterb.securechatclient.messages.model;
+
+import lombok.Value;
+
+@Value
+public class ImageDimensions {
+
+    int width;
+
+    int height;
+
+}
@@ -0,0 +1,28 @@
+package com.tpeterb.securechatclient.messages.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Value;
+
+@Value
+public class MessageChunkAcknowledgementDTO {
+
+    String fullMessageId;
+
+    int serialNumberWithinFullMessage;
+
+    String messageSender;
+
+    @JsonCreator
+    public MessageChunkAcknowledgementDTO(
+            @JsonProperty("fullMessageId") String fullMessageId,
+            @JsonProperty("serialNumberWithinFullMessage") int serialNumberWithinFullMessage,
+            @JsonProperty("messageSender") String messageSender
+    ) {
+        this.fullMessageId = fullMessageId;
+        this.serialNumberWithinFullMessage = serialNumberWithinFullMessage;
+        this.messageSender = messageSender;
+    }
+
+}
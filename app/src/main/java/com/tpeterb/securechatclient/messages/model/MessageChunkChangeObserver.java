@@ -1,12 +1,13 @@
 package com.tpeterb.securechatclient.messages.model;
 
-import com.tpeterb.securechatclient.security.model.EncryptedReceivedMessageChunkDTO;
-
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.List;
 
 public interface MessageChunkChangeObserver {
 
-    void handleAllMessageChunksReceivedEvent(TreeSet<EncryptedReceivedMessageChunkDTO> fullyReceivedMessageChunks);
+    void handleMessageChunkReceivedEvent(MessageReassemblyBuffer partiallyReceivedMessage, int serialNumberWithinFullMessage);
+
+    void handleAllMessageChunksReceivedEvent(MessageReassemblyBuffer fullyReceivedMessage);
+
+    void handleMissingMessageChunksEvent(MessageReassemblyBuffer partiallyReceivedMessage, List<Integer> missingSerialNumbers);
 
 }
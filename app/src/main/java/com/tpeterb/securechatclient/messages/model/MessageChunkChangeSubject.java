@@ -1,8 +1,6 @@
 package com.tpeterb.securechatclient.messages.model;
 
-import com.tpeterb.securechatclient.security.model.EncryptedReceivedMessageChunkDTO;
-
-import java.util.TreeSet;
+import java.util.List;
 
 public interface MessageChunkChangeSubject {
 
@@ -10,6 +8,10 @@ public interface MessageChunkChangeSubject {
 
     void unsubscribe(MessageChunkChangeObserver messageChunkChangeObserver);
 
-    void notifyObservers(TreeSet<EncryptedReceivedMessageChunkDTO> fullyReceivedMessageChunks);
+    void notifyObserversAboutReceivedChunk(MessageReassemblyBuffer partiallyReceivedMessage, int serialNumberWithinFullMessage);
+
+    void notifyObservers(MessageReassemblyBuffer fullyReceivedMessage);
+
+    void notifyObserversAboutMissingChunks(MessageReassemblyBuffer partiallyReceivedMessage, List<Integer> missingSerialNumbers);
 
-}
\ No newline at end of file
+}
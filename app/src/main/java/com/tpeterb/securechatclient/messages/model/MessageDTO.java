@@ -1,13 +1,22 @@
 package com.tpeterb.securechatclient.messages.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.tpeterb.securechatclient.messages.factory.MessageFactory;
+import com.tpeterb.securechatclient.messages.storage.MediaFileCipher;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Objects;
 
+import lombok.ToString;
 import lombok.Value;
 
 @Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class MessageDTO implements Comparable<MessageDTO> {
 
     String id;
@@ -18,26 +27,106 @@ public class MessageDTO implements Comparable<MessageDTO> {
 
     String content;
 
+    @ToString.Exclude
+    byte[] binaryContent;
+
     MessageContentType messageContentType;
 
     //@JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss'Z'", timezone = "UTC")
     Instant timestamp;
 
+    Integer imageWidth;
+
+    Integer imageHeight;
+
+    @JsonIgnore
+    @ToString.Exclude
+    File contentFile;
+
+    public MessageDTO(String id,
+                      String sender,
+                      String receiver,
+                      String content,
+                      byte[] binaryContent,
+                      MessageContentType messageContentType,
+                      Instant timestamp,
+                      Integer imageWidth,
+                      Integer imageHeight) {
+        this(id, sender, receiver, content, binaryContent, messageContentType, timestamp, imageWidth, imageHeight, null);
+    }
+
+    public MessageDTO(String id,
+                      String sender,
+                      String receiver,
+                      String content,
+                      byte[] binaryContent,
+                      MessageContentType messageContentType,
+                      Instant timestamp,
+                      Integer imageWidth,
+                      Integer imageHeight,
+                      File contentFile) {
+        this.id = id;
+        this.sender = sender;
+        this.receiver = receiver;
+        this.content = content;
+        this.binaryContent = binaryContent;
+        this.messageContentType = messageContentType;
+        this.timestamp = timestamp;
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.contentFile = contentFile;
+    }
+
     @JsonCreator
-    public MessageDTO(
+    public static MessageDTO fromJson(
             @JsonProperty("id") String id,
             @JsonProperty("sender") String sender,
             @JsonProperty("receiver") String receiver,
             @JsonProperty("content") String content,
+            @JsonProperty("binaryContent") byte[] binaryContent,
             @JsonProperty("messageContentType") MessageContentType messageContentType,
-            @JsonProperty("timestamp") Instant timestamp
+            @JsonProperty("timestamp") Instant timestamp,
+            @JsonProperty("imageWidth") Integer imageWidth,
+            @JsonProperty("imageHeight") Integer imageHeight
     ) {
-        this.id = id;
-        this.sender = sender;
-        this.receiver = receiver;
-        this.content = content;
-        this.messageContentType = messageContentType;
-        this.timestamp = timestamp;
+        if (Objects.isNull(binaryContent) && Objects.nonNull(content) && Objects.nonNull(messageContentType) && messageContentType.isImage()) {
+            return new MessageDTO(id, sender, receiver, null, MessageFactory.toBinaryMediaContent(id, content.getBytes(StandardCharsets.ISO_8859_1)), messageContentType, timestamp, imageWidth, imageHeight);
+        }
+        return new MessageDTO(id, sender, receiver, content, binaryContent, messageContentType, timestamp, imageWidth, imageHeight);
+    }
+
+    @JsonIgnore
+    public byte[] getContentBytes() {
+        if (Objects.nonNull(binaryContent)) {
+            return binaryContent;
+        }
+        if (Objects.nonNull(contentFile)) {
+            throw new IllegalStateException("The content of message with id " + id + " is stored in an encrypted media file");
+        }
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @JsonIgnore
+    public int getContentSizeInBytes() {
+        if (Objects.nonNull(binaryContent)) {
+            return binaryContent.length;
+        }
+        if (Objects.nonNull(contentFile)) {
+            return (int) MediaFileCipher.getContentSizeInBytes(contentFile);
+        }
+        return Objects.nonNull(content) ? 2 * content.length() : 0;
+    }
+
+    public boolean hasImageDimensions() {
+        return Objects.nonNull(imageWidth) && Objects.nonNull(imageHeight) && imageWidth > 0 && imageHeight > 0;
+    }
+
+    public boolean hasContentFile() {
+        return Objects.nonNull(contentFile);
+    }
+
+    public MessageDTO withBinaryContent(byte[] binaryContent) {
+        return new MessageDTO(id, sender, receiver, content, binaryContent, messageContentType, timestamp, imageWidth, imageHeight, null);
     }
 
     @Override
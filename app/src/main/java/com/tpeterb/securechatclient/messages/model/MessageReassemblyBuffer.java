@@ -0,0 +1,141 @@
+package com.tpeterb.securechatclient.messages.model;
+
+import com.tpeterb.securechatclient.messages.storage.ReassemblyStorage;
+import com.tpeterb.securechatclient.security.model.EncryptedReceivedMessageChunkDTO;
+import com.tpeterb.securechatclient.utils.HashedTimerWheel;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+public class MessageReassemblyBuffer {
+
+    private final String fullMessageId;
+
+    private final String sender;
+
+    private final String receiver;
+
+    private final MessageContentType messageContentType;
+
+    private final Instant timestamp;
+
+    private final byte[] fullMessageContentEncryptionKey;
+
+    private final byte[] fullMessageContentInitializationVector;
+
+    private final boolean chunkEncryptedIndependently;
+
+    private final int numberOfChunks;
+
+    private final int sizeOfFullMessageInBytes;
+
+    @Getter(AccessLevel.NONE)
+    private final ReassemblyStorage content;
+
+    @Getter(AccessLevel.NONE)
+    private final BitSet receivedChunks;
+
+    private int numberOfReceivedChunks;
+
+    private long lastProgressTimeMs;
+
+    @Getter(AccessLevel.NONE)
+    private boolean released;
+
+    @Setter
+    @Getter(AccessLevel.NONE)
+    private HashedTimerWheel.Timeout expiryTimeout;
+
+    @Setter
+    @Getter(AccessLevel.NONE)
+    private HashedTimerWheel.Timeout missingChunkRequestTimeout;
+
+    public MessageReassemblyBuffer(EncryptedReceivedMessageChunkDTO firstArrivedMessageChunk, ReassemblyStorage content) {
+        fullMessageId = firstArrivedMessageChunk.getFullMessageId();
+        sender = firstArrivedMessageChunk.getSender();
+        receiver = firstArrivedMessageChunk.getReceiver();
+        messageContentType = firstArrivedMessageChunk.getMessageContentType();
+        timestamp = firstArrivedMessageChunk.getTimestamp();
+        fullMessageContentEncryptionKey = firstArrivedMessageChunk.getFullMessageContentEncryptionKey();
+        fullMessageContentInitializationVector = firstArrivedMessageChunk.getFullMessageContentInitializationVector();
+        chunkEncryptedIndependently = firstArrivedMessageChunk.isChunkEncryptedIndependently();
+        numberOfChunks = firstArrivedMessageChunk.getNumberOfChunksOfFullMessage();
+        sizeOfFullMessageInBytes = content.getSizeInBytes();
+        this.content = content;
+        receivedChunks = new BitSet(numberOfChunks);
+        numberOfReceivedChunks = 0;
+        lastProgressTimeMs = System.currentTimeMillis();
+    }
+
+    public boolean writeMessageChunk(int serialNumberWithinFullMessage, int offsetWithinFullMessageInBytes, byte[] messageChunkContent, int messageChunkContentLength) {
+        int chunkIndex = serialNumberWithinFullMessage - 1;
+        if (released || chunkIndex < 0 || chunkIndex >= numberOfChunks || receivedChunks.get(chunkIndex)) {
+            return false;
+        }
+        if (offsetWithinFullMessageInBytes < 0 || offsetWithinFullMessageInBytes > sizeOfFullMessageInBytes - messageChunkContentLength) {
+            return false;
+        }
+        content.write(offsetWithinFullMessageInBytes, messageChunkContent, messageChunkContentLength);
+        receivedChunks.set(chunkIndex);
+        numberOfReceivedChunks++;
+        lastProgressTimeMs = System.currentTimeMillis();
+        return true;
+    }
+
+    public boolean hasReceivedMessageChunk(int serialNumberWithinFullMessage) {
+        int chunkIndex = serialNumberWithinFullMessage - 1;
+        return chunkIndex >= 0 && chunkIndex < numberOfChunks && receivedChunks.get(chunkIndex);
+    }
+
+    public boolean isComplete() {
+        return numberOfReceivedChunks == numberOfChunks;
+    }
+
+    public ByteBuffer getContentAsByteBuffer() {
+        return content.asReadOnlyByteBuffer();
+    }
+
+    public byte[] getContentAsByteArray() {
+        return content.toByteArray();
+    }
+
+    public synchronized File detachContentFile() {
+        return released ? null : content.detachFile();
+    }
+
+    public List<Integer> getMissingSerialNumbers() {
+        List<Integer> missingSerialNumbers = new ArrayList<>(numberOfChunks - numberOfReceivedChunks);
+        for (int chunkIndex = receivedChunks.nextClearBit(0); chunkIndex < numberOfChunks; chunkIndex = receivedChunks.nextClearBit(chunkIndex + 1)) {
+            missingSerialNumbers.add(chunkIndex + 1);
+        }
+        return missingSerialNumbers;
+    }
+
+    public void cancelExpiry() {
+        if (Objects.nonNull(expiryTimeout)) {
+            expiryTimeout.cancel();
+        }
+        if (Objects.nonNull(missingChunkRequestTimeout)) {
+            missingChunkRequestTimeout.cancel();
+        }
+    }
+
+    public synchronized void release() {
+        cancelExpiry();
+        if (!released) {
+            released = true;
+            content.close();
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.tpeterb.securechatclient.messages.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+import lombok.Value;
+
+@Value
+public class MissingMessageChunksRequestDTO {
+
+    String fullMessageId;
+
+    String messageSender;
+
+    String messageReceiver;
+
+    List<Integer> missingSerialNumbers;
+
+    @JsonCreator
+    public MissingMessageChunksRequestDTO(
+            @JsonProperty("fullMessageId") String fullMessageId,
+            @JsonProperty("messageSender") String messageSender,
+            @JsonProperty("messageReceiver") String messageReceiver,
+            @JsonProperty("missingSerialNumbers") List<Integer> missingSerialNumbers
+    ) {
+        this.fullMessageId = fullMessageId;
+        this.messageSender = messageSender;
+        this.messageReceiver = messageReceiver;
+        this.missingSerialNumbers = missingSerialNumbers;
+    }
+
+}
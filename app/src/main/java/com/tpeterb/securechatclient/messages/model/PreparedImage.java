@@ -0,0 +1,22 @@
+package com.tpeterb.securechatclient.messages.model;
+
+import java.io.File;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class PreparedImage {
+
+    File contentFile;
+
+    MessageContentType messageContentType;
+
+    int width;
+
+    int height;
+
+    int sizeInBytes;
+
+}
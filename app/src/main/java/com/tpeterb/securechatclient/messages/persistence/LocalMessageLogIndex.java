@@ -0,0 +1,106 @@
+package com.tpeterb.securechatclient.messages.persistence;
+
+import com.tpeterb.securechatclient.utils.LongPairHashMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+class LocalMessageLogIndex {
+
+    private static final Comparator<LocalMessageRecordPosition> TIMESTAMP_ORDER = Comparator
+            .comparingLong(LocalMessageRecordPosition::getTimestampEpochMillis)
+            .thenComparingLong(LocalMessageRecordPosition::getOffset);
+
+    private final LongPairHashMap<LocalMessageRecordPosition> recordPositionsById;
+
+    private final List<LocalMessageRecordPosition> recordPositionsInTimestampOrder;
+
+    private long indexedLogLength;
+
+    LocalMessageLogIndex() {
+        recordPositionsById = new LongPairHashMap<>();
+        recordPositionsInTimestampOrder = new ArrayList<>();
+        indexedLogLength = 0;
+    }
+
+    int size() {
+        return recordPositionsById.size();
+    }
+
+    long getIndexedLogLength() {
+        return indexedLogLength;
+    }
+
+    boolean containsMessage(long messageIdHighBits, long messageIdLowBits) {
+        return recordPositionsById.containsKey(messageIdHighBits, messageIdLowBits);
+    }
+
+    boolean addRecordPosition(LocalMessageRecordPosition recordPosition) {
+        indexedLogLength = Math.max(indexedLogLength, getEndOffset(recordPosition));
+        if (recordPositionsById.containsKey(recordPosition.getMessageIdHighBits(), recordPosition.getMessageIdLowBits())) {
+            return false;
+        }
+        recordPositionsById.put(recordPosition.getMessageIdHighBits(), recordPosition.getMessageIdLowBits(), recordPosition);
+        int insertionPoint = recordPositionsInTimestampOrder.size();
+        while (insertionPoint > 0 && TIMESTAMP_ORDER.compare(recordPositionsInTimestampOrder.get(insertionPoint - 1), recordPosition) > 0) {
+            insertionPoint--;
+        }
+        recordPositionsInTimestampOrder.add(insertionPoint, recordPosition);
+        return true;
+    }
+
+    void skipLogBytes(long endOffset) {
+        indexedLogLength = Math.max(indexedLogLength, endOffset);
+    }
+
+    List<LocalMessageRecordPosition> getRecordPositionsInOffsetOrder() {
+        List<LocalMessageRecordPosition> recordPositions = new ArrayList<>(recordPositionsInTimestampOrder);
+        recordPositions.sort(Comparator.comparingLong(LocalMessageRecordPosition::getOffset));
+        return recordPositions;
+    }
+
+    List<LocalMessageRecordPosition> getLatestRecordPositions(int maxNumberOfRecords) {
+        return getRecordPositionsBefore(recordPositionsInTimestampOrder.size(), maxNumberOfRecords);
+    }
+
+    List<LocalMessageRecordPosition> getRecordPositionsBefore(long cursorTimestampEpochMillis, long cursorMessageIdHighBits, long cursorMessageIdLowBits, int maxNumberOfRecords) {
+        LocalMessageRecordPosition cursorRecordPosition = recordPositionsById.get(cursorMessageIdHighBits, cursorMessageIdLowBits);
+        int endIndex;
+        if (Objects.nonNull(cursorRecordPosition)) {
+            endIndex = Collections.binarySearch(recordPositionsInTimestampOrder, cursorRecordPosition, TIMESTAMP_ORDER);
+        } else {
+            endIndex = findFirstIndexAtOrAfter(cursorTimestampEpochMillis);
+        }
+        return getRecordPositionsBefore(endIndex, maxNumberOfRecords);
+    }
+
+    private List<LocalMessageRecordPosition> getRecordPositionsBefore(int endIndex, int maxNumberOfRecords) {
+        int beginIndex = Math.max(0, endIndex - Math.max(0, maxNumberOfRecords));
+        List<LocalMessageRecordPosition> recordPositions = new ArrayList<>(recordPositionsInTimestampOrder.subList(beginIndex, endIndex));
+        Collections.reverse(recordPositions);
+        return recordPositions;
+    }
+
+    private int findFirstIndexAtOrAfter(long timestampEpochMillis) {
+        int low = 0;
+        int high = recordPositionsInTimestampOrder.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (recordPositionsInTimestampOrder.get(middle).getTimestampEpochMillis() < timestampEpochMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    static long getEndOffset(LocalMessageRecordPosition recordPosition) {
+        return recordPosition.getOffset() + LocalMessageStore.RECORD_HEADER_SIZE_IN_BYTES
+                + recordPosition.getInitializationVectorLength() + recordPosition.getEncryptedDataLength();
+    }
+
+}
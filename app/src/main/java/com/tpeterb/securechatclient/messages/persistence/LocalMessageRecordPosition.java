@@ -0,0 +1,24 @@
+package com.tpeterb.securechatclient.messages.persistence;
+
+import lombok.Value;
+
+@Value
+class LocalMessageRecordPosition {
+
+    long messageIdHighBits;
+
+    long messageIdLowBits;
+
+    long timestampEpochMillis;
+
+    long offset;
+
+    int initializationVectorLength;
+
+    int encryptedDataLength;
+
+    LocalMessageRecordPosition movedTo(long newOffset) {
+        return new LocalMessageRecordPosition(messageIdHighBits, messageIdLowBits, timestampEpochMillis, newOffset, initializationVectorLength, encryptedDataLength);
+    }
+
+}
@@ -0,0 +1,538 @@
+package com.tpeterb.securechatclient.messages.persistence;
+
+import android.content.Context;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tpeterb.securechatclient.messages.config.LocalMessageStoreConfig;
+import com.tpeterb.securechatclient.messages.model.MessageDTO;
+import com.tpeterb.securechatclient.messages.storage.MediaFileStore;
+import com.tpeterb.securechatclient.security.cache.LocalStorageKeyCache;
+import com.tpeterb.securechatclient.security.model.EncryptionResult;
+import com.tpeterb.securechatclient.security.service.SymmetricCipherService;
+import com.tpeterb.securechatclient.users.session.UserSession;
+import com.tpeterb.securechatclient.utils.HashUtils;
+import com.tpeterb.securechatclient.utils.UuidUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Singleton
+public class LocalMessageStore {
+
+    private static final String LOCAL_MESSAGE_STORE_DIRECTORY_NAME = "message_logs";
+
+    private static final String LEGACY_LOCAL_MESSAGE_STORE_DIRECTORY_NAME = "messages";
+
+    private static final String LOCAL_MESSAGE_LOG_FILE_EXTENSION = ".log";
+
+    private static final String LOCAL_MESSAGE_INDEX_FILE_EXTENSION = ".idx";
+
+    private static final String COMPACTED_FILE_EXTENSION = ".compacted";
+
+    private static final String LOCAL_MESSAGE_STORE_KEY_POSTFIX = "_LOCAL_MESSAGE_STORE_KEY";
+
+    private static final String LOCAL_MESSAGE_FILE_NAME_KEY_POSTFIX = "_LOCAL_MESSAGE_FILE_NAME_KEY";
+
+    static final int RECORD_HEADER_SIZE_IN_BYTES = 2 * Integer.BYTES;
+
+    private static final int INDEX_BLOCK_HEADER_SIZE_IN_BYTES = 2 * Integer.BYTES;
+
+    private static final int INDEX_ENTRY_SIZE_IN_BYTES = 4 * Long.BYTES + 2 * Integer.BYTES;
+
+    private final List<PendingMessageWrite> pendingMessageWrites;
+
+    private final Map<File, LocalMessageLogIndex> localMessageLogIndices;
+
+    private final ScheduledExecutorService localMessageStoreExecutor;
+
+    private final File localMessageStoreDirectory;
+
+    private final SymmetricCipherService symmetricCipherService;
+
+    private final LocalStorageKeyCache localStorageKeyCache;
+
+    private final MediaFileStore mediaFileStore;
+
+    private final ObjectMapper objectMapper;
+
+    private final UserSession userSession;
+
+    private final LocalMessageStoreConfig localMessageStoreConfig;
+
+    private boolean flushScheduled;
+
+    @Inject
+    public LocalMessageStore(Context context,
+                             SymmetricCipherService symmetricCipherService,
+                             LocalStorageKeyCache localStorageKeyCache,
+                             MediaFileStore mediaFileStore,
+                             ObjectMapper objectMapper,
+                             UserSession userSession,
+                             LocalMessageStoreConfig localMessageStoreConfig) {
+        pendingMessageWrites = new ArrayList<>();
+        localMessageLogIndices = new HashMap<>();
+        localMessageStoreExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "local-message-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+        localMessageStoreDirectory = new File(context.getFilesDir(), LOCAL_MESSAGE_STORE_DIRECTORY_NAME);
+        this.symmetricCipherService = symmetricCipherService;
+        this.localStorageKeyCache = localStorageKeyCache;
+        this.mediaFileStore = mediaFileStore;
+        this.objectMapper = objectMapper;
+        this.userSession = userSession;
+        this.localMessageStoreConfig = localMessageStoreConfig;
+        File legacyLocalMessageStoreDirectory = new File(context.getFilesDir(), LEGACY_LOCAL_MESSAGE_STORE_DIRECTORY_NAME);
+        localMessageStoreExecutor.execute(() -> deleteLegacyLocalMessageStoreFile(legacyLocalMessageStoreDirectory));
+    }
+
+    public void appendMessage(String chatPartnerUsername, MessageDTO message) {
+        String ownerUsername = userSession.getUsername();
+        if (Objects.isNull(ownerUsername)) {
+            return;
+        }
+        synchronized (pendingMessageWrites) {
+            pendingMessageWrites.add(new PendingMessageWrite(ownerUsername, chatPartnerUsername, message));
+            if (pendingMessageWrites.size() >= localMessageStoreConfig.getMaxNumberOfPendingWritesBeforeFlush()) {
+                localMessageStoreExecutor.execute(this::flushPendingMessageWrites);
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                localMessageStoreExecutor.schedule(this::flushPendingMessageWrites, localMessageStoreConfig.getWriteBehindFlushDelayMs(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    public CompletableFuture<List<MessageDTO>> loadLatestMessages(String chatPartnerUsername, int maxNumberOfMessages) {
+        String ownerUsername = userSession.getUsername();
+        if (Objects.isNull(ownerUsername)) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            flushPendingMessageWrites();
+            return readLatestMessages(ownerUsername, chatPartnerUsername, maxNumberOfMessages);
+        }, localMessageStoreExecutor);
+    }
+
+    public CompletableFuture<List<MessageDTO>> loadMessagesBefore(String chatPartnerUsername, MessageDTO cursorMessage, int maxNumberOfMessages) {
+        String ownerUsername = userSession.getUsername();
+        if (Objects.isNull(ownerUsername) || Objects.isNull(cursorMessage)) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            flushPendingMessageWrites();
+            return readMessagesBefore(ownerUsername, chatPartnerUsername, cursorMessage, maxNumberOfMessages);
+        }, localMessageStoreExecutor);
+    }
+
+    private void flushPendingMessageWrites() {
+        List<PendingMessageWrite> messageWritesToFlush;
+        synchronized (pendingMessageWrites) {
+            flushScheduled = false;
+            if (pendingMessageWrites.isEmpty()) {
+                return;
+            }
+            messageWritesToFlush = new ArrayList<>(pendingMessageWrites);
+            pendingMessageWrites.clear();
+        }
+        Map<File, List<PendingMessageWrite>> messageWritesByLogFile = new LinkedHashMap<>();
+        for (PendingMessageWrite messageWrite : messageWritesToFlush) {
+            File logFile = getLocalMessageLogFile(messageWrite.getOwnerUsername(), messageWrite.getChatPartnerUsername());
+            messageWritesByLogFile.computeIfAbsent(logFile, file -> new ArrayList<>()).add(messageWrite);
+        }
+        for (Map.Entry<File, List<PendingMessageWrite>> logFileWrites : messageWritesByLogFile.entrySet()) {
+            appendMessagesToLogFile(logFileWrites.getKey(), logFileWrites.getValue());
+        }
+    }
+
+    private LocalMessageLogIndex getLocalMessageLogIndex(File logFile, byte[] localMessageStoreKey) throws IOException {
+        LocalMessageLogIndex localMessageLogIndex = localMessageLogIndices.get(logFile);
+        if (Objects.isNull(localMessageLogIndex)) {
+            localMessageLogIndex = loadLocalMessageLogIndex(logFile, localMessageStoreKey);
+            localMessageLogIndices.put(logFile, localMessageLogIndex);
+        }
+        return localMessageLogIndex;
+    }
+
+    private LocalMessageLogIndex loadLocalMessageLogIndex(File logFile, byte[] localMessageStoreKey) throws IOException {
+        File indexFile = getLocalMessageIndexFile(logFile);
+        LocalMessageLogIndex localMessageLogIndex = new LocalMessageLogIndex();
+        if (!logFile.isFile()) {
+            if (indexFile.isFile() && !indexFile.delete()) {
+                log.warn("Failed to delete stale local message index {}", indexFile);
+            }
+            return localMessageLogIndex;
+        }
+        boolean indexFileIsConsistent = readLocalMessageIndexFile(indexFile, logFile.length(), localMessageLogIndex, localMessageStoreKey);
+        boolean compactionNeeded;
+        int numberOfIndexedRecords = localMessageLogIndex.size();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(logFile, "rw")) {
+            compactionNeeded = indexLocalMessageLogTail(randomAccessFile, logFile, localMessageLogIndex, localMessageStoreKey);
+        }
+        if (compactionNeeded) {
+            return compactLocalMessageLog(logFile, localMessageLogIndex, localMessageStoreKey);
+        }
+        if (!indexFileIsConsistent || localMessageLogIndex.size() != numberOfIndexedRecords) {
+            writeLocalMessageIndexFile(indexFile, localMessageLogIndex.getRecordPositionsInOffsetOrder(), localMessageStoreKey);
+        }
+        return localMessageLogIndex;
+    }
+
+    private boolean readLocalMessageIndexFile(File indexFile, long logFileLength, LocalMessageLogIndex localMessageLogIndex, byte[] localMessageStoreKey) {
+        if (!indexFile.isFile()) {
+            return false;
+        }
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            long remainingIndexFileLength = indexFile.length();
+            while (remainingIndexFileLength > 0) {
+                int initializationVectorLength = inputStream.readInt();
+                int encryptedDataLength = inputStream.readInt();
+                long indexBlockLength = INDEX_BLOCK_HEADER_SIZE_IN_BYTES + (long) initializationVectorLength + encryptedDataLength;
+                if (initializationVectorLength < 0 || encryptedDataLength < 0 || indexBlockLength > remainingIndexFileLength) {
+                    return false;
+                }
+                byte[] initializationVector = new byte[initializationVectorLength];
+                byte[] encryptedData = new byte[encryptedDataLength];
+                inputStream.readFully(initializationVector);
+                inputStream.readFully(encryptedData);
+                byte[] indexEntries = symmetricCipherService.decryptData(encryptedData, localMessageStoreKey, initializationVector);
+                if (Objects.isNull(indexEntries) || indexEntries.length % INDEX_ENTRY_SIZE_IN_BYTES != 0) {
+                    return false;
+                }
+                ByteBuffer indexEntryBuffer = ByteBuffer.wrap(indexEntries);
+                while (indexEntryBuffer.hasRemaining()) {
+                    LocalMessageRecordPosition recordPosition = new LocalMessageRecordPosition(
+                            indexEntryBuffer.getLong(),
+                            indexEntryBuffer.getLong(),
+                            indexEntryBuffer.getLong(),
+                            indexEntryBuffer.getLong(),
+                            indexEntryBuffer.getInt(),
+                            indexEntryBuffer.getInt()
+                    );
+                    if (recordPosition.getOffset() != localMessageLogIndex.getIndexedLogLength()
+                            || LocalMessageLogIndex.getEndOffset(recordPosition) > logFileLength
+                            || localMessageLogIndex.containsMessage(recordPosition.getMessageIdHighBits(), recordPosition.getMessageIdLowBits())) {
+                        return false;
+                    }
+                    localMessageLogIndex.addRecordPosition(recordPosition);
+                }
+                remainingIndexFileLength -= indexBlockLength;
+            }
+            return true;
+        } catch (EOFException e) {
+            return false;
+        } catch (IOException e) {
+            log.warn("Failed to read local message index {}, it will be rebuilt, reason: {}", indexFile, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean indexLocalMessageLogTail(RandomAccessFile randomAccessFile, File logFile, LocalMessageLogIndex localMessageLogIndex, byte[] localMessageStoreKey) throws IOException {
+        boolean compactionNeeded = false;
+        long logFileLength = randomAccessFile.length();
+        long offset = localMessageLogIndex.getIndexedLogLength();
+        while (offset + RECORD_HEADER_SIZE_IN_BYTES <= logFileLength) {
+            randomAccessFile.seek(offset);
+            int initializationVectorLength = randomAccessFile.readInt();
+            int encryptedDataLength = randomAccessFile.readInt();
+            long recordLength = RECORD_HEADER_SIZE_IN_BYTES + (long) initializationVectorLength + encryptedDataLength;
+            if (initializationVectorLength < 0 || encryptedDataLength < 0 || offset + recordLength > logFileLength) {
+                break;
+            }
+            MessageDTO message = readLocalMessageRecord(randomAccessFile, offset, initializationVectorLength, encryptedDataLength, localMessageStoreKey);
+            if (Objects.isNull(message)) {
+                compactionNeeded = true;
+                localMessageLogIndex.skipLogBytes(offset + recordLength);
+            } else {
+                long[] messageIdBits = toMessageIdBits(message.getId());
+                LocalMessageRecordPosition recordPosition = new LocalMessageRecordPosition(messageIdBits[0], messageIdBits[1], toTimestampEpochMillis(message), offset, initializationVectorLength, encryptedDataLength);
+                compactionNeeded |= !localMessageLogIndex.addRecordPosition(recordPosition);
+            }
+            offset += recordLength;
+        }
+        if (offset < logFileLength) {
+            log.warn("Truncating torn tail of local message log {} at offset {}", logFile, offset);
+            randomAccessFile.setLength(offset);
+        }
+        return compactionNeeded;
+    }
+
+    private LocalMessageLogIndex compactLocalMessageLog(File logFile, LocalMessageLogIndex localMessageLogIndex, byte[] localMessageStoreKey) throws IOException {
+        File compactedLogFile = new File(logFile.getPath() + COMPACTED_FILE_EXTENSION);
+        LocalMessageLogIndex compactedLocalMessageLogIndex = new LocalMessageLogIndex();
+        List<LocalMessageRecordPosition> compactedRecordPositions = new ArrayList<>();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(logFile, "r");
+             DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compactedLogFile)))) {
+            for (LocalMessageRecordPosition recordPosition : localMessageLogIndex.getRecordPositionsInOffsetOrder()) {
+                byte[] record = new byte[(int) (LocalMessageLogIndex.getEndOffset(recordPosition) - recordPosition.getOffset())];
+                randomAccessFile.seek(recordPosition.getOffset());
+                randomAccessFile.readFully(record);
+                LocalMessageRecordPosition compactedRecordPosition = recordPosition.movedTo(outputStream.size());
+                outputStream.write(record);
+                compactedLocalMessageLogIndex.addRecordPosition(compactedRecordPosition);
+                compactedRecordPositions.add(compactedRecordPosition);
+            }
+        }
+        if (!compactedLogFile.renameTo(logFile)) {
+            compactedLogFile.delete();
+            throw new IOException("failed to replace local message log " + logFile + " with its compacted version");
+        }
+        writeLocalMessageIndexFile(getLocalMessageIndexFile(logFile), compactedRecordPositions, localMessageStoreKey);
+        log.info("Compacted local message log {} from {} to {} bytes", logFile, localMessageLogIndex.getIndexedLogLength(), compactedLocalMessageLogIndex.getIndexedLogLength());
+        return compactedLocalMessageLogIndex;
+    }
+
+    private void writeLocalMessageIndexFile(File indexFile, List<LocalMessageRecordPosition> recordPositions, byte[] localMessageStoreKey) throws IOException {
+        File compactedIndexFile = new File(indexFile.getPath() + COMPACTED_FILE_EXTENSION);
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compactedIndexFile)))) {
+            writeLocalMessageIndexBlock(outputStream, recordPositions, localMessageStoreKey);
+        }
+        if (!compactedIndexFile.renameTo(indexFile)) {
+            compactedIndexFile.delete();
+            throw new IOException("failed to replace local message index " + indexFile);
+        }
+    }
+
+    private void writeLocalMessageIndexBlock(DataOutputStream outputStream, List<LocalMessageRecordPosition> recordPositions, byte[] localMessageStoreKey) throws IOException {
+        if (recordPositions.isEmpty()) {
+            return;
+        }
+        ByteBuffer indexEntries = ByteBuffer.allocate(recordPositions.size() * INDEX_ENTRY_SIZE_IN_BYTES);
+        for (LocalMessageRecordPosition recordPosition : recordPositions) {
+            indexEntries.putLong(recordPosition.getMessageIdHighBits());
+            indexEntries.putLong(recordPosition.getMessageIdLowBits());
+            indexEntries.putLong(recordPosition.getTimestampEpochMillis());
+            indexEntries.putLong(recordPosition.getOffset());
+            indexEntries.putInt(recordPosition.getInitializationVectorLength());
+            indexEntries.putInt(recordPosition.getEncryptedDataLength());
+        }
+        EncryptionResult encryptionResult = symmetricCipherService.encryptData(indexEntries.array(), localMessageStoreKey);
+        if (Objects.isNull(encryptionResult)) {
+            throw new IOException("failed to encrypt local message index entries");
+        }
+        outputStream.writeInt(encryptionResult.getInitializationVector().length);
+        outputStream.writeInt(encryptionResult.getEncryptedData().length);
+        outputStream.write(encryptionResult.getInitializationVector());
+        outputStream.write(encryptionResult.getEncryptedData());
+    }
+
+    private void appendMessagesToLogFile(File logFile, List<PendingMessageWrite> messageWrites) {
+        File parentDirectory = logFile.getParentFile();
+        if (Objects.nonNull(parentDirectory) && !parentDirectory.isDirectory() && !parentDirectory.mkdirs()) {
+            log.error("Failed to create local message store directory {}", parentDirectory);
+            return;
+        }
+        byte[] localMessageStoreKey = getLocalMessageStoreKey(messageWrites.get(0).getOwnerUsername());
+        List<LocalMessageRecordPosition> appendedRecordPositions = new ArrayList<>();
+        try {
+            LocalMessageLogIndex localMessageLogIndex = getLocalMessageLogIndex(logFile, localMessageStoreKey);
+            long logFileLength = localMessageLogIndex.getIndexedLogLength();
+            try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(logFile, true)))) {
+                for (PendingMessageWrite messageWrite : messageWrites) {
+                    MessageDTO message = messageWrite.getMessage();
+                    long[] messageIdBits = toMessageIdBits(message.getId());
+                    if (localMessageLogIndex.containsMessage(messageIdBits[0], messageIdBits[1])) {
+                        continue;
+                    }
+                    EncryptionResult encryptionResult = encryptLocalMessageRecord(message, localMessageStoreKey);
+                    if (Objects.isNull(encryptionResult)) {
+                        continue;
+                    }
+                    LocalMessageRecordPosition recordPosition = new LocalMessageRecordPosition(
+                            messageIdBits[0],
+                            messageIdBits[1],
+                            toTimestampEpochMillis(message),
+                            logFileLength + outputStream.size(),
+                            encryptionResult.getInitializationVector().length,
+                            encryptionResult.getEncryptedData().length
+                    );
+                    outputStream.writeInt(encryptionResult.getInitializationVector().length);
+                    outputStream.writeInt(encryptionResult.getEncryptedData().length);
+                    outputStream.write(encryptionResult.getInitializationVector());
+                    outputStream.write(encryptionResult.getEncryptedData());
+                    localMessageLogIndex.addRecordPosition(recordPosition);
+                    appendedRecordPositions.add(recordPosition);
+                }
+            }
+            if (appendedRecordPositions.isEmpty()) {
+                return;
+            }
+            try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getLocalMessageIndexFile(logFile), true)))) {
+                writeLocalMessageIndexBlock(outputStream, appendedRecordPositions, localMessageStoreKey);
+            }
+        } catch (IOException e) {
+            localMessageLogIndices.remove(logFile);
+            log.error("Failed to append messages to local message log {}, reason: {}", logFile, e.getMessage());
+        }
+    }
+
+    private EncryptionResult encryptLocalMessageRecord(MessageDTO message, byte[] localMessageStoreKey) {
+        byte[] serializedMessage;
+        try {
+            serializedMessage = objectMapper.writeValueAsBytes(loadMediaFileContent(message));
+        } catch (IOException e) {
+            log.error("Failed to serialize message with id {} for the local message store, reason: {}", message.getId(), e.getMessage());
+            return null;
+        }
+        EncryptionResult encryptionResult = symmetricCipherService.encryptData(serializedMessage, localMessageStoreKey);
+        if (Objects.isNull(encryptionResult)) {
+            log.error("Failed to encrypt message with id {} for the local message store", message.getId());
+        }
+        return encryptionResult;
+    }
+
+    private MessageDTO loadMediaFileContent(MessageDTO message) throws IOException {
+        if (!message.hasContentFile()) {
+            return message;
+        }
+        return message.withBinaryContent(mediaFileStore.readMediaFile(message.getContentFile()));
+    }
+
+    private List<MessageDTO> readLatestMessages(String ownerUsername, String chatPartnerUsername, int maxNumberOfMessages) {
+        File logFile = getLocalMessageLogFile(ownerUsername, chatPartnerUsername);
+        if (!logFile.isFile() || maxNumberOfMessages <= 0) {
+            return List.of();
+        }
+        byte[] localMessageStoreKey = getLocalMessageStoreKey(ownerUsername);
+        try {
+            LocalMessageLogIndex localMessageLogIndex = getLocalMessageLogIndex(logFile, localMessageStoreKey);
+            return readLocalMessageRecords(logFile, localMessageLogIndex.getLatestRecordPositions(maxNumberOfMessages), localMessageStoreKey);
+        } catch (IOException e) {
+            localMessageLogIndices.remove(logFile);
+            log.error("Failed to read local message log {}, reason: {}", logFile, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private List<MessageDTO> readMessagesBefore(String ownerUsername, String chatPartnerUsername, MessageDTO cursorMessage, int maxNumberOfMessages) {
+        File logFile = getLocalMessageLogFile(ownerUsername, chatPartnerUsername);
+        if (!logFile.isFile() || maxNumberOfMessages <= 0) {
+            return List.of();
+        }
+        byte[] localMessageStoreKey = getLocalMessageStoreKey(ownerUsername);
+        long cursorTimestampEpochMillis = toTimestampEpochMillis(cursorMessage);
+        long[] cursorMessageIdBits = toMessageIdBits(cursorMessage.getId());
+        try {
+            LocalMessageLogIndex localMessageLogIndex = getLocalMessageLogIndex(logFile, localMessageStoreKey);
+            List<LocalMessageRecordPosition> recordPositions = localMessageLogIndex.getRecordPositionsBefore(cursorTimestampEpochMillis, cursorMessageIdBits[0], cursorMessageIdBits[1], maxNumberOfMessages);
+            return readLocalMessageRecords(logFile, recordPositions, localMessageStoreKey);
+        } catch (IOException e) {
+            localMessageLogIndices.remove(logFile);
+            log.error("Failed to read local message log {}, reason: {}", logFile, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private List<MessageDTO> readLocalMessageRecords(File logFile, List<LocalMessageRecordPosition> recordPositions, byte[] localMessageStoreKey) throws IOException {
+        List<MessageDTO> messages = new ArrayList<>(recordPositions.size());
+        if (recordPositions.isEmpty()) {
+            return messages;
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(logFile, "r")) {
+            for (LocalMessageRecordPosition recordPosition : recordPositions) {
+                MessageDTO message = readLocalMessageRecord(randomAccessFile, recordPosition.getOffset(), recordPosition.getInitializationVectorLength(), recordPosition.getEncryptedDataLength(), localMessageStoreKey);
+                if (Objects.nonNull(message)) {
+                    messages.add(message);
+                }
+            }
+        }
+        return messages;
+    }
+
+    private MessageDTO readLocalMessageRecord(RandomAccessFile randomAccessFile, long offset, int initializationVectorLength, int encryptedDataLength, byte[] localMessageStoreKey) throws IOException {
+        byte[] initializationVector = new byte[initializationVectorLength];
+        byte[] encryptedData = new byte[encryptedDataLength];
+        randomAccessFile.seek(offset + RECORD_HEADER_SIZE_IN_BYTES);
+        randomAccessFile.readFully(initializationVector);
+        randomAccessFile.readFully(encryptedData);
+        byte[] serializedMessage = symmetricCipherService.decryptData(encryptedData, localMessageStoreKey, initializationVector);
+        if (Objects.isNull(serializedMessage)) {
+            log.error("Failed to decrypt local message record at offset {}", offset);
+            return null;
+        }
+        try {
+            return objectMapper.readValue(serializedMessage, MessageDTO.class);
+        } catch (IOException e) {
+            log.error("Failed to deserialize local message record at offset {}, reason: {}", offset, e.getMessage());
+            return null;
+        }
+    }
+
+    private byte[] getLocalMessageStoreKey(String ownerUsername) {
+        return localStorageKeyCache.getLocalStorageKey(ownerUsername, LOCAL_MESSAGE_STORE_KEY_POSTFIX);
+    }
+
+    private File getLocalMessageLogFile(String ownerUsername, String chatPartnerUsername) {
+        byte[] localMessageFileNameKey = localStorageKeyCache.getLocalStorageKey(ownerUsername, LOCAL_MESSAGE_FILE_NAME_KEY_POSTFIX);
+        File ownerDirectory = new File(localMessageStoreDirectory, HashUtils.hmacSha256Hex(localMessageFileNameKey, ownerUsername));
+        return new File(ownerDirectory, HashUtils.hmacSha256Hex(localMessageFileNameKey, chatPartnerUsername) + LOCAL_MESSAGE_LOG_FILE_EXTENSION);
+    }
+
+    private File getLocalMessageIndexFile(File logFile) {
+        String logFileName = logFile.getName();
+        String indexFileName = logFileName.substring(0, logFileName.length() - LOCAL_MESSAGE_LOG_FILE_EXTENSION.length()) + LOCAL_MESSAGE_INDEX_FILE_EXTENSION;
+        return new File(logFile.getParentFile(), indexFileName);
+    }
+
+    private void deleteLegacyLocalMessageStoreFile(File legacyFile) {
+        File[] childFiles = legacyFile.listFiles();
+        if (Objects.nonNull(childFiles)) {
+            for (File childFile : childFiles) {
+                deleteLegacyLocalMessageStoreFile(childFile);
+            }
+        }
+        if (legacyFile.exists() && !legacyFile.delete()) {
+            log.warn("Failed to delete legacy local message store file {}", legacyFile);
+        }
+    }
+
+    private static long toTimestampEpochMillis(MessageDTO message) {
+        return Objects.nonNull(message.getTimestamp()) ? message.getTimestamp().toEpochMilli() : 0L;
+    }
+
+    private static long[] toMessageIdBits(String messageId) {
+        if (UuidUtils.isCanonicalUuid(messageId)) {
+            return new long[] {UuidUtils.mostSignificantBits(messageId), UuidUtils.leastSignificantBits(messageId)};
+        }
+        ByteBuffer messageIdHash = ByteBuffer.wrap(HashUtils.sha256(String.valueOf(messageId)));
+        return new long[] {messageIdHash.getLong(), messageIdHash.getLong()};
+    }
+
+    @Value
+    private static class PendingMessageWrite {
+
+        String ownerUsername;
+
+        String chatPartnerUsername;
+
+        MessageDTO message;
+
+    }
+
+}
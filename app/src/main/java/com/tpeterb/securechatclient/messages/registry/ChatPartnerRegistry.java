@@ -1,12 +1,18 @@
 package com.tpeterb.securechatclient.messages.registry;
 
+import com.tpeterb.securechatclient.messages.model.MessageContentType;
+import com.tpeterb.securechatclient.messages.model.MessageDTO;
 import com.tpeterb.securechatclient.users.model.ChatPartner;
+import com.tpeterb.securechatclient.users.model.ChatPartnerSummary;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.Objects;
 import java.util.TreeSet;
 
 import javax.inject.Inject;
@@ -18,37 +24,84 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class ChatPartnerRegistry {
 
-    private final Set<ChatPartner> chatPartnerRegistry;
+    private static final int MAX_LAST_MESSAGE_PREVIEW_LENGTH = 80;
+
+    private static final Comparator<ChatPartnerSummary> RECENCY_ORDER = Comparator
+            .comparing(ChatPartnerSummary::getLastMessageTimestamp, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(ChatPartnerSummary::getChatPartnerUsername);
+
+    private final Map<String, ChatPartnerSummary> chatPartnerSummaries;
+
+    private final TreeSet<ChatPartnerSummary> chatPartnerRegistry;
+
+    private List<ChatPartnerSummary> snapshot;
 
     private volatile boolean isInitialFetchDone;
 
     @Inject
     public ChatPartnerRegistry() {
-        chatPartnerRegistry = new TreeSet<>(Comparator.comparing(ChatPartner::getUsername));
+        chatPartnerSummaries = new HashMap<>();
+        chatPartnerRegistry = new TreeSet<>(RECENCY_ORDER);
+        snapshot = Collections.emptyList();
         isInitialFetchDone = false;
     }
 
     public synchronized void clearChatPartnerRegistry() {
+        chatPartnerSummaries.clear();
         chatPartnerRegistry.clear();
+        snapshot = Collections.emptyList();
         isInitialFetchDone = false;
     }
 
     public synchronized void addChatPartnerToRegistry(ChatPartner chatPartner) {
-        chatPartnerRegistry.add(chatPartner);
+        if (!chatPartnerSummaries.containsKey(chatPartner.getUsername())) {
+            replaceChatPartnerSummary(ChatPartnerSummary.builder()
+                    .chatPartnerUsername(chatPartner.getUsername())
+                    .build());
+        }
     }
 
-    public synchronized void replaceChatPartners(List<ChatPartner> chatPartners) {
-        chatPartnerRegistry.clear();
-        chatPartnerRegistry.addAll(chatPartners);
+    public synchronized void addAllChatPartners(Collection<ChatPartner> chatPartners) {
+        for (ChatPartner chatPartner : chatPartners) {
+            addChatPartnerToRegistry(chatPartner);
+        }
     }
 
-    public synchronized void addAllChatPartners(Collection<ChatPartner> chatPartners) {
-        chatPartnerRegistry.addAll(chatPartners);
+    public synchronized void recordMessage(String chatPartnerUsername, MessageDTO message, boolean unread) {
+        ChatPartnerSummary chatPartnerSummary = chatPartnerSummaries.get(chatPartnerUsername);
+        if (Objects.isNull(chatPartnerSummary)) {
+            chatPartnerSummary = ChatPartnerSummary.builder()
+                    .chatPartnerUsername(chatPartnerUsername)
+                    .build();
+        }
+        ChatPartnerSummary.ChatPartnerSummaryBuilder updatedChatPartnerSummary = chatPartnerSummary.toBuilder();
+        if (unread) {
+            updatedChatPartnerSummary.unreadMessageCount(chatPartnerSummary.getUnreadMessageCount() + 1);
+        }
+        if (Objects.isNull(chatPartnerSummary.getLastMessageTimestamp())
+                || (Objects.nonNull(message.getTimestamp()) && !message.getTimestamp().isBefore(chatPartnerSummary.getLastMessageTimestamp()))) {
+            updatedChatPartnerSummary
+                    .lastMessagePreview(createLastMessagePreview(message))
+                    .lastMessageContentType(message.getMessageContentType())
+                    .lastMessageTimestamp(message.getTimestamp());
+        }
+        replaceChatPartnerSummary(updatedChatPartnerSummary.build());
     }
 
-    public Set<ChatPartner> getChatPartnerRegistry() {
-        log.info("Chat partner registry = {}", chatPartnerRegistry);
-        return Collections.synchronizedSet(chatPartnerRegistry);
+    public synchronized void markConversationAsRead(String chatPartnerUsername) {
+        ChatPartnerSummary chatPartnerSummary = chatPartnerSummaries.get(chatPartnerUsername);
+        if (Objects.nonNull(chatPartnerSummary) && chatPartnerSummary.getUnreadMessageCount() > 0) {
+            replaceChatPartnerSummary(chatPartnerSummary.toBuilder()
+                    .unreadMessageCount(0)
+                    .build());
+        }
+    }
+
+    public synchronized List<ChatPartnerSummary> getChatPartnerSummaries() {
+        if (Objects.isNull(snapshot)) {
+            snapshot = Collections.unmodifiableList(new ArrayList<>(chatPartnerRegistry));
+        }
+        return snapshot;
     }
 
     public synchronized void setInitialFetchDone(boolean initialFetchDone) {
@@ -59,8 +112,29 @@ public class ChatPartnerRegistry {
         return isInitialFetchDone;
     }
 
+    private void replaceChatPartnerSummary(ChatPartnerSummary chatPartnerSummary) {
+        ChatPartnerSummary previousChatPartnerSummary = chatPartnerSummaries.put(chatPartnerSummary.getChatPartnerUsername(), chatPartnerSummary);
+        if (Objects.nonNull(previousChatPartnerSummary)) {
+            chatPartnerRegistry.remove(previousChatPartnerSummary);
+        }
+        chatPartnerRegistry.add(chatPartnerSummary);
+        snapshot = null;
+    }
+
+    private static String createLastMessagePreview(MessageDTO message) {
+        if (message.getMessageContentType() != MessageContentType.TEXT || Objects.isNull(message.getContent())) {
+            return null;
+        }
+        String content = message.getContent().trim();
+        if (content.length() <= MAX_LAST_MESSAGE_PREVIEW_LENGTH) {
+            return content;
+        }
+        int previewLength = Character.isHighSurrogate(content.charAt(MAX_LAST_MESSAGE_PREVIEW_LENGTH - 1)) ? MAX_LAST_MESSAGE_PREVIEW_LENGTH - 1 : MAX_LAST_MESSAGE_PREVIEW_LENGTH;
+        return content.substring(0, previewLength);
+    }
+
     @Override
-    public String toString() {
+    public synchronized String toString() {
         return "chatPartnerRegistry = " + chatPartnerRegistry +
                 "\nisInitialFetchDone = " + isInitialFetchDone;
     }
@@ -0,0 +1,170 @@
+package com.tpeterb.securechatclient.messages.registry;
+
+import com.tpeterb.securechatclient.messages.model.MessageDTO;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Value;
+
+public class ConversationMessageStore {
+
+    private static final int MESSAGE_OVERHEAD_IN_BYTES = 256;
+
+    private final TreeMap<MessageOrderKey, MessageDTO> messages;
+
+    private final Set<String> messageIds;
+
+    private final Set<String> residentMessageIds;
+
+    private final AtomicLong totalResidentBytes;
+
+    private List<MessageDTO> snapshot;
+
+    private long residentBytes;
+
+    private boolean detached;
+
+    private volatile long lastAccessTimeNanos;
+
+    public ConversationMessageStore(AtomicLong totalResidentBytes, Set<String> knownMessageIds) {
+        this.totalResidentBytes = totalResidentBytes;
+        messages = new TreeMap<>();
+        messageIds = new HashSet<>(knownMessageIds);
+        residentMessageIds = new HashSet<>();
+        snapshot = Collections.emptyList();
+        residentBytes = 0;
+        detached = false;
+        lastAccessTimeNanos = System.nanoTime();
+    }
+
+    public synchronized int size() {
+        return messages.size();
+    }
+
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public long getLastAccessTimeNanos() {
+        return lastAccessTimeNanos;
+    }
+
+    public synchronized boolean containsMessage(String messageId) {
+        return messageIds.contains(messageId);
+    }
+
+    public synchronized Set<String> getMessageIds() {
+        return new HashSet<>(messageIds);
+    }
+
+    public synchronized boolean containsResidentMessage(String messageId) {
+        return residentMessageIds.contains(messageId);
+    }
+
+    public synchronized MessageDTO getOldestMessage() {
+        return messages.isEmpty() ? null : messages.firstEntry().getValue();
+    }
+
+    public synchronized MessageDTO getNewestMessage() {
+        return messages.isEmpty() ? null : messages.lastEntry().getValue();
+    }
+
+    public synchronized boolean addMessage(MessageDTO message) {
+        if (!residentMessageIds.add(message.getId())) {
+            return false;
+        }
+        messages.put(MessageOrderKey.of(message), message);
+        updateResidentBytes(estimateResidentBytes(message));
+        snapshot = null;
+        lastAccessTimeNanos = System.nanoTime();
+        return messageIds.add(message.getId());
+    }
+
+    public synchronized List<MessageDTO> addMessages(Collection<MessageDTO> messagesToAdd) {
+        List<MessageDTO> addedMessages = new ArrayList<>();
+        for (MessageDTO message : messagesToAdd) {
+            if (addMessage(message)) {
+                addedMessages.add(message);
+            }
+        }
+        return addedMessages;
+    }
+
+    public synchronized int trimOldestMessages(int maxResidentMessages, long maxResidentBytes) {
+        int numberOfEvictedMessages = 0;
+        while (!messages.isEmpty() && (messages.size() > maxResidentMessages || residentBytes > maxResidentBytes)) {
+            MessageDTO evictedMessage = messages.pollFirstEntry().getValue();
+            residentMessageIds.remove(evictedMessage.getId());
+            updateResidentBytes(-estimateResidentBytes(evictedMessage));
+            numberOfEvictedMessages++;
+        }
+        if (numberOfEvictedMessages > 0) {
+            snapshot = null;
+        }
+        return numberOfEvictedMessages;
+    }
+
+    public synchronized List<MessageDTO> getSnapshot() {
+        lastAccessTimeNanos = System.nanoTime();
+        if (Objects.isNull(snapshot)) {
+            snapshot = Collections.unmodifiableList(new ArrayList<>(messages.values()));
+        }
+        return snapshot;
+    }
+
+    public synchronized void detach() {
+        if (!detached) {
+            totalResidentBytes.addAndGet(-residentBytes);
+            detached = true;
+        }
+    }
+
+    private void updateResidentBytes(long residentBytesDelta) {
+        residentBytes += residentBytesDelta;
+        if (!detached) {
+            totalResidentBytes.addAndGet(residentBytesDelta);
+        }
+    }
+
+    private static long estimateResidentBytes(MessageDTO message) {
+        return MESSAGE_OVERHEAD_IN_BYTES + message.getContentSizeInBytes();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return messages.values().toString();
+    }
+
+    @Value
+    private static class MessageOrderKey implements Comparable<MessageOrderKey> {
+
+        private static final Comparator<MessageOrderKey> ORDER = Comparator
+                .comparing(MessageOrderKey::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(MessageOrderKey::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+        Instant timestamp;
+
+        String id;
+
+        static MessageOrderKey of(MessageDTO message) {
+            return new MessageOrderKey(message.getTimestamp(), message.getId());
+        }
+
+        @Override
+        public int compareTo(MessageOrderKey other) {
+            return ORDER.compare(this, other);
+        }
+
+    }
+
+}
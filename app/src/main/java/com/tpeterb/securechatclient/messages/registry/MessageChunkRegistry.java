@@ -1,20 +1,31 @@
 package com.tpeterb.securechatclient.messages.registry;
 
+import com.tpeterb.securechatclient.messages.config.MessageChunkConfig;
 import com.tpeterb.securechatclient.messages.model.MessageChunkChangeObserver;
 import com.tpeterb.securechatclient.messages.model.MessageChunkChangeSubject;
-import com.tpeterb.securechatclient.messages.model.MessageChunkDTO;
+import com.tpeterb.securechatclient.messages.model.MessageReassemblyBuffer;
+import com.tpeterb.securechatclient.messages.storage.ReassemblyStorage;
+import com.tpeterb.securechatclient.messages.storage.ReassemblyStorageFactory;
 import com.tpeterb.securechatclient.security.model.EncryptedReceivedMessageChunkDTO;
+import com.tpeterb.securechatclient.security.service.SymmetricCipherService;
+import com.tpeterb.securechatclient.utils.HashedTimerWheel;
+import com.tpeterb.securechatclient.utils.MessageChunkAssociatedDataUtils;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -25,47 +36,113 @@ import lombok.extern.slf4j.Slf4j;
 @Singleton
 public class MessageChunkRegistry implements MessageChunkChangeSubject {
 
-    private final ScheduledExecutorService scheduledExecutorService;
+    private final SymmetricCipherService symmetricCipherService;
+
+    private final ReassemblyStorageFactory reassemblyStorageFactory;
+
+    private final HashedTimerWheel reassemblyExpiryTimer;
 
     private final List<MessageChunkChangeObserver> observers;
 
-    private final ConcurrentHashMap<String, TreeSet<EncryptedReceivedMessageChunkDTO>> messageChunkRegistry;
+    private final ConcurrentHashMap<String, MessageReassemblyBuffer> messageChunkRegistry;
 
     private final int maxWaitMsForAllChunksToArriveForAMessage;
 
+    private final int missingChunkRequestIntervalMs;
+
+    private final Map<String, List<EncryptedReceivedMessageChunkDTO>> parkedMessageChunks;
+
+    private final int maxNumberOfParkedMessageChunks;
+
+    private volatile int numberOfParkedMessageChunks;
+
+    private final LinkedHashMap<String, MessageReassemblyBuffer> inFlightReassemblyBuffers;
+
+    private final Map<String, Long> inFlightReassemblyBytesPerSender;
+
+    private final int maxFullMessageSizeInBytes;
+
+    private final long inFlightReassemblyBudgetInBytes;
+
+    private final long perSenderInFlightReassemblyBudgetInBytes;
+
+    private long inFlightReassemblyBytes;
+
+    private final ThreadLocal<byte[]> messageChunkDecryptionBuffer;
+
+    private final Set<String> recentlyCompletedMessageIds;
+
+    private final Deque<String> recentlyCompletedMessageIdsInCompletionOrder;
+
+    private final int maxNumberOfRecentlyCompletedMessageIds;
+
     @Inject
-    public MessageChunkRegistry() {
-        scheduledExecutorService = Executors.newScheduledThreadPool(10);
+    public MessageChunkRegistry(SymmetricCipherService symmetricCipherService,
+                                ReassemblyStorageFactory reassemblyStorageFactory,
+                                MessageChunkConfig messageChunkConfig) {
+        this.symmetricCipherService = symmetricCipherService;
+        this.reassemblyStorageFactory = reassemblyStorageFactory;
+        reassemblyExpiryTimer = new HashedTimerWheel(
+                "message-reassembly-expiry",
+                messageChunkConfig.getReassemblyTimerTickMs(),
+                messageChunkConfig.getReassemblyTimerWheelSize()
+        );
         messageChunkRegistry = new ConcurrentHashMap<>();
-        this.observers = new ArrayList<>();
-        maxWaitMsForAllChunksToArriveForAMessage = 60000;
+        this.observers = new CopyOnWriteArrayList<>();
+        maxWaitMsForAllChunksToArriveForAMessage = messageChunkConfig.getReassemblyTimeoutMs();
+        missingChunkRequestIntervalMs = messageChunkConfig.getMissingChunkRequestIntervalMs();
+        inFlightReassemblyBuffers = new LinkedHashMap<>();
+        inFlightReassemblyBytesPerSender = new HashMap<>();
+        maxFullMessageSizeInBytes = messageChunkConfig.getMaxFullMessageSizeInBytes();
+        inFlightReassemblyBudgetInBytes = messageChunkConfig.getInFlightReassemblyBudgetInBytes();
+        perSenderInFlightReassemblyBudgetInBytes = messageChunkConfig.getPerSenderInFlightReassemblyBudgetInBytes();
+        inFlightReassemblyBytes = 0;
+        parkedMessageChunks = new HashMap<>();
+        maxNumberOfParkedMessageChunks = messageChunkConfig.getMaxNumberOfParkedMessageChunks();
+        numberOfParkedMessageChunks = 0;
+        messageChunkDecryptionBuffer = ThreadLocal.withInitial(() -> new byte[0]);
+        recentlyCompletedMessageIds = new HashSet<>();
+        recentlyCompletedMessageIdsInCompletionOrder = new ArrayDeque<>();
+        maxNumberOfRecentlyCompletedMessageIds = messageChunkConfig.getMaxNumberOfRecentlyCompletedMessageIds();
     }
 
-    public synchronized int getNumberOfReceivedMessageChunksForMessage(String fullMessageId) {
-        return messageChunkRegistry.get(fullMessageId).size();
+    public int getNumberOfReceivedMessageChunksForMessage(String fullMessageId) {
+        MessageReassemblyBuffer reassemblyBuffer = messageChunkRegistry.get(fullMessageId);
+        if (Objects.isNull(reassemblyBuffer)) {
+            return 0;
+        }
+        synchronized (reassemblyBuffer) {
+            return reassemblyBuffer.getNumberOfReceivedChunks();
+        }
     }
 
-    public synchronized void addMessageChunk(EncryptedReceivedMessageChunkDTO messageChunkDTO) {
+    public void addMessageChunk(EncryptedReceivedMessageChunkDTO messageChunkDTO) {
         String fullMessageId = messageChunkDTO.getFullMessageId();
-        if (Objects.isNull(messageChunkRegistry.get(fullMessageId))) {
-            messageChunkRegistry.put(fullMessageId, new TreeSet<>(Comparator.comparingInt(EncryptedReceivedMessageChunkDTO::getSerialNumberWithinFullMessage)));
-            scheduledExecutorService.schedule(() -> {
-                if (Objects.nonNull(messageChunkRegistry.get(fullMessageId)) && messageChunkRegistry.get(fullMessageId).size() != messageChunkDTO.getNumberOfChunksOfFullMessage()) {
-                    log.error("All message chunks haven't been received for message with id {} in {} milliseconds from the arrival of the first message chunk, deleting the arrived chunks from the registry!",
-                            fullMessageId, maxWaitMsForAllChunksToArriveForAMessage);
-                    messageChunkRegistry.remove(fullMessageId);
-                }
-            }, maxWaitMsForAllChunksToArriveForAMessage, TimeUnit.MILLISECONDS);
-        }
-        TreeSet<EncryptedReceivedMessageChunkDTO> messageChunks = messageChunkRegistry.get(fullMessageId);
-        messageChunks.add(messageChunkDTO);
-        if (messageChunks.size() == messageChunkDTO.getNumberOfChunksOfFullMessage()) {
-            notifyObservers(messageChunks);
+        MessageReassemblyBuffer reassemblyBuffer = messageChunkRegistry.get(fullMessageId);
+        if (Objects.isNull(reassemblyBuffer)) {
+            if (!messageChunkDTO.hasFullMessageMetadata()) {
+                parkMessageChunk(messageChunkDTO);
+                return;
+            }
+            reassemblyBuffer = admitPartialMessage(messageChunkDTO);
+            if (Objects.isNull(reassemblyBuffer)) {
+                return;
+            }
+            writeMessageChunk(reassemblyBuffer, messageChunkDTO);
+            for (EncryptedReceivedMessageChunkDTO parkedMessageChunk : takeParkedMessageChunks(fullMessageId)) {
+                writeMessageChunk(reassemblyBuffer, parkedMessageChunk);
+            }
+            return;
         }
+        writeMessageChunk(reassemblyBuffer, messageChunkDTO);
     }
 
     public void removeAllMessageChunksForMessage(String messageId) {
-        messageChunkRegistry.remove(messageId);
+        MessageReassemblyBuffer reassemblyBuffer = messageChunkRegistry.remove(messageId);
+        if (Objects.nonNull(reassemblyBuffer)) {
+            releaseReassemblyBudget(reassemblyBuffer);
+            reassemblyBuffer.release();
+        }
     }
 
     @Override
@@ -78,10 +155,276 @@ public class MessageChunkRegistry implements MessageChunkChangeSubject {
         observers.remove(messageChunkChangeObserver);
     }
 
-    public void notifyObservers(TreeSet<EncryptedReceivedMessageChunkDTO> fullyReceivedMessageChunks) {
+    @Override
+    public void notifyObserversAboutReceivedChunk(MessageReassemblyBuffer partiallyReceivedMessage, int serialNumberWithinFullMessage) {
+        for (MessageChunkChangeObserver observer : observers) {
+            observer.handleMessageChunkReceivedEvent(partiallyReceivedMessage, serialNumberWithinFullMessage);
+        }
+    }
+
+    public void notifyObservers(MessageReassemblyBuffer fullyReceivedMessage) {
+        for (MessageChunkChangeObserver observer : observers) {
+            observer.handleAllMessageChunksReceivedEvent(fullyReceivedMessage);
+        }
+    }
+
+    @Override
+    public void notifyObserversAboutMissingChunks(MessageReassemblyBuffer partiallyReceivedMessage, List<Integer> missingSerialNumbers) {
         for (MessageChunkChangeObserver observer : observers) {
-            observer.handleAllMessageChunksReceivedEvent(fullyReceivedMessageChunks);
+            observer.handleMissingMessageChunksEvent(partiallyReceivedMessage, missingSerialNumbers);
+        }
+    }
+
+    private void writeMessageChunk(MessageReassemblyBuffer reassemblyBuffer, EncryptedReceivedMessageChunkDTO messageChunkDTO) {
+        String fullMessageId = reassemblyBuffer.getFullMessageId();
+        int serialNumberWithinFullMessage = messageChunkDTO.getSerialNumberWithinFullMessage();
+        byte[] messageChunkContent;
+        int messageChunkContentLength;
+        if (messageChunkDTO.isChunkEncryptedIndependently()) {
+            messageChunkContent = getMessageChunkDecryptionBuffer(messageChunkDTO.getContent().length);
+            messageChunkContentLength = decryptMessageChunkContent(messageChunkDTO, reassemblyBuffer.getFullMessageContentEncryptionKey(), messageChunkContent);
+            if (messageChunkContentLength < 0) {
+                return;
+            }
+        } else {
+            messageChunkContent = messageChunkDTO.getContent();
+            messageChunkContentLength = messageChunkContent.length;
+        }
+        boolean isMessageComplete;
+        synchronized (reassemblyBuffer) {
+            if (reassemblyBuffer.hasReceivedMessageChunk(serialNumberWithinFullMessage)) {
+                log.info("Discarding duplicate chunk {} of message with id {}", serialNumberWithinFullMessage, fullMessageId);
+                isMessageComplete = false;
+            } else if (reassemblyBuffer.writeMessageChunk(serialNumberWithinFullMessage, messageChunkDTO.getOffsetWithinFullMessageInBytes(), messageChunkContent, messageChunkContentLength)) {
+                isMessageComplete = reassemblyBuffer.isComplete();
+            } else {
+                log.warn("Discarding malformed chunk {} of message with id {}", serialNumberWithinFullMessage, fullMessageId);
+                return;
+            }
+        }
+        notifyObserversAboutReceivedChunk(reassemblyBuffer, serialNumberWithinFullMessage);
+        if (isMessageComplete) {
+            reassemblyBuffer.cancelExpiry();
+            rememberCompletedMessage(fullMessageId);
+            notifyObservers(reassemblyBuffer);
+        }
+    }
+
+    private void parkMessageChunk(EncryptedReceivedMessageChunkDTO messageChunkDTO) {
+        String fullMessageId = messageChunkDTO.getFullMessageId();
+        synchronized (this) {
+            if (recentlyCompletedMessageIds.contains(fullMessageId)) {
+                log.info("Discarding late chunk {} of already completed message with id {}", messageChunkDTO.getSerialNumberWithinFullMessage(), fullMessageId);
+                return;
+            }
+            if (!messageChunkRegistry.containsKey(fullMessageId)) {
+                if (numberOfParkedMessageChunks >= maxNumberOfParkedMessageChunks) {
+                    log.warn("Too many chunks are waiting for their first chunk, discarding chunk {} of message with id {}", messageChunkDTO.getSerialNumberWithinFullMessage(), fullMessageId);
+                    return;
+                }
+                List<EncryptedReceivedMessageChunkDTO> parkedMessageChunksOfMessage = parkedMessageChunks.get(fullMessageId);
+                if (Objects.isNull(parkedMessageChunksOfMessage)) {
+                    parkedMessageChunksOfMessage = new ArrayList<>();
+                    parkedMessageChunks.put(fullMessageId, parkedMessageChunksOfMessage);
+                    reassemblyExpiryTimer.schedule(() -> discardParkedMessageChunks(fullMessageId), maxWaitMsForAllChunksToArriveForAMessage);
+                }
+                parkedMessageChunksOfMessage.add(messageChunkDTO);
+                numberOfParkedMessageChunks++;
+                return;
+            }
+        }
+        addMessageChunk(messageChunkDTO);
+    }
+
+    private List<EncryptedReceivedMessageChunkDTO> takeParkedMessageChunks(String fullMessageId) {
+        if (numberOfParkedMessageChunks == 0) {
+            return Collections.emptyList();
+        }
+        synchronized (this) {
+            List<EncryptedReceivedMessageChunkDTO> parkedMessageChunksOfMessage = parkedMessageChunks.remove(fullMessageId);
+            if (Objects.isNull(parkedMessageChunksOfMessage)) {
+                return Collections.emptyList();
+            }
+            numberOfParkedMessageChunks -= parkedMessageChunksOfMessage.size();
+            return parkedMessageChunksOfMessage;
+        }
+    }
+
+    private void discardParkedMessageChunks(String fullMessageId) {
+        List<EncryptedReceivedMessageChunkDTO> discardedMessageChunks = takeParkedMessageChunks(fullMessageId);
+        if (!discardedMessageChunks.isEmpty()) {
+            log.error("The first chunk of message with id {} never arrived, discarding {} chunks waiting for it", fullMessageId, discardedMessageChunks.size());
+        }
+    }
+
+    private synchronized MessageReassemblyBuffer admitPartialMessage(EncryptedReceivedMessageChunkDTO firstArrivedMessageChunk) {
+        String fullMessageId = firstArrivedMessageChunk.getFullMessageId();
+        MessageReassemblyBuffer existingReassemblyBuffer = messageChunkRegistry.get(fullMessageId);
+        if (Objects.nonNull(existingReassemblyBuffer)) {
+            return existingReassemblyBuffer;
+        }
+        if (recentlyCompletedMessageIds.contains(fullMessageId)) {
+            log.info("Discarding late first chunk of already completed message with id {}", fullMessageId);
+            return null;
+        }
+        int sizeOfFullMessageInBytes = firstArrivedMessageChunk.getSizeOfFullMessageInBytes();
+        int numberOfChunks = firstArrivedMessageChunk.getNumberOfChunksOfFullMessage();
+        if (sizeOfFullMessageInBytes <= 0 || sizeOfFullMessageInBytes > maxFullMessageSizeInBytes || numberOfChunks <= 0 || numberOfChunks > sizeOfFullMessageInBytes) {
+            log.error("Refusing to reassemble message with id {}, declared size of {} bytes in {} chunks is not acceptable", fullMessageId, sizeOfFullMessageInBytes, numberOfChunks);
+            return null;
+        }
+        String sender = firstArrivedMessageChunk.getSender();
+        while (getInFlightReassemblyBytesForSender(sender) + sizeOfFullMessageInBytes > perSenderInFlightReassemblyBudgetInBytes) {
+            if (!evictOldestPartialMessage(sender)) {
+                log.warn("Reassembly budget of sender {} is held by completed messages, rejecting message with id {}", sender, fullMessageId);
+                return null;
+            }
+        }
+        while (inFlightReassemblyBytes + sizeOfFullMessageInBytes > inFlightReassemblyBudgetInBytes) {
+            if (!evictOldestPartialMessage(null)) {
+                log.warn("Reassembly budget is held by completed messages, rejecting message with id {}", fullMessageId);
+                return null;
+            }
+        }
+        ReassemblyStorage reassemblyStorage;
+        try {
+            reassemblyStorage = reassemblyStorageFactory.createReassemblyStorage(sizeOfFullMessageInBytes);
+        } catch (IOException e) {
+            log.error("Failed to allocate reassembly storage for message with id {}, reason: {}", fullMessageId, e.getMessage());
+            return null;
+        }
+        MessageReassemblyBuffer reassemblyBuffer = createReassemblyBuffer(firstArrivedMessageChunk, reassemblyStorage);
+        messageChunkRegistry.put(fullMessageId, reassemblyBuffer);
+        inFlightReassemblyBuffers.put(fullMessageId, reassemblyBuffer);
+        inFlightReassemblyBytesPerSender.merge(sender, (long) sizeOfFullMessageInBytes, Long::sum);
+        inFlightReassemblyBytes += sizeOfFullMessageInBytes;
+        return reassemblyBuffer;
+    }
+
+    private synchronized void rememberCompletedMessage(String fullMessageId) {
+        if (!recentlyCompletedMessageIds.add(fullMessageId)) {
+            return;
+        }
+        recentlyCompletedMessageIdsInCompletionOrder.addLast(fullMessageId);
+        if (recentlyCompletedMessageIdsInCompletionOrder.size() > maxNumberOfRecentlyCompletedMessageIds) {
+            recentlyCompletedMessageIds.remove(recentlyCompletedMessageIdsInCompletionOrder.pollFirst());
+        }
+    }
+
+    private long getInFlightReassemblyBytesForSender(String sender) {
+        return inFlightReassemblyBytesPerSender.getOrDefault(sender, 0L);
+    }
+
+    private boolean evictOldestPartialMessage(String sender) {
+        Iterator<MessageReassemblyBuffer> iterator = inFlightReassemblyBuffers.values().iterator();
+        while (iterator.hasNext()) {
+            MessageReassemblyBuffer reassemblyBuffer = iterator.next();
+            if ((Objects.isNull(sender) || sender.equals(reassemblyBuffer.getSender())) && !isReassemblyComplete(reassemblyBuffer)) {
+                iterator.remove();
+                releaseReassemblyBytes(reassemblyBuffer);
+                messageChunkRegistry.remove(reassemblyBuffer.getFullMessageId(), reassemblyBuffer);
+                reassemblyBuffer.release();
+                log.warn("Reassembly budget exceeded, evicting partial message with id {} from sender {}", reassemblyBuffer.getFullMessageId(), reassemblyBuffer.getSender());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isReassemblyComplete(MessageReassemblyBuffer reassemblyBuffer) {
+        synchronized (reassemblyBuffer) {
+            return reassemblyBuffer.isComplete();
+        }
+    }
+
+    private synchronized void releaseReassemblyBudget(MessageReassemblyBuffer reassemblyBuffer) {
+        if (inFlightReassemblyBuffers.remove(reassemblyBuffer.getFullMessageId(), reassemblyBuffer)) {
+            releaseReassemblyBytes(reassemblyBuffer);
+        }
+    }
+
+    private void releaseReassemblyBytes(MessageReassemblyBuffer reassemblyBuffer) {
+        long sizeOfFullMessageInBytes = reassemblyBuffer.getSizeOfFullMessageInBytes();
+        inFlightReassemblyBytes -= sizeOfFullMessageInBytes;
+        inFlightReassemblyBytesPerSender.computeIfPresent(reassemblyBuffer.getSender(), (sender, bytes) -> bytes > sizeOfFullMessageInBytes ? bytes - sizeOfFullMessageInBytes : null);
+    }
+
+    private MessageReassemblyBuffer createReassemblyBuffer(EncryptedReceivedMessageChunkDTO firstArrivedMessageChunk, ReassemblyStorage reassemblyStorage) {
+        MessageReassemblyBuffer reassemblyBuffer = new MessageReassemblyBuffer(firstArrivedMessageChunk, reassemblyStorage);
+        reassemblyBuffer.setExpiryTimeout(reassemblyExpiryTimer.schedule(
+                () -> expirePartialMessage(reassemblyBuffer),
+                maxWaitMsForAllChunksToArriveForAMessage
+        ));
+        scheduleMissingChunkRequest(reassemblyBuffer, missingChunkRequestIntervalMs);
+        return reassemblyBuffer;
+    }
+
+    private void scheduleMissingChunkRequest(MessageReassemblyBuffer reassemblyBuffer, long delayMs) {
+        reassemblyBuffer.setMissingChunkRequestTimeout(reassemblyExpiryTimer.schedule(
+                () -> requestMissingChunks(reassemblyBuffer),
+                delayMs
+        ));
+    }
+
+    private void requestMissingChunks(MessageReassemblyBuffer reassemblyBuffer) {
+        List<Integer> missingSerialNumbers;
+        synchronized (reassemblyBuffer) {
+            if (reassemblyBuffer.isComplete() || messageChunkRegistry.get(reassemblyBuffer.getFullMessageId()) != reassemblyBuffer) {
+                return;
+            }
+            long msSinceLastProgress = System.currentTimeMillis() - reassemblyBuffer.getLastProgressTimeMs();
+            if (msSinceLastProgress < missingChunkRequestIntervalMs) {
+                scheduleMissingChunkRequest(reassemblyBuffer, missingChunkRequestIntervalMs - msSinceLastProgress);
+                return;
+            }
+            missingSerialNumbers = reassemblyBuffer.getMissingSerialNumbers();
+            scheduleMissingChunkRequest(reassemblyBuffer, missingChunkRequestIntervalMs);
+        }
+        log.info("Requesting {} missing chunks of message with id {}", missingSerialNumbers.size(), reassemblyBuffer.getFullMessageId());
+        notifyObserversAboutMissingChunks(reassemblyBuffer, missingSerialNumbers);
+    }
+
+    private void expirePartialMessage(MessageReassemblyBuffer reassemblyBuffer) {
+        synchronized (reassemblyBuffer) {
+            if (reassemblyBuffer.isComplete()) {
+                return;
+            }
+        }
+        if (messageChunkRegistry.remove(reassemblyBuffer.getFullMessageId(), reassemblyBuffer)) {
+            releaseReassemblyBudget(reassemblyBuffer);
+            reassemblyBuffer.release();
+            log.error("All message chunks haven't been received for message with id {} in {} milliseconds from the arrival of the first message chunk, deleting the arrived chunks from the registry!",
+                    reassemblyBuffer.getFullMessageId(), maxWaitMsForAllChunksToArriveForAMessage);
+        }
+    }
+
+    private byte[] getMessageChunkDecryptionBuffer(int minimumSizeInBytes) {
+        byte[] decryptionBuffer = messageChunkDecryptionBuffer.get();
+        if (decryptionBuffer.length < minimumSizeInBytes) {
+            decryptionBuffer = new byte[minimumSizeInBytes];
+            messageChunkDecryptionBuffer.set(decryptionBuffer);
+        }
+        return decryptionBuffer;
+    }
+
+    private int decryptMessageChunkContent(EncryptedReceivedMessageChunkDTO messageChunkDTO, byte[] fullMessageContentEncryptionKey, byte[] decryptionBuffer) {
+        byte[] associatedData = MessageChunkAssociatedDataUtils.createAssociatedData(
+                messageChunkDTO.getFullMessageId(),
+                messageChunkDTO.getSerialNumberWithinFullMessage(),
+                messageChunkDTO.getOffsetWithinFullMessageInBytes(),
+                messageChunkDTO.getSizeOfFullMessageInBytes()
+        );
+        int decryptedMessageChunkContentLength = symmetricCipherService.decryptData(
+                messageChunkDTO.getContent(),
+                fullMessageContentEncryptionKey,
+                messageChunkDTO.getChunkContentInitializationVector(),
+                associatedData,
+                decryptionBuffer
+        );
+        if (decryptedMessageChunkContentLength < 0) {
+            log.error("Failed to decrypt chunk {} of message with id {}", messageChunkDTO.getSerialNumberWithinFullMessage(), messageChunkDTO.getFullMessageId());
         }
+        return decryptedMessageChunkContentLength;
     }
 
 }
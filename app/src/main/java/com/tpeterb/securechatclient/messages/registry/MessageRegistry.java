@@ -1,15 +1,22 @@
 package com.tpeterb.securechatclient.messages.registry;
 
-import static com.tpeterb.securechatclient.constants.Constants.NUMBER_OF_MESSAGES_TO_FETCH_AT_ONCE;
-
+import com.tpeterb.securechatclient.messages.config.LocalMessageStoreConfig;
+import com.tpeterb.securechatclient.messages.config.MessageRegistryConfig;
+import com.tpeterb.securechatclient.messages.model.ConversationPartFetchDirection;
 import com.tpeterb.securechatclient.messages.model.MessageDTO;
+import com.tpeterb.securechatclient.messages.persistence.LocalMessageStore;
+import com.tpeterb.securechatclient.messages.search.MessageSearchIndex;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -20,63 +27,269 @@ import lombok.extern.slf4j.Slf4j;
 @Singleton
 public class MessageRegistry {
 
-    private final Map<String, List<MessageDTO>> messageRegistry;
+    private static final Comparator<MessageDTO> MESSAGE_TIMESTAMP_ORDER = Comparator.comparing(MessageDTO::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final Map<String, ConversationMessageStore> messageRegistry;
 
     private final Map<String, Boolean> fetchRegistry;
 
+    private final Map<String, Set<String>> evictedConversationMessageIds;
+
+    private final Set<String> pinnedConversations;
+
+    private final Set<String> hydratedConversations;
+
+    private final Set<String> conversationsWithFullyFetchedHistory;
+
+    private final Map<String, Long> historyFetchStartTimesMs;
+
+    private final AtomicLong totalResidentBytes;
+
+    private final Object conversationEvictionLock;
+
+    private final MessageRegistryConfig messageRegistryConfig;
+
+    private final LocalMessageStore localMessageStore;
+
+    private final LocalMessageStoreConfig localMessageStoreConfig;
+
+    private final MessageSearchIndex messageSearchIndex;
+
+    private final ChatPartnerRegistry chatPartnerRegistry;
+
     @Inject
-    public MessageRegistry() {
+    public MessageRegistry(MessageRegistryConfig messageRegistryConfig,
+                           LocalMessageStore localMessageStore,
+                           LocalMessageStoreConfig localMessageStoreConfig,
+                           MessageSearchIndex messageSearchIndex,
+                           ChatPartnerRegistry chatPartnerRegistry) {
         messageRegistry = new ConcurrentHashMap<>();
         fetchRegistry = new ConcurrentHashMap<>();
+        evictedConversationMessageIds = new ConcurrentHashMap<>();
+        pinnedConversations = ConcurrentHashMap.newKeySet();
+        hydratedConversations = ConcurrentHashMap.newKeySet();
+        conversationsWithFullyFetchedHistory = ConcurrentHashMap.newKeySet();
+        historyFetchStartTimesMs = new ConcurrentHashMap<>();
+        totalResidentBytes = new AtomicLong();
+        conversationEvictionLock = new Object();
+        this.messageRegistryConfig = messageRegistryConfig;
+        this.localMessageStore = localMessageStore;
+        this.localMessageStoreConfig = localMessageStoreConfig;
+        this.messageSearchIndex = messageSearchIndex;
+        this.chatPartnerRegistry = chatPartnerRegistry;
     }
 
-    public synchronized void clearMessageRegistry() {
+    public void pinConversation(String chatPartnerUsername) {
+        pinnedConversations.add(chatPartnerUsername);
+    }
+
+    public void unpinConversation(String chatPartnerUsername) {
+        pinnedConversations.remove(chatPartnerUsername);
+        enforceResidencyLimits(chatPartnerUsername);
+    }
+
+    public void clearMessageRegistry() {
+        for (ConversationMessageStore messages : messageRegistry.values()) {
+            messages.detach();
+        }
         messageRegistry.clear();
         fetchRegistry.clear();
+        evictedConversationMessageIds.clear();
+        pinnedConversations.clear();
+        hydratedConversations.clear();
+        conversationsWithFullyFetchedHistory.clear();
+        historyFetchStartTimesMs.clear();
+    }
+
+    public CompletableFuture<Boolean> hydrateConversationFromLocalStore(String chatPartnerUsername) {
+        if (!hydratedConversations.add(chatPartnerUsername)) {
+            return CompletableFuture.completedFuture(Boolean.FALSE);
+        }
+        return localMessageStore.loadLatestMessages(chatPartnerUsername, localMessageStoreConfig.getNumberOfMessagesToHydrateFromLocalStore())
+                .thenApply(messages -> {
+                    if (messages.isEmpty()) {
+                        return Boolean.FALSE;
+                    }
+                    messageRegistry.computeIfAbsent(chatPartnerUsername, this::createConversationMessageStore).addMessages(messages);
+                    messageSearchIndex.indexMessages(chatPartnerUsername, messages);
+                    recordLatestMessage(chatPartnerUsername, messages);
+                    enforceResidencyLimits(chatPartnerUsername);
+                    log.info("Hydrated {} messages of conversation with {} from the local message store", messages.size(), chatPartnerUsername);
+                    return Boolean.TRUE;
+                });
+    }
+
+    public CompletableFuture<Boolean> loadOlderMessagesFromLocalStore(String chatPartnerUsername, int maxNumberOfMessages) {
+        MessageDTO oldestMessage = getOldestMessageForChatPartner(chatPartnerUsername);
+        return localMessageStore.loadMessagesBefore(chatPartnerUsername, oldestMessage, maxNumberOfMessages)
+                .thenApply(messages -> {
+                    if (messages.isEmpty()) {
+                        return Boolean.FALSE;
+                    }
+                    List<MessageDTO> addedMessages = messageRegistry.computeIfAbsent(chatPartnerUsername, this::createConversationMessageStore).addMessages(messages);
+                    messageSearchIndex.indexMessages(chatPartnerUsername, addedMessages);
+                    historyFetchStartTimesMs.remove(chatPartnerUsername);
+                    log.info("Loaded {} older messages of conversation with {} from the local message store", messages.size(), chatPartnerUsername);
+                    return Boolean.TRUE;
+                });
     }
 
-    public boolean conversationHasNoPreviousMessages(String chatPartnerUsername) {
-        List<MessageDTO> messages = messageRegistry.get(chatPartnerUsername);
-        log.info("conversationHasNoPreviousMessages, size = {}", Objects.nonNull(messages) ? messages.size() : "nincs ilyen");
-        return Objects.nonNull(messages) && messages.size() % NUMBER_OF_MESSAGES_TO_FETCH_AT_ONCE != 0;
+    public boolean conversationHasOlderMessages(String chatPartnerUsername) {
+        return !conversationsWithFullyFetchedHistory.contains(chatPartnerUsername);
+    }
+
+    public synchronized boolean tryStartHistoryFetch(String chatPartnerUsername, long historyFetchTimeoutMs) {
+        long nowMs = System.currentTimeMillis();
+        Long historyFetchStartTimeMs = historyFetchStartTimesMs.get(chatPartnerUsername);
+        if (Objects.nonNull(historyFetchStartTimeMs) && nowMs - historyFetchStartTimeMs < historyFetchTimeoutMs) {
+            return false;
+        }
+        historyFetchStartTimesMs.put(chatPartnerUsername, nowMs);
+        return true;
+    }
+
+    public void recordConversationPartFetchResult(String chatPartnerUsername, ConversationPartFetchDirection fetchDirection, boolean hasMore) {
+        if (fetchDirection != ConversationPartFetchDirection.BEFORE_CURSOR) {
+            return;
+        }
+        if (!hasMore) {
+            conversationsWithFullyFetchedHistory.add(chatPartnerUsername);
+        }
+        historyFetchStartTimesMs.remove(chatPartnerUsername);
+    }
+
+    public MessageDTO getOldestMessageForChatPartner(String chatPartnerUsername) {
+        ConversationMessageStore messages = messageRegistry.get(chatPartnerUsername);
+        return Objects.nonNull(messages) ? messages.getOldestMessage() : null;
+    }
+
+    public MessageDTO getNewestMessageForChatPartner(String chatPartnerUsername) {
+        ConversationMessageStore messages = messageRegistry.get(chatPartnerUsername);
+        return Objects.nonNull(messages) ? messages.getNewestMessage() : null;
     }
 
     public boolean conversationNeedsInitialMessageFetching(String chatPartnerUsername) {
         log.info("conversationNeedMessageFetching");
-        log.info("Message registry = {}", messageRegistry);
-        log.info("Fetch registry = {}", fetchRegistry);
         return Objects.isNull(fetchRegistry.get(chatPartnerUsername));
     }
 
     public int getNumberOfAlreadyFetchedMessagesForChatParner(String chatPartnerUsername) {
         log.info("getNumberOfAlreadyFetchedMessagesForChatParner");
-        List<MessageDTO> messages = messageRegistry.get(chatPartnerUsername);
+        ConversationMessageStore messages = messageRegistry.get(chatPartnerUsername);
         return Objects.nonNull(messages) ? messages.size() : 0;
     }
 
     public List<MessageDTO> getMessagesForChatPartner(String chatPartnerUsername) {
         log.info("getMessagesForChatPartner");
-        List<MessageDTO> messages = messageRegistry.get(chatPartnerUsername);
+        ConversationMessageStore messages = messageRegistry.get(chatPartnerUsername);
         log.info("ChatPartnerUsername = {}", chatPartnerUsername);
-        log.info("Messages = {}", messages);
-        return Objects.nonNull(messages) ? messages : List.of();
+        return Objects.nonNull(messages) ? messages.getSnapshot() : List.of();
+    }
+
+    public boolean containsMessage(String chatPartnerUsername, String messageId) {
+        ConversationMessageStore messages = messageRegistry.get(chatPartnerUsername);
+        if (Objects.nonNull(messages)) {
+            return messages.containsMessage(messageId);
+        }
+        Set<String> evictedMessageIds = evictedConversationMessageIds.get(chatPartnerUsername);
+        return Objects.nonNull(evictedMessageIds) && evictedMessageIds.contains(messageId);
+    }
+
+    public boolean containsResidentMessage(String chatPartnerUsername, String messageId) {
+        ConversationMessageStore messages = messageRegistry.get(chatPartnerUsername);
+        return Objects.nonNull(messages) && messages.containsResidentMessage(messageId);
     }
 
-    public synchronized void addMessageToRegistry(String chatPartnerUsername, MessageDTO messageDTO) {
-        messageRegistry.putIfAbsent(chatPartnerUsername, new CopyOnWriteArrayList<>());
-        messageRegistry.get(chatPartnerUsername).add(messageDTO);
+    public void addMessageToRegistry(String chatPartnerUsername, MessageDTO messageDTO) {
+        ConversationMessageStore messages = messageRegistry.computeIfAbsent(chatPartnerUsername, this::createConversationMessageStore);
+        if (messages.addMessage(messageDTO)) {
+            localMessageStore.appendMessage(chatPartnerUsername, messageDTO);
+            messageSearchIndex.indexMessage(chatPartnerUsername, messageDTO);
+            boolean unread = chatPartnerUsername.equals(messageDTO.getSender()) && !pinnedConversations.contains(chatPartnerUsername);
+            chatPartnerRegistry.recordMessage(chatPartnerUsername, messageDTO, unread);
+        }
         fetchRegistry.putIfAbsent(chatPartnerUsername, Boolean.TRUE);
-        log.info("Message registry = {}", messageRegistry);
-        log.info("Fetch registry = {}", fetchRegistry);
+        enforceResidencyLimits(chatPartnerUsername);
+        log.debug("Number of messages registered for chat partner {} = {}", chatPartnerUsername, messages.size());
     }
 
-    public synchronized void addAllMessagesToRegistry(String chatPartnerUsername, List<MessageDTO> messages) {
+    public void addAllMessagesToRegistry(String chatPartnerUsername, List<MessageDTO> messages) {
         log.info("addAllMessagesToRegistry");
-        messageRegistry.putIfAbsent(chatPartnerUsername, new CopyOnWriteArrayList<>());
-        messageRegistry.get(chatPartnerUsername).addAll(messages);
+        ConversationMessageStore conversationMessages = messageRegistry.computeIfAbsent(chatPartnerUsername, this::createConversationMessageStore);
+        List<MessageDTO> addedMessages = conversationMessages.addMessages(messages);
+        for (MessageDTO addedMessage : addedMessages) {
+            localMessageStore.appendMessage(chatPartnerUsername, addedMessage);
+        }
+        messageSearchIndex.indexMessages(chatPartnerUsername, addedMessages);
+        recordLatestMessage(chatPartnerUsername, addedMessages);
         fetchRegistry.putIfAbsent(chatPartnerUsername, Boolean.TRUE);
-        log.info("Message registry = {}", messageRegistry);
-        log.info("Fetch registry = {}", fetchRegistry);
+        enforceResidencyLimits(chatPartnerUsername);
+        log.debug("Number of messages registered for chat partner {} = {}", chatPartnerUsername, conversationMessages.size());
+    }
+
+    private void recordLatestMessage(String chatPartnerUsername, List<MessageDTO> messages) {
+        if (!messages.isEmpty()) {
+            chatPartnerRegistry.recordMessage(chatPartnerUsername, Collections.max(messages, MESSAGE_TIMESTAMP_ORDER), false);
+        }
+    }
+
+    private ConversationMessageStore createConversationMessageStore(String chatPartnerUsername) {
+        Set<String> knownMessageIds = evictedConversationMessageIds.remove(chatPartnerUsername);
+        return new ConversationMessageStore(totalResidentBytes, Objects.nonNull(knownMessageIds) ? knownMessageIds : Collections.emptySet());
+    }
+
+    private void enforceResidencyLimits(String chatPartnerUsername) {
+        ConversationMessageStore messages = messageRegistry.get(chatPartnerUsername);
+        if (Objects.nonNull(messages) && !pinnedConversations.contains(chatPartnerUsername)) {
+            int numberOfEvictedMessages = messages.trimOldestMessages(
+                    messageRegistryConfig.getMaxResidentMessagesPerConversation(),
+                    messageRegistryConfig.getMaxResidentBytesPerConversation()
+            );
+            if (numberOfEvictedMessages > 0) {
+                conversationsWithFullyFetchedHistory.remove(chatPartnerUsername);
+                log.info("Evicted {} oldest messages of conversation with {} from memory", numberOfEvictedMessages, chatPartnerUsername);
+            }
+        }
+        if (totalResidentBytes.get() > messageRegistryConfig.getMaxResidentBytes()) {
+            evictLeastRecentlyUsedConversations();
+        }
+    }
+
+    private void evictLeastRecentlyUsedConversations() {
+        synchronized (conversationEvictionLock) {
+            if (totalResidentBytes.get() <= messageRegistryConfig.getMaxResidentBytes()) {
+                return;
+            }
+            List<Map.Entry<String, ConversationMessageStore>> leastRecentlyUsedConversations = new ArrayList<>(messageRegistry.entrySet());
+            leastRecentlyUsedConversations.sort(Comparator.comparingLong(entry -> entry.getValue().getLastAccessTimeNanos()));
+            for (Map.Entry<String, ConversationMessageStore> conversation : leastRecentlyUsedConversations) {
+                if (totalResidentBytes.get() <= messageRegistryConfig.getMaxResidentBytes()) {
+                    return;
+                }
+                String evictedChatPartnerUsername = conversation.getKey();
+                if (pinnedConversations.contains(evictedChatPartnerUsername) || !evictConversation(evictedChatPartnerUsername, conversation.getValue())) {
+                    continue;
+                }
+                conversation.getValue().detach();
+                fetchRegistry.remove(evictedChatPartnerUsername);
+                hydratedConversations.remove(evictedChatPartnerUsername);
+                conversationsWithFullyFetchedHistory.remove(evictedChatPartnerUsername);
+                log.info("Evicted the whole conversation with {} from memory, it will be fetched again when opened", evictedChatPartnerUsername);
+            }
+        }
+    }
+
+    private boolean evictConversation(String chatPartnerUsername, ConversationMessageStore messages) {
+        boolean[] evicted = new boolean[1];
+        messageRegistry.computeIfPresent(chatPartnerUsername, (username, currentMessages) -> {
+            if (currentMessages != messages) {
+                return currentMessages;
+            }
+            evictedConversationMessageIds.put(username, messages.getMessageIds());
+            evicted[0] = true;
+            return null;
+        });
+        return evicted[0];
     }
 
     @Override
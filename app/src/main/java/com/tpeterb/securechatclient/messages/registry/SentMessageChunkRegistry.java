@@ -0,0 +1,67 @@
+package com.tpeterb.securechatclient.messages.registry;
+
+import com.tpeterb.securechatclient.messages.config.MessageChunkConfig;
+import com.tpeterb.securechatclient.security.model.EncryptedSentMessageChunkDTO;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Singleton
+public class SentMessageChunkRegistry {
+
+    private final LinkedHashMap<SentMessageChunkKey, EncryptedSentMessageChunkDTO> sentMessageChunkRegistry;
+
+    private final long maxRetransmissionBufferSizeInBytes;
+
+    private long retransmissionBufferSizeInBytes;
+
+    @Inject
+    public SentMessageChunkRegistry(MessageChunkConfig messageChunkConfig) {
+        sentMessageChunkRegistry = new LinkedHashMap<>();
+        maxRetransmissionBufferSizeInBytes = messageChunkConfig.getRetransmissionBufferSizeInBytes();
+        retransmissionBufferSizeInBytes = 0;
+    }
+
+    public synchronized void addSentMessageChunk(EncryptedSentMessageChunkDTO messageChunk) {
+        SentMessageChunkKey key = new SentMessageChunkKey(messageChunk.getFullMessageId(), messageChunk.getSerialNumberWithinFullMessage());
+        EncryptedSentMessageChunkDTO previousMessageChunk = sentMessageChunkRegistry.put(key, messageChunk);
+        if (Objects.nonNull(previousMessageChunk)) {
+            retransmissionBufferSizeInBytes -= previousMessageChunk.getContent().length;
+        }
+        retransmissionBufferSizeInBytes += messageChunk.getContent().length;
+        Iterator<EncryptedSentMessageChunkDTO> iterator = sentMessageChunkRegistry.values().iterator();
+        while (retransmissionBufferSizeInBytes > maxRetransmissionBufferSizeInBytes && iterator.hasNext()) {
+            EncryptedSentMessageChunkDTO evictedMessageChunk = iterator.next();
+            retransmissionBufferSizeInBytes -= evictedMessageChunk.getContent().length;
+            iterator.remove();
+        }
+    }
+
+    public synchronized EncryptedSentMessageChunkDTO getSentMessageChunk(String fullMessageId, int serialNumberWithinFullMessage) {
+        return sentMessageChunkRegistry.get(new SentMessageChunkKey(fullMessageId, serialNumberWithinFullMessage));
+    }
+
+    public synchronized void clearSentMessageChunkRegistry() {
+        sentMessageChunkRegistry.clear();
+        retransmissionBufferSizeInBytes = 0;
+    }
+
+    @Value
+    private static class SentMessageChunkKey {
+
+        String fullMessageId;
+
+        int serialNumberWithinFullMessage;
+
+    }
+
+}
@@ -0,0 +1,320 @@
+package com.tpeterb.securechatclient.messages.search;
+
+import android.content.Context;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tpeterb.securechatclient.messages.config.LocalMessageStoreConfig;
+import com.tpeterb.securechatclient.messages.model.MessageContentType;
+import com.tpeterb.securechatclient.messages.model.MessageDTO;
+import com.tpeterb.securechatclient.security.cache.LocalStorageKeyCache;
+import com.tpeterb.securechatclient.security.model.EncryptionResult;
+import com.tpeterb.securechatclient.security.service.SymmetricCipherService;
+import com.tpeterb.securechatclient.users.session.UserSession;
+import com.tpeterb.securechatclient.utils.HashUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Singleton
+public class MessageSearchIndex {
+
+    private static final String MESSAGE_SEARCH_INDEX_DIRECTORY_NAME = "search";
+
+    private static final String MESSAGE_SEARCH_INDEX_FILE_EXTENSION = ".idx";
+
+    private static final String MESSAGE_SEARCH_INDEX_KEY_POSTFIX = "_MESSAGE_SEARCH_INDEX_KEY";
+
+    private static final Pattern TERM_SEPARATOR_PATTERN = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Pattern COMBINING_MARK_PATTERN = Pattern.compile("\\p{M}+");
+
+    private static final int MAX_TERM_LENGTH = 64;
+
+    private final TreeMap<String, Set<String>> messageIdsByTerm;
+
+    private final Map<String, MessageSearchResult> indexedMessages;
+
+    private final List<MessageSearchIndexEntry> pendingIndexEntries;
+
+    private final ScheduledExecutorService messageSearchIndexExecutor;
+
+    private final File messageSearchIndexDirectory;
+
+    private final SymmetricCipherService symmetricCipherService;
+
+    private final LocalStorageKeyCache localStorageKeyCache;
+
+    private final ObjectMapper objectMapper;
+
+    private final UserSession userSession;
+
+    private final LocalMessageStoreConfig localMessageStoreConfig;
+
+    private String loadedOwnerUsername;
+
+    private boolean flushScheduled;
+
+    @Inject
+    public MessageSearchIndex(Context context,
+                              SymmetricCipherService symmetricCipherService,
+                              LocalStorageKeyCache localStorageKeyCache,
+                              ObjectMapper objectMapper,
+                              UserSession userSession,
+                              LocalMessageStoreConfig localMessageStoreConfig) {
+        messageIdsByTerm = new TreeMap<>();
+        indexedMessages = new HashMap<>();
+        pendingIndexEntries = new ArrayList<>();
+        messageSearchIndexExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-search-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        messageSearchIndexDirectory = new File(context.getFilesDir(), MESSAGE_SEARCH_INDEX_DIRECTORY_NAME);
+        this.symmetricCipherService = symmetricCipherService;
+        this.localStorageKeyCache = localStorageKeyCache;
+        this.objectMapper = objectMapper;
+        this.userSession = userSession;
+        this.localMessageStoreConfig = localMessageStoreConfig;
+    }
+
+    public void indexMessage(String chatPartnerUsername, MessageDTO message) {
+        indexMessages(chatPartnerUsername, List.of(message));
+    }
+
+    public void indexMessages(String chatPartnerUsername, Collection<MessageDTO> messages) {
+        String ownerUsername = userSession.getUsername();
+        if (Objects.isNull(ownerUsername) || messages.isEmpty()) {
+            return;
+        }
+        List<MessageDTO> messagesToIndex = new ArrayList<>(messages);
+        messageSearchIndexExecutor.execute(() -> {
+            loadMessageSearchIndexOfUser(ownerUsername);
+            for (MessageDTO message : messagesToIndex) {
+                addMessageToIndex(chatPartnerUsername, message);
+            }
+        });
+    }
+
+    public CompletableFuture<List<MessageSearchResult>> searchByTerms(String query, int maxNumberOfResults) {
+        return search(query, false, maxNumberOfResults);
+    }
+
+    public CompletableFuture<List<MessageSearchResult>> searchByPrefix(String query, int maxNumberOfResults) {
+        return search(query, true, maxNumberOfResults);
+    }
+
+    public void clearMessageSearchIndex() {
+        messageSearchIndexExecutor.execute(() -> {
+            flushPendingIndexEntries();
+            messageIdsByTerm.clear();
+            indexedMessages.clear();
+            loadedOwnerUsername = null;
+        });
+    }
+
+    private CompletableFuture<List<MessageSearchResult>> search(String query, boolean matchLastTermAsPrefix, int maxNumberOfResults) {
+        String ownerUsername = userSession.getUsername();
+        List<String> queryTerms = tokenize(query);
+        if (Objects.isNull(ownerUsername) || queryTerms.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            loadMessageSearchIndexOfUser(ownerUsername);
+            List<Set<String>> matchingMessageIdsPerTerm = new ArrayList<>();
+            for (int i = 0; i < queryTerms.size(); i++) {
+                boolean prefixTerm = matchLastTermAsPrefix && i == queryTerms.size() - 1;
+                Set<String> matchingMessageIds = prefixTerm ? findMessageIdsByPrefix(queryTerms.get(i)) : messageIdsByTerm.getOrDefault(queryTerms.get(i), Set.of());
+                if (matchingMessageIds.isEmpty()) {
+                    return List.<MessageSearchResult>of();
+                }
+                matchingMessageIdsPerTerm.add(matchingMessageIds);
+            }
+            matchingMessageIdsPerTerm.sort(Comparator.comparingInt(Set::size));
+            Set<String> resultMessageIds = new HashSet<>(matchingMessageIdsPerTerm.get(0));
+            for (Set<String> matchingMessageIds : matchingMessageIdsPerTerm.subList(1, matchingMessageIdsPerTerm.size())) {
+                resultMessageIds.retainAll(matchingMessageIds);
+            }
+            List<MessageSearchResult> results = new ArrayList<>();
+            for (String messageId : resultMessageIds) {
+                results.add(indexedMessages.get(messageId));
+            }
+            results.sort(Comparator.comparing(MessageSearchResult::getTimestamp, Comparator.nullsLast(Comparator.reverseOrder())));
+            return results.size() > maxNumberOfResults ? new ArrayList<>(results.subList(0, maxNumberOfResults)) : results;
+        }, messageSearchIndexExecutor);
+    }
+
+    private Set<String> findMessageIdsByPrefix(String prefix) {
+        Set<String> matchingMessageIds = new HashSet<>();
+        for (Set<String> messageIds : messageIdsByTerm.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+            matchingMessageIds.addAll(messageIds);
+        }
+        return matchingMessageIds;
+    }
+
+    private void addMessageToIndex(String chatPartnerUsername, MessageDTO message) {
+        if (message.getMessageContentType() != MessageContentType.TEXT || indexedMessages.containsKey(message.getId())) {
+            return;
+        }
+        List<String> terms = tokenize(message.getContent());
+        MessageSearchIndexEntry indexEntry = new MessageSearchIndexEntry(message.getId(), chatPartnerUsername, message.getTimestamp(), terms);
+        applyIndexEntry(indexEntry);
+        pendingIndexEntries.add(indexEntry);
+        if (pendingIndexEntries.size() >= localMessageStoreConfig.getMaxNumberOfPendingWritesBeforeFlush()) {
+            flushPendingIndexEntries();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            messageSearchIndexExecutor.schedule(this::flushPendingIndexEntries, localMessageStoreConfig.getWriteBehindFlushDelayMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void applyIndexEntry(MessageSearchIndexEntry indexEntry) {
+        indexedMessages.put(indexEntry.getMessageId(), new MessageSearchResult(indexEntry.getMessageId(), indexEntry.getChatPartnerUsername(), indexEntry.getTimestamp()));
+        for (String term : indexEntry.getTerms()) {
+            messageIdsByTerm.computeIfAbsent(term, key -> new HashSet<>()).add(indexEntry.getMessageId());
+        }
+    }
+
+    private void loadMessageSearchIndexOfUser(String ownerUsername) {
+        if (ownerUsername.equals(loadedOwnerUsername)) {
+            return;
+        }
+        flushPendingIndexEntries();
+        messageIdsByTerm.clear();
+        indexedMessages.clear();
+        loadedOwnerUsername = ownerUsername;
+        File indexFile = getMessageSearchIndexFile(ownerUsername);
+        if (!indexFile.isFile()) {
+            return;
+        }
+        byte[] messageSearchIndexKey = getMessageSearchIndexKey(ownerUsername);
+        long validLength = 0;
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            while (true) {
+                int initializationVectorLength = inputStream.readInt();
+                int encryptedDataLength = inputStream.readInt();
+                if (initializationVectorLength < 0 || encryptedDataLength < 0 || validLength + 2L * Integer.BYTES + initializationVectorLength + encryptedDataLength > indexFile.length()) {
+                    break;
+                }
+                byte[] initializationVector = new byte[initializationVectorLength];
+                byte[] encryptedData = new byte[encryptedDataLength];
+                inputStream.readFully(initializationVector);
+                inputStream.readFully(encryptedData);
+                validLength += 2L * Integer.BYTES + initializationVectorLength + encryptedDataLength;
+                byte[] serializedIndexEntry = symmetricCipherService.decryptData(encryptedData, messageSearchIndexKey, initializationVector);
+                if (Objects.isNull(serializedIndexEntry)) {
+                    log.error("Failed to decrypt message search index entry");
+                    continue;
+                }
+                applyIndexEntry(objectMapper.readValue(serializedIndexEntry, MessageSearchIndexEntry.class));
+            }
+        } catch (EOFException e) {
+            log.info("Loaded {} indexed messages from the message search index", indexedMessages.size());
+        } catch (IOException e) {
+            log.error("Failed to load message search index, reason: {}", e.getMessage());
+            return;
+        }
+        if (validLength < indexFile.length()) {
+            log.warn("Truncating torn tail of message search index at offset {}", validLength);
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(indexFile, "rw")) {
+                randomAccessFile.setLength(validLength);
+            } catch (IOException e) {
+                log.error("Failed to truncate message search index, reason: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void flushPendingIndexEntries() {
+        flushScheduled = false;
+        if (pendingIndexEntries.isEmpty() || Objects.isNull(loadedOwnerUsername)) {
+            return;
+        }
+        File indexFile = getMessageSearchIndexFile(loadedOwnerUsername);
+        if (!messageSearchIndexDirectory.isDirectory() && !messageSearchIndexDirectory.mkdirs()) {
+            log.error("Failed to create message search index directory {}", messageSearchIndexDirectory);
+            return;
+        }
+        byte[] messageSearchIndexKey = getMessageSearchIndexKey(loadedOwnerUsername);
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)))) {
+            for (MessageSearchIndexEntry indexEntry : pendingIndexEntries) {
+                EncryptionResult encryptionResult = encryptIndexEntry(indexEntry, messageSearchIndexKey);
+                if (Objects.isNull(encryptionResult)) {
+                    continue;
+                }
+                outputStream.writeInt(encryptionResult.getInitializationVector().length);
+                outputStream.writeInt(encryptionResult.getEncryptedData().length);
+                outputStream.write(encryptionResult.getInitializationVector());
+                outputStream.write(encryptionResult.getEncryptedData());
+            }
+        } catch (IOException e) {
+            log.error("Failed to append to message search index, reason: {}", e.getMessage());
+        }
+        pendingIndexEntries.clear();
+    }
+
+    private EncryptionResult encryptIndexEntry(MessageSearchIndexEntry indexEntry, byte[] messageSearchIndexKey) {
+        byte[] serializedIndexEntry;
+        try {
+            serializedIndexEntry = objectMapper.writeValueAsBytes(indexEntry);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize message search index entry of message {}, reason: {}", indexEntry.getMessageId(), e.getMessage());
+            return null;
+        }
+        return symmetricCipherService.encryptData(serializedIndexEntry, messageSearchIndexKey);
+    }
+
+    private byte[] getMessageSearchIndexKey(String ownerUsername) {
+        return localStorageKeyCache.getLocalStorageKey(ownerUsername, MESSAGE_SEARCH_INDEX_KEY_POSTFIX);
+    }
+
+    private File getMessageSearchIndexFile(String ownerUsername) {
+        return new File(messageSearchIndexDirectory, HashUtils.sha256Hex(ownerUsername) + MESSAGE_SEARCH_INDEX_FILE_EXTENSION);
+    }
+
+    private static List<String> tokenize(String text) {
+        if (Objects.isNull(text)) {
+            return List.of();
+        }
+        String normalizedText = COMBINING_MARK_PATTERN.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        Set<String> terms = new LinkedHashSet<>();
+        for (String term : TERM_SEPARATOR_PATTERN.split(normalizedText)) {
+            if (!term.isEmpty()) {
+                terms.add(term.length() > MAX_TERM_LENGTH ? term.substring(0, MAX_TERM_LENGTH) : term);
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.tpeterb.securechatclient.messages.search;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.Value;
+
+@Value
+public class MessageSearchIndexEntry {
+
+    String messageId;
+
+    String chatPartnerUsername;
+
+    Instant timestamp;
+
+    List<String> terms;
+
+    @JsonCreator
+    public MessageSearchIndexEntry(
+            @JsonProperty("messageId") String messageId,
+            @JsonProperty("chatPartnerUsername") String chatPartnerUsername,
+            @JsonProperty("timestamp") Instant timestamp,
+            @JsonProperty("terms") List<String> terms) {
+        this.messageId = messageId;
+        this.chatPartnerUsername = chatPartnerUsername;
+        this.timestamp = timestamp;
+        this.terms = terms;
+    }
+
+}
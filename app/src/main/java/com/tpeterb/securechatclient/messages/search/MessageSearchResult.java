@@ -0,0 +1,16 @@
+package com.tpeterb.securechatclient.messages.search;
+
+import java.time.Instant;
+
+import lombok.Value;
+
+@Value
+public class MessageSearchResult {
+
+    String messageId;
+
+    String chatPartnerUsername;
+
+    Instant timestamp;
+
+}
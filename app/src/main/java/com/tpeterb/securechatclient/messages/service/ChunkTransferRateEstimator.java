@@ -0,0 +1,97 @@
+package com.tpeterb.securechatclient.messages.service;
+
+import com.tpeterb.securechatclient.messages.config.MessageChunkConfig;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class ChunkTransferRateEstimator {
+
+    private static final double RTT_SMOOTHING_FACTOR = 0.125;
+
+    private static final double RTT_VARIANCE_SMOOTHING_FACTOR = 0.25;
+
+    private static final double THROUGHPUT_SMOOTHING_FACTOR = 0.25;
+
+    private static final int CHUNK_SIZE_GRANULARITY_IN_BYTES = 4 * 1024;
+
+    private final MessageChunkConfig messageChunkConfig;
+
+    private double smoothedRoundTripTimeMs;
+
+    private double roundTripTimeVarianceMs;
+
+    private double throughputInBytesPerMs;
+
+    private double wireThroughputInBytesPerMs;
+
+    @Inject
+    public ChunkTransferRateEstimator(MessageChunkConfig messageChunkConfig) {
+        this.messageChunkConfig = messageChunkConfig;
+        smoothedRoundTripTimeMs = -1;
+        roundTripTimeVarianceMs = 0;
+        throughputInBytesPerMs = -1;
+        wireThroughputInBytesPerMs = -1;
+    }
+
+    public synchronized void recordRoundTripTime(long roundTripTimeMs) {
+        if (smoothedRoundTripTimeMs < 0) {
+            smoothedRoundTripTimeMs = roundTripTimeMs;
+            roundTripTimeVarianceMs = roundTripTimeMs / 2.0;
+            return;
+        }
+        roundTripTimeVarianceMs = (1 - RTT_VARIANCE_SMOOTHING_FACTOR) * roundTripTimeVarianceMs
+                + RTT_VARIANCE_SMOOTHING_FACTOR * Math.abs(smoothedRoundTripTimeMs - roundTripTimeMs);
+        smoothedRoundTripTimeMs = (1 - RTT_SMOOTHING_FACTOR) * smoothedRoundTripTimeMs + RTT_SMOOTHING_FACTOR * roundTripTimeMs;
+    }
+
+    public synchronized void recordThroughput(long transferredContentBytes, long transferredWireBytes, long elapsedMs) {
+        if (transferredContentBytes <= 0 || transferredWireBytes <= 0 || elapsedMs <= 0) {
+            return;
+        }
+        throughputInBytesPerMs = smoothThroughput(throughputInBytesPerMs, (double) transferredContentBytes / elapsedMs);
+        wireThroughputInBytesPerMs = smoothThroughput(wireThroughputInBytesPerMs, (double) transferredWireBytes / elapsedMs);
+    }
+
+    private static double smoothThroughput(double smoothedThroughput, double throughputSample) {
+        if (smoothedThroughput < 0) {
+            return throughputSample;
+        }
+        return (1 - THROUGHPUT_SMOOTHING_FACTOR) * smoothedThroughput + THROUGHPUT_SMOOTHING_FACTOR * throughputSample;
+    }
+
+    public synchronized int chooseChunkSizeInBytes() {
+        if (throughputInBytesPerMs < 0) {
+            return messageChunkConfig.getChunkSizeInBytes();
+        }
+        long targetChunkSizeInBytes = (long) (throughputInBytesPerMs * messageChunkConfig.getTargetChunkTransmissionTimeMs());
+        long alignedChunkSizeInBytes = targetChunkSizeInBytes / CHUNK_SIZE_GRANULARITY_IN_BYTES * CHUNK_SIZE_GRANULARITY_IN_BYTES;
+        return (int) Math.max(messageChunkConfig.getMinChunkSizeInBytes(), Math.min(messageChunkConfig.getMaxChunkSizeInBytes(), alignedChunkSizeInBytes));
+    }
+
+    public synchronized int chooseSendWindowSizeInChunks(int chunkSizeInBytes) {
+        if (throughputInBytesPerMs < 0 || smoothedRoundTripTimeMs < 0) {
+            return messageChunkConfig.getInitialSendWindowSizeInChunks();
+        }
+        double bandwidthDelayProductInBytes = throughputInBytesPerMs * smoothedRoundTripTimeMs;
+        int windowSizeInChunks = (int) Math.ceil(bandwidthDelayProductInBytes / chunkSizeInBytes);
+        return Math.max(messageChunkConfig.getMinSendWindowSizeInChunks(), Math.min(messageChunkConfig.getMaxSendWindowSizeInChunks(), windowSizeInChunks));
+    }
+
+    public synchronized long getPacingDelayMs(int frameWireSizeInBytes) {
+        double pacingRateInBytesPerMs = wireThroughputInBytesPerMs < 0
+                ? messageChunkConfig.getInitialPacingRateInBytesPerMs()
+                : wireThroughputInBytesPerMs * messageChunkConfig.getPacingGain();
+        return (long) (frameWireSizeInBytes / Math.max(1.0, pacingRateInBytesPerMs));
+    }
+
+    public synchronized long getRetransmissionTimeoutMs() {
+        if (smoothedRoundTripTimeMs < 0) {
+            return messageChunkConfig.getInitialRetransmissionTimeoutMs();
+        }
+        long retransmissionTimeoutMs = (long) (smoothedRoundTripTimeMs + 4 * roundTripTimeVarianceMs);
+        return Math.max(messageChunkConfig.getMinRetransmissionTimeoutMs(), Math.min(messageChunkConfig.getMaxRetransmissionTimeoutMs(), retransmissionTimeoutMs));
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.tpeterb.securechatclient.messages.service;
+
+import static com.tpeterb.securechatclient.constants.Constants.NUMBER_OF_MESSAGES_TO_FETCH_AT_ONCE;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.tpeterb.securechatclient.messages.config.ConversationWarmUpConfig;
+import com.tpeterb.securechatclient.messages.delivery.WebSocketClient;
+import com.tpeterb.securechatclient.messages.registry.ChatPartnerRegistry;
+import com.tpeterb.securechatclient.messages.registry.MessageRegistry;
+import com.tpeterb.securechatclient.users.model.ChatPartnerSummary;
+import com.tpeterb.securechatclient.users.session.UserSession;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Singleton
+public class ConversationWarmUpService implements DefaultLifecycleObserver {
+
+    private static final Comparator<ChatPartnerSummary> MOST_RECENT_ACTIVITY_FIRST = Comparator.comparing(ChatPartnerSummary::getLastMessageTimestamp, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final ScheduledExecutorService warmUpExecutor;
+
+    private final Deque<String> conversationsToWarmUp;
+
+    private final ChatPartnerRegistry chatPartnerRegistry;
+
+    private final MessageRegistry messageRegistry;
+
+    private final MessageService messageService;
+
+    private final StompSubscriptionService stompSubscriptionService;
+
+    private final WebSocketClient webSocketClient;
+
+    private final UserSession userSession;
+
+    private final ConversationWarmUpConfig conversationWarmUpConfig;
+
+    private String conversationAwaitingResponse;
+
+    private ScheduledFuture<?> responseTimeout;
+
+    private long remainingBudgetInBytes;
+
+    @Inject
+    public ConversationWarmUpService(ChatPartnerRegistry chatPartnerRegistry,
+                                     MessageRegistry messageRegistry,
+                                     MessageService messageService,
+                                     StompSubscriptionService stompSubscriptionService,
+                                     WebSocketClient webSocketClient,
+                                     UserSession userSession,
+                                     ConversationWarmUpConfig conversationWarmUpConfig) {
+        warmUpExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "conversation-warm-up");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        conversationsToWarmUp = new ArrayDeque<>();
+        this.chatPartnerRegistry = chatPartnerRegistry;
+        this.messageRegistry = messageRegistry;
+        this.messageService = messageService;
+        this.stompSubscriptionService = stompSubscriptionService;
+        this.webSocketClient = webSocketClient;
+        this.userSession = userSession;
+        this.conversationWarmUpConfig = conversationWarmUpConfig;
+        stompSubscriptionService.setConversationPartReceivedListener(this::handleConversationPartReceived);
+    }
+
+    @Override
+    public void onStart(@NonNull LifecycleOwner owner) {
+        if (chatPartnerRegistry.isInitialFetchDone()) {
+            warmUpRecentConversations();
+        }
+    }
+
+    public void warmUpRecentConversations() {
+        warmUpExecutor.schedule(this::startWarmUpRound, conversationWarmUpConfig.getWarmUpStartDelayMs(), TimeUnit.MILLISECONDS);
+    }
+
+    public void cancelWarmUp() {
+        warmUpExecutor.execute(this::finishWarmUpRound);
+    }
+
+    private void startWarmUpRound() {
+        if (Objects.nonNull(conversationAwaitingResponse) || !conversationsToWarmUp.isEmpty()) {
+            return;
+        }
+        if (Objects.isNull(userSession.getUsername()) || !webSocketClient.isConnected()) {
+            return;
+        }
+        List<ChatPartnerSummary> chatPartnerSummaries = new ArrayList<>(chatPartnerRegistry.getChatPartnerSummaries());
+        chatPartnerSummaries.sort(MOST_RECENT_ACTIVITY_FIRST);
+        for (ChatPartnerSummary chatPartnerSummary : chatPartnerSummaries) {
+            if (conversationsToWarmUp.size() >= conversationWarmUpConfig.getMaxNumberOfConversationsToWarmUp()) {
+                break;
+            }
+            if (messageRegistry.conversationNeedsInitialMessageFetching(chatPartnerSummary.getChatPartnerUsername())) {
+                conversationsToWarmUp.add(chatPartnerSummary.getChatPartnerUsername());
+            }
+        }
+        if (conversationsToWarmUp.isEmpty()) {
+            return;
+        }
+        log.info("Warming up conversations {}", conversationsToWarmUp);
+        remainingBudgetInBytes = conversationWarmUpConfig.getWarmUpBudgetInBytes();
+        stompSubscriptionService.subscribeToConversationPartFetchingDestination();
+        warmUpNextConversation();
+    }
+
+    private void warmUpNextConversation() {
+        conversationAwaitingResponse = null;
+        if (remainingBudgetInBytes <= 0 || !webSocketClient.isConnected()) {
+            finishWarmUpRound();
+            return;
+        }
+        String chatPartnerUsername = conversationsToWarmUp.poll();
+        if (Objects.isNull(chatPartnerUsername)) {
+            return;
+        }
+        if (!messageRegistry.conversationNeedsInitialMessageFetching(chatPartnerUsername)) {
+            warmUpNextConversation();
+            return;
+        }
+        messageRegistry.hydrateConversationFromLocalStore(chatPartnerUsername).join();
+        fetchNewestMessagesInBackground(chatPartnerUsername);
+    }
+
+    private void fetchNewestMessagesInBackground(String chatPartnerUsername) {
+        conversationAwaitingResponse = chatPartnerUsername;
+        responseTimeout = warmUpExecutor.schedule(this::warmUpNextConversation, conversationWarmUpConfig.getWarmUpResponseTimeoutMs(), TimeUnit.MILLISECONDS);
+        messageService.initiateBackgroundFetchingOfNewestMessages(
+                messageRegistry.getNewestMessageForChatPartner(chatPartnerUsername),
+                NUMBER_OF_MESSAGES_TO_FETCH_AT_ONCE,
+                userSession.getUsername(),
+                chatPartnerUsername
+        );
+    }
+
+    private void handleConversationPartReceived(String chatPartnerUsername, int sizeInBytes, boolean hasMoreNewerMessages) {
+        warmUpExecutor.execute(() -> {
+            if (Objects.isNull(conversationAwaitingResponse)) {
+                return;
+            }
+            remainingBudgetInBytes -= sizeInBytes;
+            if (!conversationAwaitingResponse.equals(chatPartnerUsername)) {
+                return;
+            }
+            if (Objects.nonNull(responseTimeout)) {
+                responseTimeout.cancel(false);
+            }
+            if (hasMoreNewerMessages && remainingBudgetInBytes > 0 && webSocketClient.isConnected()) {
+                fetchNewestMessagesInBackground(chatPartnerUsername);
+                return;
+            }
+            warmUpNextConversation();
+        });
+    }
+
+    private void finishWarmUpRound() {
+        if (Objects.nonNull(responseTimeout)) {
+            responseTimeout.cancel(false);
+        }
+        conversationsToWarmUp.clear();
+        conversationAwaitingResponse = null;
+    }
+
+}
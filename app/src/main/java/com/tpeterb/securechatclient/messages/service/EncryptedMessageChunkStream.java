@@ -0,0 +1,124 @@
+package com.tpeterb.securechatclient.messages.service;
+
+import com.tpeterb.securechatclient.security.model.EncryptedSentMessageChunkDTO;
+import com.tpeterb.securechatclient.security.model.EncryptedSentMessageDTO;
+import com.tpeterb.securechatclient.security.model.EncryptionResult;
+import com.tpeterb.securechatclient.security.service.SymmetricCipherService;
+import com.tpeterb.securechatclient.utils.MessageChunkAssociatedDataUtils;
+import com.tpeterb.securechatclient.utils.TimeOrderedIdGenerator;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class EncryptedMessageChunkStream implements Closeable {
+
+    private final SymmetricCipherService symmetricCipherService;
+
+    private final InputStream contentStream;
+
+    private final EncryptedSentMessageDTO fullMessageHeader;
+
+    private final byte[] contentEncryptionKey;
+
+    private final String sessionId;
+
+    private final int sizeOfFullMessageInBytes;
+
+    private final int numberOfChunks;
+
+    private final byte[] chunkBuffer;
+
+    private int nextSerialNumber;
+
+    EncryptedMessageChunkStream(SymmetricCipherService symmetricCipherService,
+                                InputStream contentStream,
+                                EncryptedSentMessageDTO fullMessageHeader,
+                                byte[] contentEncryptionKey,
+                                String sessionId,
+                                int sizeOfFullMessageInBytes,
+                                int chunkSizeInBytes) {
+        this.symmetricCipherService = symmetricCipherService;
+        this.contentStream = contentStream;
+        this.fullMessageHeader = fullMessageHeader;
+        this.contentEncryptionKey = contentEncryptionKey;
+        this.sessionId = sessionId;
+        this.sizeOfFullMessageInBytes = sizeOfFullMessageInBytes;
+        numberOfChunks = Math.max(1, (int) Math.ceil((double) sizeOfFullMessageInBytes / chunkSizeInBytes));
+        chunkBuffer = new byte[Math.min(chunkSizeInBytes, Math.max(sizeOfFullMessageInBytes, 1))];
+        nextSerialNumber = 1;
+    }
+
+    public String getFullMessageId() {
+        return fullMessageHeader.getId();
+    }
+
+    public int getNumberOfChunks() {
+        return numberOfChunks;
+    }
+
+    public boolean hasNextChunk() {
+        return nextSerialNumber <= numberOfChunks;
+    }
+
+    public EncryptedSentMessageChunkDTO nextChunk() throws IOException {
+        if (!hasNextChunk()) {
+            throw new NoSuchElementException("All chunks of message with id " + fullMessageHeader.getId() + " have already been read!");
+        }
+        int offsetWithinFullMessage = (nextSerialNumber - 1) * chunkBuffer.length;
+        int chunkLength = Math.min(chunkBuffer.length, sizeOfFullMessageInBytes - offsetWithinFullMessage);
+        readFully(chunkLength);
+        byte[] associatedData = MessageChunkAssociatedDataUtils.createAssociatedData(fullMessageHeader.getId(), nextSerialNumber, offsetWithinFullMessage, sizeOfFullMessageInBytes);
+        EncryptionResult chunkEncryptionResult = symmetricCipherService.encryptData(chunkBuffer, 0, chunkLength, contentEncryptionKey, associatedData);
+        if (Objects.isNull(chunkEncryptionResult)) {
+            throw new IOException("Failed to encrypt chunk " + nextSerialNumber + " of message with id " + fullMessageHeader.getId());
+        }
+        EncryptedSentMessageChunkDTO.EncryptedSentMessageChunkDTOBuilder messageChunkBuilder = EncryptedSentMessageChunkDTO.builder()
+                .sessionId(sessionId)
+                .fullMessageId(fullMessageHeader.getId())
+                .serialNumberWithinFullMessage(nextSerialNumber)
+                .numberOfChunksOfFullMessage(numberOfChunks)
+                .sizeOfFullMessageInBytes(sizeOfFullMessageInBytes)
+                .offsetWithinFullMessageInBytes(offsetWithinFullMessage)
+                .content(chunkEncryptionResult.getEncryptedData())
+                .chunkEncryptedIndependently(true)
+                .chunkContentInitializationVector(chunkEncryptionResult.getInitializationVector());
+        if (nextSerialNumber == 1) {
+            messageChunkBuilder
+                    .messageChunkId(TimeOrderedIdGenerator.generateId())
+                    .sender(fullMessageHeader.getSender())
+                    .receiver(fullMessageHeader.getReceiver())
+                    .messageContentType(fullMessageHeader.getMessageContentType())
+                    .timestamp(fullMessageHeader.getTimestamp())
+                    .fullMessageContentEncryptionKey(fullMessageHeader.getContentEncryptionKey());
+        }
+        nextSerialNumber++;
+        return messageChunkBuilder.build();
+    }
+
+    @Override
+    public void close() throws IOException {
+        Arrays.fill(contentEncryptionKey, (byte) 0);
+        Arrays.fill(chunkBuffer, (byte) 0);
+        contentStream.close();
+    }
+
+    private void readFully(int length) throws IOException {
+        int totalBytesRead = 0;
+        while (totalBytesRead < length) {
+            int bytesRead = contentStream.read(chunkBuffer, totalBytesRead, length - totalBytesRead);
+            if (bytesRead == -1) {
+                throw new EOFException("Content stream of message with id " + fullMessageHeader.getId() + " ended before " + sizeOfFullMessageInBytes + " bytes could be read!");
+            }
+            totalBytesRead += bytesRead;
+        }
+    }
+
+}
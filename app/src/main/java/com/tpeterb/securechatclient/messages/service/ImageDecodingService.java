@@ -0,0 +1,134 @@
+package com.tpeterb.securechatclient.messages.service;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import com.tpeterb.securechatclient.messages.model.ImageDimensions;
+import com.tpeterb.securechatclient.messages.model.MessageDTO;
+import com.tpeterb.securechatclient.messages.storage.MediaFileStore;
+import com.tpeterb.securechatclient.utils.MediaSignatureUtils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Singleton
+public class ImageDecodingService {
+
+    private static final String JPEG_MIME_TYPE = "image/jpeg";
+
+    private static final int MEDIA_SIGNATURE_LENGTH_IN_BYTES = 8;
+
+    private final MediaFileStore mediaFileStore;
+
+    @Inject
+    public ImageDecodingService(MediaFileStore mediaFileStore) {
+        this.mediaFileStore = mediaFileStore;
+    }
+
+    public ImageDimensions readImageDimensions(MessageDTO message) {
+        BitmapFactory.Options options = message.hasContentFile() ? readImageBounds(message.getContentFile()) : readImageBounds(message.getBinaryContent());
+        if (Objects.isNull(options) || options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        return new ImageDimensions(options.outWidth, options.outHeight);
+    }
+
+    public Bitmap decodeSampledImage(MessageDTO message, int targetWidth, int targetHeight, boolean decodeOpaqueImagesAsRgb565) {
+        if (message.hasContentFile()) {
+            return decodeSampledImage(message.getContentFile(), targetWidth, targetHeight, decodeOpaqueImagesAsRgb565);
+        }
+        return decodeSampledImage(message.getBinaryContent(), targetWidth, targetHeight, decodeOpaqueImagesAsRgb565);
+    }
+
+    public Bitmap decodeSampledImage(byte[] image, int targetWidth, int targetHeight, boolean decodeOpaqueImagesAsRgb565) {
+        BitmapFactory.Options boundsOptions = readImageBounds(image);
+        if (Objects.isNull(boundsOptions) || boundsOptions.outWidth <= 0 || boundsOptions.outHeight <= 0) {
+            return null;
+        }
+        return decodeImage(image, createDecodingOptions(boundsOptions, targetWidth, targetHeight, decodeOpaqueImagesAsRgb565));
+    }
+
+    public Bitmap decodeSampledImage(File imageFile, int targetWidth, int targetHeight, boolean decodeOpaqueImagesAsRgb565) {
+        BitmapFactory.Options boundsOptions = readImageBounds(imageFile);
+        if (boundsOptions.outWidth <= 0 || boundsOptions.outHeight <= 0) {
+            return null;
+        }
+        return decodeImage(imageFile, createDecodingOptions(boundsOptions, targetWidth, targetHeight, decodeOpaqueImagesAsRgb565));
+    }
+
+    private BitmapFactory.Options createDecodingOptions(BitmapFactory.Options boundsOptions, int targetWidth, int targetHeight, boolean decodeOpaqueImagesAsRgb565) {
+        BitmapFactory.Options decodingOptions = new BitmapFactory.Options();
+        decodingOptions.inSampleSize = calculateInSampleSize(boundsOptions.outWidth, boundsOptions.outHeight, targetWidth, targetHeight);
+        if (decodeOpaqueImagesAsRgb565 && JPEG_MIME_TYPE.equals(boundsOptions.outMimeType)) {
+            decodingOptions.inPreferredConfig = Bitmap.Config.RGB_565;
+        }
+        return decodingOptions;
+    }
+
+    private BitmapFactory.Options readImageBounds(byte[] image) {
+        if (Objects.isNull(image) || image.length == 0) {
+            return null;
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decodeImage(image, options);
+        return options;
+    }
+
+    private BitmapFactory.Options readImageBounds(File imageFile) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decodeImage(imageFile, options);
+        return options;
+    }
+
+    private Bitmap decodeImage(byte[] image, BitmapFactory.Options options) {
+        if (!MediaSignatureUtils.isGzipCompressed(image)) {
+            return BitmapFactory.decodeByteArray(image, 0, image.length, options);
+        }
+        try (InputStream imageStream = new GZIPInputStream(new ByteArrayInputStream(image))) {
+            return BitmapFactory.decodeStream(imageStream, null, options);
+        } catch (IOException e) {
+            log.error("There was an error while decoding gzip compressed image, reason: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Bitmap decodeImage(File imageFile, BitmapFactory.Options options) {
+        try (InputStream imageStream = new BufferedInputStream(mediaFileStore.openMediaFileForReading(imageFile))) {
+            imageStream.mark(MEDIA_SIGNATURE_LENGTH_IN_BYTES);
+            byte[] mediaSignature = new byte[MEDIA_SIGNATURE_LENGTH_IN_BYTES];
+            int mediaSignatureLength = imageStream.read(mediaSignature);
+            imageStream.reset();
+            if (mediaSignatureLength > 0 && MediaSignatureUtils.isGzipCompressed(mediaSignature)) {
+                try (InputStream decompressedImageStream = new GZIPInputStream(imageStream)) {
+                    return BitmapFactory.decodeStream(decompressedImageStream, null, options);
+                }
+            }
+            return BitmapFactory.decodeStream(imageStream, null, options);
+        } catch (IOException e) {
+            log.error("There was an error while decoding image file {}, reason: {}", imageFile, e.getMessage());
+            return null;
+        }
+    }
+
+    public static int calculateInSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int inSampleSize = 1;
+        while (width / (inSampleSize * 2) >= targetWidth && height / (inSampleSize * 2) >= targetHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+}
@@ -0,0 +1,225 @@
+package com.tpeterb.securechatclient.messages.service;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+
+import com.tpeterb.securechatclient.messages.config.MediaPreparationConfig;
+import com.tpeterb.securechatclient.messages.listener.MediaPreparationProgressListener;
+import com.tpeterb.securechatclient.messages.model.MessageContentType;
+import com.tpeterb.securechatclient.messages.model.PreparedImage;
+import com.tpeterb.securechatclient.messages.storage.MediaFileStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Singleton
+public class MediaPreparationService {
+
+    private final ExecutorService mediaPreparationExecutor;
+
+    private final Context context;
+
+    private final MediaFileStore mediaFileStore;
+
+    private final MediaPreparationConfig mediaPreparationConfig;
+
+    @Inject
+    public MediaPreparationService(Context context, MediaFileStore mediaFileStore, MediaPreparationConfig mediaPreparationConfig) {
+        mediaPreparationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "media-preparation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.context = context;
+        this.mediaFileStore = mediaFileStore;
+        this.mediaPreparationConfig = mediaPreparationConfig;
+    }
+
+    public CompletableFuture<PreparedImage> prepareImage(Uri imageUri, MediaPreparationProgressListener progressListener) {
+        return CompletableFuture.supplyAsync(() -> prepareImageForSending(imageUri, progressListener), mediaPreparationExecutor);
+    }
+
+    private PreparedImage prepareImageForSending(Uri imageUri, MediaPreparationProgressListener progressListener) {
+        progressListener.onMediaPreparationProgress(0);
+        String mimeType = context.getContentResolver().getType(imageUri);
+        byte[] originalImage = readImage(imageUri);
+        if (originalImage.length == 0) {
+            return null;
+        }
+        progressListener.onMediaPreparationProgress(25);
+        BitmapFactory.Options boundsOptions = new BitmapFactory.Options();
+        boundsOptions.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(originalImage, 0, originalImage.length, boundsOptions);
+        if (boundsOptions.outWidth <= 0 || boundsOptions.outHeight <= 0) {
+            log.error("The selected file with mime type {} could not be decoded as an image", mimeType);
+            return null;
+        }
+        int rotationDegrees = readRotationDegrees(originalImage);
+        int maxImageDimensionPx = mediaPreparationConfig.getMaxImageDimensionPx();
+        BitmapFactory.Options decodingOptions = new BitmapFactory.Options();
+        decodingOptions.inSampleSize = ImageDecodingService.calculateInSampleSize(boundsOptions.outWidth, boundsOptions.outHeight, maxImageDimensionPx, maxImageDimensionPx);
+        Bitmap decodedImage = BitmapFactory.decodeByteArray(originalImage, 0, originalImage.length, decodingOptions);
+        if (Objects.isNull(decodedImage)) {
+            log.error("The selected image with mime type {} could not be decoded", mimeType);
+            return null;
+        }
+        progressListener.onMediaPreparationProgress(50);
+        Bitmap preparedBitmap = rotateImage(scaleImageToMaxDimension(decodedImage, maxImageDimensionPx), rotationDegrees);
+        MessageContentType preparedContentType = preparedBitmap.hasAlpha() ? MessageContentType.PNG : MessageContentType.JPEG;
+        File preparedImageFile = writePreparedImage(outputStream -> {
+            Bitmap.CompressFormat compressFormat = preparedContentType == MessageContentType.PNG ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG;
+            if (!preparedBitmap.compress(compressFormat, mediaPreparationConfig.getJpegQuality(), outputStream)) {
+                throw new IOException("the image could not be compressed as " + compressFormat);
+            }
+        });
+        int preparedWidth = preparedBitmap.getWidth();
+        int preparedHeight = preparedBitmap.getHeight();
+        preparedBitmap.recycle();
+        if (Objects.isNull(preparedImageFile)) {
+            return null;
+        }
+        log.info("Re-encoded image from {}x{} ({} bytes) to {}x{} {} ({} bytes)",
+                boundsOptions.outWidth, boundsOptions.outHeight, originalImage.length,
+                preparedWidth, preparedHeight, preparedContentType, mediaFileStore.getMediaFileContentSizeInBytes(preparedImageFile));
+        progressListener.onMediaPreparationProgress(75);
+        return buildPreparedImage(preparedImageFile, preparedContentType, preparedWidth, preparedHeight, progressListener);
+    }
+
+    private File writePreparedImage(PreparedImageWriter preparedImageWriter) {
+        File preparedImageFile;
+        try {
+            preparedImageFile = mediaFileStore.createMediaFile();
+        } catch (IOException e) {
+            log.error("There was an error while trying to create a file for the prepared image, reason: {}", e.getMessage());
+            return null;
+        }
+        try (OutputStream outputStream = openPreparedImageOutputStream(preparedImageFile)) {
+            preparedImageWriter.write(outputStream);
+            return preparedImageFile;
+        } catch (IOException e) {
+            log.error("There was an error while trying to write the prepared image, reason: {}", e.getMessage());
+            mediaFileStore.deleteMediaFile(preparedImageFile);
+            return null;
+        }
+    }
+
+    private OutputStream openPreparedImageOutputStream(File preparedImageFile) throws IOException {
+        OutputStream outputStream = new BufferedOutputStream(mediaFileStore.openMediaFileForWriting(preparedImageFile));
+        if (!mediaPreparationConfig.isGzipImageContent()) {
+            return outputStream;
+        }
+        try {
+            return new GZIPOutputStream(outputStream);
+        } catch (IOException e) {
+            outputStream.close();
+            throw e;
+        }
+    }
+
+    private PreparedImage buildPreparedImage(File imageFile, MessageContentType messageContentType, int width, int height, MediaPreparationProgressListener progressListener) {
+        progressListener.onMediaPreparationProgress(100);
+        return PreparedImage.builder()
+                .contentFile(imageFile)
+                .messageContentType(messageContentType)
+                .width(width)
+                .height(height)
+                .sizeInBytes((int) mediaFileStore.getMediaFileContentSizeInBytes(imageFile))
+                .build();
+    }
+
+    private Bitmap scaleImageToMaxDimension(Bitmap image, int maxImageDimensionPx) {
+        int largerDimension = Math.max(image.getWidth(), image.getHeight());
+        if (largerDimension <= maxImageDimensionPx) {
+            return image;
+        }
+        double scale = (double) maxImageDimensionPx / largerDimension;
+        Bitmap scaledImage = Bitmap.createScaledBitmap(
+                image,
+                Math.max(1, (int) Math.round(image.getWidth() * scale)),
+                Math.max(1, (int) Math.round(image.getHeight() * scale)),
+                true
+        );
+        if (scaledImage != image) {
+            image.recycle();
+        }
+        return scaledImage;
+    }
+
+    private Bitmap rotateImage(Bitmap image, int rotationDegrees) {
+        if (rotationDegrees == 0) {
+            return image;
+        }
+        Matrix matrix = new Matrix();
+        matrix.postRotate(rotationDegrees);
+        Bitmap rotatedImage = Bitmap.createBitmap(image, 0, 0, image.getWidth(), image.getHeight(), matrix, true);
+        if (rotatedImage != image) {
+            image.recycle();
+        }
+        return rotatedImage;
+    }
+
+    private int readRotationDegrees(byte[] image) {
+        try (InputStream imageStream = new ByteArrayInputStream(image)) {
+            int orientation = new ExifInterface(imageStream).getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+            switch (orientation) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (IOException e) {
+            log.warn("Could not read the orientation of the selected image, reason: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    private byte[] readImage(Uri imageUri) {
+        try (InputStream inputStream = context.getContentResolver().openInputStream(imageUri);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            if (Objects.isNull(inputStream)) {
+                return new byte[] {};
+            }
+            byte[] buffer = new byte[16 * 1024];
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                byteArrayOutputStream.write(buffer, 0, bytesRead);
+            }
+            return byteArrayOutputStream.toByteArray();
+        } catch (IOException e) {
+            log.error("There was an error while trying to read the selected image, reason: {}", e.getMessage());
+            return new byte[] {};
+        }
+    }
+
+    @FunctionalInterface
+    private interface PreparedImageWriter {
+
+        void write(OutputStream outputStream) throws IOException;
+
+    }
+
+}
@@ -5,17 +5,15 @@ import android.os.Handler;
 import com.tpeterb.securechatclient.messages.listener.PersonalChatMessageSingleUpdateListener;
 import com.tpeterb.securechatclient.messages.model.MessageChunkChangeObserver;
 import com.tpeterb.securechatclient.messages.model.MessageDTO;
+import com.tpeterb.securechatclient.messages.model.MessageReassemblyBuffer;
+import com.tpeterb.securechatclient.messages.model.MissingMessageChunksRequestDTO;
 import com.tpeterb.securechatclient.messages.registry.ChatPartnerRegistry;
 import com.tpeterb.securechatclient.messages.registry.MessageChunkRegistry;
 import com.tpeterb.securechatclient.messages.registry.MessageRegistry;
-import com.tpeterb.securechatclient.security.model.EncryptedReceivedMessageChunkDTO;
-import com.tpeterb.securechatclient.security.model.EncryptedReceivedMessageDTO;
-import com.tpeterb.securechatclient.security.service.PacketEncryptionService;
 import com.tpeterb.securechatclient.users.model.ChatPartner;
 
-import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
-import java.util.TreeSet;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -27,8 +25,6 @@ public class MessageChunkService implements MessageChunkChangeObserver {
 
     private final ChatPartnerRegistry chatPartnerRegistry;
 
-    private final PacketEncryptionService packetEncryptionService;
-
     private final MessageRegistry messageRegistry;
 
     private final MessagePartitioningService messagePartitioningService;
@@ -46,13 +42,11 @@ public class MessageChunkService implements MessageChunkChangeObserver {
     @Inject
     public MessageChunkService(
             ChatPartnerRegistry chatPartnerRegistry,
-            PacketEncryptionService packetEncryptionService,
             MessageRegistry messageRegistry,
             MessagePartitioningService messagePartitioningService,
             MessageService messageService,
             MessageChunkRegistry messageChunkRegistry) {
         this.chatPartnerRegistry = chatPartnerRegistry;
-        this.packetEncryptionService = packetEncryptionService;
         this.messageRegistry = messageRegistry;
         this.messagePartitioningService = messagePartitioningService;
         this.messageService = messageService;
@@ -61,16 +55,34 @@ public class MessageChunkService implements MessageChunkChangeObserver {
     }
 
     @Override
-    public void handleAllMessageChunksReceivedEvent(TreeSet<EncryptedReceivedMessageChunkDTO> fullyReceivedMessageChunks) {
-        EncryptedReceivedMessageChunkDTO firstMessageChunk = fullyReceivedMessageChunks.first();
-        messageService.sendAcknowledgementForFullMessage(firstMessageChunk.getFullMessageId());
-        EncryptedReceivedMessageDTO fullMessage = messagePartitioningService.assembleMessageChunks(fullyReceivedMessageChunks);
-        MessageDTO decryptedFullChatMessage = packetEncryptionService.decryptFullChatMessage(fullMessage);
+    public void handleMessageChunkReceivedEvent(MessageReassemblyBuffer partiallyReceivedMessage, int serialNumberWithinFullMessage) {
+        messageService.sendAcknowledgementForMessageChunk(
+                partiallyReceivedMessage.getFullMessageId(),
+                serialNumberWithinFullMessage,
+                partiallyReceivedMessage.getSender()
+        );
+    }
+
+    @Override
+    public void handleAllMessageChunksReceivedEvent(MessageReassemblyBuffer fullyReceivedMessage) {
+        messageService.sendAcknowledgementForFullMessage(fullyReceivedMessage.getFullMessageId());
+        if (messageRegistry.containsMessage(fullyReceivedMessage.getSender(), fullyReceivedMessage.getFullMessageId())) {
+            messageChunkRegistry.removeAllMessageChunksForMessage(fullyReceivedMessage.getFullMessageId());
+            return;
+        }
+        MessageDTO decryptedFullChatMessage;
+        if (fullyReceivedMessage.isChunkEncryptedIndependently()) {
+            decryptedFullChatMessage = messagePartitioningService.assembleIndependentlyDecryptedMessageChunks(fullyReceivedMessage);
+        } else {
+            decryptedFullChatMessage = messagePartitioningService.assembleMessageChunks(fullyReceivedMessage);
+        }
+        messageChunkRegistry.removeAllMessageChunksForMessage(fullyReceivedMessage.getFullMessageId());
+        if (Objects.isNull(decryptedFullChatMessage)) {
+            return;
+        }
         String messageSenderUsername = decryptedFullChatMessage.getSender();
-        messageChunkRegistry.removeAllMessageChunksForMessage(fullMessage.getId());
         chatPartnerRegistry.addChatPartnerToRegistry(new ChatPartner(messageSenderUsername));
         messageRegistry.addMessageToRegistry(messageSenderUsername, decryptedFullChatMessage);
-        Collections.sort(messageRegistry.getMessagesForChatPartner(messageSenderUsername));
         if (Objects.nonNull(handler)) {
             handler.post(() -> {
                 personalChatMessageSingleUpdateListener.onNewMessage(decryptedFullChatMessage);
@@ -78,4 +90,14 @@ public class MessageChunkService implements MessageChunkChangeObserver {
         }
     }
 
+    @Override
+    public void handleMissingMessageChunksEvent(MessageReassemblyBuffer partiallyReceivedMessage, List<Integer> missingSerialNumbers) {
+        messageService.sendMissingMessageChunksRequest(new MissingMessageChunksRequestDTO(
+                partiallyReceivedMessage.getFullMessageId(),
+                partiallyReceivedMessage.getSender(),
+                partiallyReceivedMessage.getReceiver(),
+                missingSerialNumbers
+        ));
+    }
+
 }
@@ -0,0 +1,234 @@
+package com.tpeterb.securechatclient.messages.service;
+
+import static com.tpeterb.securechatclient.constants.Constants.CHAT_SERVER_MESSAGE_SINGLE_CHUNK_SENDING_DESTINATION;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tpeterb.securechatclient.exception.AsymmetricEncryptionException;
+import com.tpeterb.securechatclient.messages.config.MessageChunkConfig;
+import com.tpeterb.securechatclient.messages.delivery.OutboundMessageScheduler;
+import com.tpeterb.securechatclient.messages.model.MessageChunkAcknowledgementDTO;
+import com.tpeterb.securechatclient.messages.model.MessageDTO;
+import com.tpeterb.securechatclient.messages.model.MissingMessageChunksRequestDTO;
+import com.tpeterb.securechatclient.messages.registry.SentMessageChunkRegistry;
+import com.tpeterb.securechatclient.security.model.EncryptedPacket;
+import com.tpeterb.securechatclient.security.model.EncryptedSentMessageChunkDTO;
+import com.tpeterb.securechatclient.security.service.PacketEncryptionService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Singleton
+public class MessageChunkTransferService {
+
+    private final ObjectMapper objectMapper;
+
+    private final PacketEncryptionService packetEncryptionService;
+
+    private final OutboundMessageScheduler outboundMessageScheduler;
+
+    private final SentMessageChunkRegistry sentMessageChunkRegistry;
+
+    private final ChunkTransferRateEstimator chunkTransferRateEstimator;
+
+    private final MessageChunkConfig messageChunkConfig;
+
+    private final ScheduledExecutorService transferExecutor;
+
+    private final Map<String, OutboundMessageChunkTransfer> outboundTransfers;
+
+    @Inject
+    public MessageChunkTransferService(ObjectMapper objectMapper,
+                                       PacketEncryptionService packetEncryptionService,
+                                       OutboundMessageScheduler outboundMessageScheduler,
+                                       SentMessageChunkRegistry sentMessageChunkRegistry,
+                                       ChunkTransferRateEstimator chunkTransferRateEstimator,
+                                       MessageChunkConfig messageChunkConfig) {
+        this.objectMapper = objectMapper;
+        this.packetEncryptionService = packetEncryptionService;
+        this.outboundMessageScheduler = outboundMessageScheduler;
+        this.sentMessageChunkRegistry = sentMessageChunkRegistry;
+        this.chunkTransferRateEstimator = chunkTransferRateEstimator;
+        this.messageChunkConfig = messageChunkConfig;
+        outboundTransfers = new HashMap<>();
+        transferExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-chunk-transfer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long retransmissionCheckIntervalMs = messageChunkConfig.getRetransmissionCheckIntervalMs();
+        transferExecutor.scheduleWithFixedDelay(this::retransmitTimedOutMessageChunks, retransmissionCheckIntervalMs, retransmissionCheckIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void startTransfer(MessageDTO message, InputStream contentStream, int contentSizeInBytes) {
+        transferExecutor.execute(() -> openTransfer(message, contentStream, contentSizeInBytes));
+    }
+
+    public void handleMessageChunkAcknowledgement(MessageChunkAcknowledgementDTO messageChunkAcknowledgement) {
+        transferExecutor.execute(() -> acknowledgeMessageChunk(messageChunkAcknowledgement));
+    }
+
+    public void retransmitMissingMessageChunks(MissingMessageChunksRequestDTO missingMessageChunksRequest) {
+        transferExecutor.execute(() -> retransmitRequestedMessageChunks(missingMessageChunksRequest));
+    }
+
+    public void abortAllTransfers() {
+        outboundMessageScheduler.clearPendingBulkFrames();
+        transferExecutor.execute(() -> {
+            for (OutboundMessageChunkTransfer transfer : new ArrayList<>(outboundTransfers.values())) {
+                abortTransfer(transfer, "all transfers were aborted");
+            }
+        });
+    }
+
+    private void openTransfer(MessageDTO message, InputStream contentStream, int contentSizeInBytes) {
+        int chunkSizeInBytes = chunkTransferRateEstimator.chooseChunkSizeInBytes();
+        int sendWindowSizeInChunks = chunkTransferRateEstimator.chooseSendWindowSizeInChunks(chunkSizeInBytes);
+        EncryptedMessageChunkStream messageChunkStream;
+        try {
+            messageChunkStream = packetEncryptionService.openEncryptedChunkStreamForChatMessage(message, contentStream, contentSizeInBytes, chunkSizeInBytes);
+        } catch (AsymmetricEncryptionException e) {
+            log.error("Failed to encrypt message chunk to send, reason: {}", e.getMessage());
+            closeQuietly(contentStream);
+            return;
+        }
+        OutboundMessageChunkTransfer transfer = new OutboundMessageChunkTransfer(
+                messageChunkStream,
+                contentSizeInBytes,
+                sendWindowSizeInChunks,
+                messageChunkConfig.getMaxSendWindowSizeInChunks(),
+                System.currentTimeMillis()
+        );
+        outboundTransfers.put(transfer.getFullMessageId(), transfer);
+        log.info("Starting chunked transfer of message with id {}, {} chunks of {} bytes, send window = {} chunks",
+                transfer.getFullMessageId(), messageChunkStream.getNumberOfChunks(), chunkSizeInBytes, sendWindowSizeInChunks);
+        sendNextMessageChunks(transfer);
+    }
+
+    private void sendNextMessageChunks(OutboundMessageChunkTransfer transfer) {
+        try {
+            while (transfer.canSendNextChunk()) {
+                EncryptedSentMessageChunkDTO messageChunk = transfer.getMessageChunkStream().nextChunk();
+                sentMessageChunkRegistry.addSentMessageChunk(messageChunk);
+                int wireSizeInBytes = sendMessageChunk(transfer, messageChunk);
+                transfer.markQueued(messageChunk, wireSizeInBytes);
+                log.info("Queued chunk {}/{} of message with id {}", messageChunk.getSerialNumberWithinFullMessage(), messageChunk.getNumberOfChunksOfFullMessage(), messageChunk.getFullMessageId());
+            }
+        } catch (JsonProcessingException e) {
+            abortTransfer(transfer, "the message chunk could not be serialized to JSON, reason: " + e.getMessage());
+        } catch (IOException e) {
+            abortTransfer(transfer, "the content of the message could not be read, reason: " + e.getMessage());
+        }
+    }
+
+    private void acknowledgeMessageChunk(MessageChunkAcknowledgementDTO messageChunkAcknowledgement) {
+        OutboundMessageChunkTransfer transfer = outboundTransfers.get(messageChunkAcknowledgement.getFullMessageId());
+        if (Objects.isNull(transfer)) {
+            return;
+        }
+        OutboundMessageChunkTransfer.InFlightMessageChunk acknowledgedMessageChunk = transfer.acknowledge(messageChunkAcknowledgement.getSerialNumberWithinFullMessage());
+        if (Objects.isNull(acknowledgedMessageChunk)) {
+            return;
+        }
+        long nowMs = System.currentTimeMillis();
+        if (acknowledgedMessageChunk.getNumberOfAttempts() == 1 && acknowledgedMessageChunk.isDispatched()) {
+            chunkTransferRateEstimator.recordRoundTripTime(nowMs - acknowledgedMessageChunk.getSentAtMs());
+        }
+        chunkTransferRateEstimator.recordThroughput(transfer.getNumberOfAcknowledgedBytes(), transfer.getNumberOfAcknowledgedWireBytes(), nowMs - transfer.getStartTimeMs());
+        if (transfer.isComplete()) {
+            outboundTransfers.remove(transfer.getFullMessageId());
+            closeQuietly(transfer.getMessageChunkStream());
+            log.info("All chunks of message with id {} were acknowledged in {} milliseconds", transfer.getFullMessageId(), nowMs - transfer.getStartTimeMs());
+            return;
+        }
+        sendNextMessageChunks(transfer);
+    }
+
+    private void retransmitTimedOutMessageChunks() {
+        long nowMs = System.currentTimeMillis();
+        long retransmissionTimeoutMs = chunkTransferRateEstimator.getRetransmissionTimeoutMs();
+        for (OutboundMessageChunkTransfer transfer : new ArrayList<>(outboundTransfers.values())) {
+            List<OutboundMessageChunkTransfer.InFlightMessageChunk> timedOutMessageChunks = transfer.collectTimedOutMessageChunks(nowMs, retransmissionTimeoutMs);
+            for (OutboundMessageChunkTransfer.InFlightMessageChunk timedOutMessageChunk : timedOutMessageChunks) {
+                EncryptedSentMessageChunkDTO messageChunk = timedOutMessageChunk.getMessageChunk();
+                if (timedOutMessageChunk.getNumberOfAttempts() >= messageChunkConfig.getMaxChunkTransmissionAttempts()) {
+                    abortTransfer(transfer, "chunk " + messageChunk.getSerialNumberWithinFullMessage() + " was not acknowledged after " + timedOutMessageChunk.getNumberOfAttempts() + " attempts");
+                    break;
+                }
+                timedOutMessageChunk.markRetransmitted();
+                try {
+                    sendMessageChunk(transfer, messageChunk);
+                } catch (JsonProcessingException e) {
+                    abortTransfer(transfer, "the message chunk could not be serialized to JSON, reason: " + e.getMessage());
+                    break;
+                }
+                log.info("Retransmitted unacknowledged chunk {}/{} of message with id {}", messageChunk.getSerialNumberWithinFullMessage(), messageChunk.getNumberOfChunksOfFullMessage(), messageChunk.getFullMessageId());
+            }
+        }
+    }
+
+    private void retransmitRequestedMessageChunks(MissingMessageChunksRequestDTO missingMessageChunksRequest) {
+        String fullMessageId = missingMessageChunksRequest.getFullMessageId();
+        OutboundMessageChunkTransfer transfer = outboundTransfers.get(fullMessageId);
+        for (Integer serialNumberWithinFullMessage : missingMessageChunksRequest.getMissingSerialNumbers()) {
+            EncryptedSentMessageChunkDTO messageChunk = sentMessageChunkRegistry.getSentMessageChunk(fullMessageId, serialNumberWithinFullMessage);
+            if (Objects.isNull(messageChunk)) {
+                log.warn("Chunk {} of message with id {} is no longer available for retransmission", serialNumberWithinFullMessage, fullMessageId);
+                continue;
+            }
+            if (Objects.nonNull(transfer) && transfer.isQueuedForDispatch(serialNumberWithinFullMessage)) {
+                continue;
+            }
+            try {
+                sendMessageChunk(transfer, messageChunk);
+            } catch (JsonProcessingException e) {
+                log.error("There was an error while trying to serialize the message chunk to retransmit to JSON, reason: {}", e.getMessage());
+                return;
+            }
+            log.info("Retransmitted chunk {}/{} of message with id {}", serialNumberWithinFullMessage, messageChunk.getNumberOfChunksOfFullMessage(), fullMessageId);
+        }
+    }
+
+    private void abortTransfer(OutboundMessageChunkTransfer transfer, String reason) {
+        outboundTransfers.remove(transfer.getFullMessageId());
+        closeQuietly(transfer.getMessageChunkStream());
+        log.error("Aborting chunked transfer of message with id {}, because {}", transfer.getFullMessageId(), reason);
+    }
+
+    private int sendMessageChunk(OutboundMessageChunkTransfer transfer, EncryptedSentMessageChunkDTO messageChunk) throws JsonProcessingException {
+        EncryptedPacket encryptedPacket = packetEncryptionService.wrapMessageChunkInEncryptedPacket(messageChunk);
+        String serializedEncryptedPacket = objectMapper.writeValueAsString(encryptedPacket);
+        if (Objects.isNull(transfer)) {
+            outboundMessageScheduler.sendBulk(serializedEncryptedPacket, CHAT_SERVER_MESSAGE_SINGLE_CHUNK_SENDING_DESTINATION);
+        } else {
+            int serialNumberWithinFullMessage = messageChunk.getSerialNumberWithinFullMessage();
+            outboundMessageScheduler.sendBulk(serializedEncryptedPacket, CHAT_SERVER_MESSAGE_SINGLE_CHUNK_SENDING_DESTINATION,
+                    dispatchedAtMs -> transferExecutor.execute(() -> transfer.markDispatched(serialNumberWithinFullMessage, dispatchedAtMs)));
+        }
+        return OutboundMessageScheduler.estimateWireSizeInBytes(serializedEncryptedPacket, CHAT_SERVER_MESSAGE_SINGLE_CHUNK_SENDING_DESTINATION);
+    }
+
+    private void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.warn("Failed to close the content of a chunked transfer, reason: {}", e.getMessage());
+        }
+    }
+
+}
@@ -1,19 +1,19 @@
 package com.tpeterb.securechatclient.messages.service;
 
-import static com.tpeterb.securechatclient.constants.Constants.MESSAGE_SLICING_SIZE_THRESHOLD_IN_BYTES;
-
-import com.tpeterb.securechatclient.security.model.EncryptedReceivedMessageChunkDTO;
-import com.tpeterb.securechatclient.security.model.EncryptedReceivedMessageDTO;
-import com.tpeterb.securechatclient.security.model.EncryptedSentMessageChunkDTO;
+import com.tpeterb.securechatclient.messages.factory.MessageFactory;
+import com.tpeterb.securechatclient.messages.model.MessageContentType;
+import com.tpeterb.securechatclient.messages.model.MessageDTO;
+import com.tpeterb.securechatclient.messages.model.MessageReassemblyBuffer;
+import com.tpeterb.securechatclient.messages.storage.MediaFileStore;
 import com.tpeterb.securechatclient.security.model.EncryptedSentMessageDTO;
-import com.tpeterb.securechatclient.security.model.EncryptionResult;
+import com.tpeterb.securechatclient.security.service.SymmetricCipherService;
 import com.tpeterb.securechatclient.users.session.UserSession;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
-import java.util.UUID;
+import java.util.Objects;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -26,76 +26,93 @@ public class MessagePartitioningService {
 
     private final UserSession userSession;
 
+    private final SymmetricCipherService symmetricCipherService;
+
+    private final MediaFileStore mediaFileStore;
+
     @Inject
-    public MessagePartitioningService(UserSession userSession) {
+    public MessagePartitioningService(UserSession userSession,
+                                      SymmetricCipherService symmetricCipherService,
+                                      MediaFileStore mediaFileStore) {
         this.userSession = userSession;
+        this.symmetricCipherService = symmetricCipherService;
+        this.mediaFileStore = mediaFileStore;
+    }
+
+    public MessageDTO assembleMessageChunks(MessageReassemblyBuffer fullyReceivedMessage) {
+        byte[] decryptedMessageContent = symmetricCipherService.decryptData(
+                fullyReceivedMessage.getContentAsByteBuffer(),
+                fullyReceivedMessage.getFullMessageContentEncryptionKey(),
+                fullyReceivedMessage.getFullMessageContentInitializationVector()
+        );
+        if (Objects.isNull(decryptedMessageContent)) {
+            log.error("Failed to decrypt reassembled message with id {}", fullyReceivedMessage.getFullMessageId());
+            return null;
+        }
+        return MessageFactory.createMessage(
+                fullyReceivedMessage.getFullMessageId(),
+                fullyReceivedMessage.getSender(),
+                fullyReceivedMessage.getReceiver(),
+                fullyReceivedMessage.getMessageContentType(),
+                Instant.now(),
+                decryptedMessageContent
+        );
     }
 
-    public EncryptedReceivedMessageDTO assembleMessageChunks(Set<EncryptedReceivedMessageChunkDTO> messageChunks) {
-        EncryptedReceivedMessageChunkDTO firstMessageChunk = messageChunks.stream().findFirst().get();
-        byte[] fullMessageBytes = new byte[firstMessageChunk.getSizeOfFullMessageInBytes()];
-        for (EncryptedReceivedMessageChunkDTO messageChunkDTO : messageChunks) {
-            byte[] messageChunkContentBytes = messageChunkDTO.getContent();
-            System.arraycopy(
-                    messageChunkContentBytes,
-                    0,
-                    fullMessageBytes,
-                    MESSAGE_SLICING_SIZE_THRESHOLD_IN_BYTES * (messageChunkDTO.getSerialNumberWithinFullMessage() - 1),
-                    messageChunkContentBytes.length
-            );
+    public MessageDTO assembleIndependentlyDecryptedMessageChunks(MessageReassemblyBuffer fullyReceivedMessage) {
+        MessageContentType messageContentType = fullyReceivedMessage.getMessageContentType();
+        if (Objects.nonNull(messageContentType) && messageContentType.isImage()) {
+            File contentFile = fullyReceivedMessage.detachContentFile();
+            if (Objects.nonNull(contentFile)) {
+                return assembleMediaMessageFromFile(fullyReceivedMessage, contentFile);
+            }
         }
-        return EncryptedReceivedMessageDTO.builder()
-                .id(firstMessageChunk.getFullMessageId())
-                .sender(firstMessageChunk.getSender())
-                .receiver(firstMessageChunk.getReceiver())
-                .content(new EncryptionResult(
-                        fullMessageBytes,
-                        firstMessageChunk.getFullMessageContentInitializationVector()
-                ))
-                .messageContentType(firstMessageChunk.getMessageContentType())
-                .timestamp(Instant.now())
-                .contentEncryptionKey(firstMessageChunk.getFullMessageContentEncryptionKey())
-                .build();
+        return MessageFactory.createMessage(
+                fullyReceivedMessage.getFullMessageId(),
+                fullyReceivedMessage.getSender(),
+                fullyReceivedMessage.getReceiver(),
+                messageContentType,
+                fullyReceivedMessage.getTimestamp(),
+                fullyReceivedMessage.getContentAsByteArray()
+        );
+    }
+
+    public EncryptedMessageChunkStream openEncryptedMessageChunkStream(EncryptedSentMessageDTO fullMessageHeader,
+                                                                       byte[] contentEncryptionKey,
+                                                                       InputStream contentStream,
+                                                                       int contentSizeInBytes,
+                                                                       int chunkSizeInBytes) {
+        log.info("Opening encrypted chunk stream for message with id {}, content size = {} bytes, chunk size = {} bytes", fullMessageHeader.getId(), contentSizeInBytes, chunkSizeInBytes);
+        return new EncryptedMessageChunkStream(
+                symmetricCipherService,
+                contentStream,
+                fullMessageHeader,
+                contentEncryptionKey,
+                userSession.getSessionId(),
+                contentSizeInBytes,
+                chunkSizeInBytes
+        );
     }
 
-    public List<EncryptedSentMessageChunkDTO> partitionMessageIntoChunks(EncryptedSentMessageDTO message) {
-        List<EncryptedSentMessageChunkDTO> messageChunks = new ArrayList<>();
-        byte[] messageBytes = message.getContent().getEncryptedData();
-        log.info("TELJES TITKOSÍTOTT ÜZENET MÉRETE = {} bájt", messageBytes.length);
-        int numberOfChunks = (int) Math.ceil((double) messageBytes.length / MESSAGE_SLICING_SIZE_THRESHOLD_IN_BYTES);
-        for (int i = 1; i <= numberOfChunks; i++) {
-            byte[] messageChunkBytes = new byte[i == numberOfChunks
-                    ? messageBytes.length - (i - 1) * MESSAGE_SLICING_SIZE_THRESHOLD_IN_BYTES
-                    : MESSAGE_SLICING_SIZE_THRESHOLD_IN_BYTES];
-            System.arraycopy(
-                    messageBytes,
-                    (i - 1) * MESSAGE_SLICING_SIZE_THRESHOLD_IN_BYTES,
-                    messageChunkBytes,
-                    0,
-                    messageChunkBytes.length);
-            log.info("i = {}, messageChunkBytes size = {}", i, messageChunkBytes.length);
-            EncryptedSentMessageChunkDTO encryptedSentMessageChunkDTO = EncryptedSentMessageChunkDTO.builder()
-                    .sessionId(userSession.getSessionId())
-                    .fullMessageId(message.getId())
-                    .messageChunkId(UUID.randomUUID().toString())
-                    .serialNumberWithinFullMessage(i)
-                    .numberOfChunksOfFullMessage(numberOfChunks)
-                    .sizeOfFullMessageInBytes(messageBytes.length)
-                    .sender(message.getSender())
-                    .receiver(message.getReceiver())
-                    .content(messageChunkBytes)
-                    .messageContentType(message.getMessageContentType())
-                    .timestamp(message.getTimestamp())
-                    .fullMessageContentEncryptionKey(message.getContentEncryptionKey())
-                    .fullMessageContentInitializationVector(message.getContent().getInitializationVector())
-                    .build();
-            log.info("CHUNK: FULL MESSAGE ID = {}", encryptedSentMessageChunkDTO.getFullMessageId());
-            log.info("CHUNK: CHUNK ID = {}", encryptedSentMessageChunkDTO.getMessageChunkId());
-            log.info("CHUNK: SERIAL NUMBER = {}", encryptedSentMessageChunkDTO.getSerialNumberWithinFullMessage());
-            log.info("CHUNK: NOC = {}", encryptedSentMessageChunkDTO.getNumberOfChunksOfFullMessage());
-            messageChunks.add(encryptedSentMessageChunkDTO);
+    private MessageDTO assembleMediaMessageFromFile(MessageReassemblyBuffer fullyReceivedMessage, File contentFile) {
+        File mediaFile;
+        try {
+            mediaFile = mediaFileStore.moveToMediaFile(contentFile);
+        } catch (IOException e) {
+            log.error("Failed to move reassembled media of message with id {} to the media store, reason: {}", fullyReceivedMessage.getFullMessageId(), e.getMessage());
+            mediaFileStore.deleteMediaFile(contentFile);
+            return null;
         }
-        return messageChunks;
+        return MessageFactory.createMediaMessage(
+                fullyReceivedMessage.getFullMessageId(),
+                fullyReceivedMessage.getSender(),
+                fullyReceivedMessage.getReceiver(),
+                fullyReceivedMessage.getMessageContentType(),
+                fullyReceivedMessage.getTimestamp(),
+                mediaFile,
+                null,
+                null
+        );
     }
 
 }
@@ -2,33 +2,43 @@ package com.tpeterb.securechatclient.messages.service;
 
 import static com.tpeterb.securechatclient.constants.Constants.CHAT_SERVER_CONVERSATION_PART_FETCH_REQUEST_DESTINATION;
 import static com.tpeterb.securechatclient.constants.Constants.CHAT_SERVER_FULL_MESSAGE_RECEIPT_ACKNOWLEDGEMENT_DESTINATION;
-import static com.tpeterb.securechatclient.constants.Constants.CHAT_SERVER_MESSAGE_SINGLE_CHUNK_SENDING_DESTINATION;
+import static com.tpeterb.securechatclient.constants.Constants.CHAT_SERVER_MESSAGE_CHUNK_RECEIPT_ACKNOWLEDGEMENT_DESTINATION;
 import static com.tpeterb.securechatclient.constants.Constants.CHAT_SERVER_MESSAGE_SINGLE_SENDING_DESTINATION;
+import static com.tpeterb.securechatclient.constants.Constants.CHAT_SERVER_MISSING_MESSAGE_CHUNKS_REQUEST_DESTINATION;
 import static com.tpeterb.securechatclient.constants.Constants.MESSAGE_SLICING_SIZE_THRESHOLD_IN_BYTES;
 import static com.tpeterb.securechatclient.constants.Constants.SERVER_PUBLIC_KEY_FOR_MESSAGES_REQUEST_DESTINATION;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tpeterb.securechatclient.exception.AsymmetricEncryptionException;
-import com.tpeterb.securechatclient.messages.delivery.WebSocketClient;
+import com.tpeterb.securechatclient.messages.delivery.OutboundMessageScheduler;
+import com.tpeterb.securechatclient.messages.factory.MessageFactory;
+import com.tpeterb.securechatclient.messages.model.ConversationPartFetchDirection;
 import com.tpeterb.securechatclient.messages.model.ConversationPartFetchRequestDTO;
 import com.tpeterb.securechatclient.messages.model.FullMessageAcknowledgementDTO;
+import com.tpeterb.securechatclient.messages.model.MessageChunkAcknowledgementDTO;
 import com.tpeterb.securechatclient.messages.model.MessageChunkDTO;
 import com.tpeterb.securechatclient.messages.model.MessageContentType;
 import com.tpeterb.securechatclient.messages.model.MessageDTO;
+import com.tpeterb.securechatclient.messages.model.MissingMessageChunksRequestDTO;
+import com.tpeterb.securechatclient.messages.model.PreparedImage;
 import com.tpeterb.securechatclient.messages.registry.MessageRegistry;
+import com.tpeterb.securechatclient.messages.storage.MediaFileStore;
 import com.tpeterb.securechatclient.security.model.EncryptedPacket;
-import com.tpeterb.securechatclient.security.model.EncryptedSentMessageChunkDTO;
-import com.tpeterb.securechatclient.security.model.EncryptionResult;
 import com.tpeterb.securechatclient.security.model.ServerMessagePublicKeyRequestDTO;
 import com.tpeterb.securechatclient.security.service.PacketEncryptionService;
 import com.tpeterb.securechatclient.users.session.UserSession;
+import com.tpeterb.securechatclient.utils.TimeOrderedIdGenerator;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.Collections;
-import java.util.List;
-import java.util.UUID;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -43,7 +53,7 @@ public class MessageService {
 
     private final PacketEncryptionService packetEncryptionService;
 
-    private final WebSocketClient webSocketClient;
+    private final OutboundMessageScheduler outboundMessageScheduler;
 
     private final MessagePartitioningService messagePartitioningService;
 
@@ -51,29 +61,62 @@ public class MessageService {
 
     private final MessageRegistry messageRegistry;
 
+    private final MessageChunkTransferService messageChunkTransferService;
+
+    private final MediaFileStore mediaFileStore;
+
+    private final Set<String> conversationsWithBackgroundFetchInFlight;
+
     @Inject
     public MessageService(ObjectMapper objectMapper,
                           PacketEncryptionService packetEncryptionService,
-                          WebSocketClient webSocketClient,
+                          OutboundMessageScheduler outboundMessageScheduler,
                           MessagePartitioningService messagePartitioningService,
                           UserSession userSession,
-                          MessageRegistry messageRegistry) {
+                          MessageRegistry messageRegistry,
+                          MessageChunkTransferService messageChunkTransferService,
+                          MediaFileStore mediaFileStore) {
         this.objectMapper = objectMapper;
         this.packetEncryptionService = packetEncryptionService;
-        this.webSocketClient = webSocketClient;
+        this.outboundMessageScheduler = outboundMessageScheduler;
         this.messagePartitioningService = messagePartitioningService;
         this.userSession = userSession;
         this.messageRegistry = messageRegistry;
+        this.messageChunkTransferService = messageChunkTransferService;
+        this.mediaFileStore = mediaFileStore;
+        conversationsWithBackgroundFetchInFlight = ConcurrentHashMap.newKeySet();
+    }
+
+    public void initiateFetchingMessagesBeforeCursor(MessageDTO cursorMessage, int messageCount, String loggedInUsername, String otherChatParticipantUsername) {
+        conversationsWithBackgroundFetchInFlight.remove(otherChatParticipantUsername);
+        initiateFetchingConversationPart(ConversationPartFetchDirection.BEFORE_CURSOR, cursorMessage, messageCount, loggedInUsername, otherChatParticipantUsername, false);
     }
 
-    public void initiateFetchingLastMessagesForConversation(int numberOfAlreadyFetchedMessages, int messageCount, String loggedInUsername, String otherChatParticipantUsername) {
+    public void initiateFetchingMessagesSinceCursor(MessageDTO cursorMessage, int messageCount, String loggedInUsername, String otherChatParticipantUsername) {
+        conversationsWithBackgroundFetchInFlight.remove(otherChatParticipantUsername);
+        initiateFetchingConversationPart(ConversationPartFetchDirection.SINCE_CURSOR, cursorMessage, messageCount, loggedInUsername, otherChatParticipantUsername, false);
+    }
 
-        ConversationPartFetchRequestDTO conversationPartFetchRequest = new ConversationPartFetchRequestDTO(
-                loggedInUsername,
-                otherChatParticipantUsername,
-                numberOfAlreadyFetchedMessages,
-                messageCount
-        );
+    public void initiateBackgroundFetchingOfNewestMessages(MessageDTO cursorMessage, int messageCount, String loggedInUsername, String otherChatParticipantUsername) {
+        conversationsWithBackgroundFetchInFlight.add(otherChatParticipantUsername);
+        ConversationPartFetchDirection fetchDirection = Objects.nonNull(cursorMessage) ? ConversationPartFetchDirection.SINCE_CURSOR : ConversationPartFetchDirection.BEFORE_CURSOR;
+        initiateFetchingConversationPart(fetchDirection, cursorMessage, messageCount, loggedInUsername, otherChatParticipantUsername, true);
+    }
+
+    public boolean completeBackgroundFetch(String otherChatParticipantUsername) {
+        return conversationsWithBackgroundFetchInFlight.remove(otherChatParticipantUsername);
+    }
+
+    private void initiateFetchingConversationPart(ConversationPartFetchDirection fetchDirection, MessageDTO cursorMessage, int messageCount, String loggedInUsername, String otherChatParticipantUsername, boolean background) {
+
+        ConversationPartFetchRequestDTO conversationPartFetchRequest = ConversationPartFetchRequestDTO.builder()
+                .loggedInUsername(loggedInUsername)
+                .otherChatParticipantUsername(otherChatParticipantUsername)
+                .fetchDirection(fetchDirection)
+                .cursorMessageTimestamp(Objects.nonNull(cursorMessage) ? cursorMessage.getTimestamp() : null)
+                .cursorMessageId(Objects.nonNull(cursorMessage) ? cursorMessage.getId() : null)
+                .numberOfMessagesToFetch(messageCount)
+                .build();
         byte[] conversationPartFetchRequestBytes;
         try {
             conversationPartFetchRequestBytes = objectMapper.writeValueAsBytes(conversationPartFetchRequest);
@@ -92,7 +135,11 @@ public class MessageService {
             log.error("There was an error while converting an encrypted conversation part fetch request to json, reason: {}", e.getMessage());
             return;
         }
-        webSocketClient.sendMessage(serializedEncryptedPacket, CHAT_SERVER_CONVERSATION_PART_FETCH_REQUEST_DESTINATION);
+        if (background) {
+            outboundMessageScheduler.sendBulk(serializedEncryptedPacket, CHAT_SERVER_CONVERSATION_PART_FETCH_REQUEST_DESTINATION);
+        } else {
+            outboundMessageScheduler.sendHighPriority(serializedEncryptedPacket, CHAT_SERVER_CONVERSATION_PART_FETCH_REQUEST_DESTINATION);
+        }
 
     }
 
@@ -117,25 +164,63 @@ public class MessageService {
             return;
         }
         log.info("Sending server message public key request, request = {}", serverMessagePublicKeyRequestDTO);
-        webSocketClient.sendMessage(serializedEncryptedPacket, SERVER_PUBLIC_KEY_FOR_MESSAGES_REQUEST_DESTINATION);
+        outboundMessageScheduler.sendHighPriority(serializedEncryptedPacket, SERVER_PUBLIC_KEY_FOR_MESSAGES_REQUEST_DESTINATION);
     }
 
     public void sendMessageToChatPartner(String messageContent, MessageContentType messageContentType, String chatPartnerUsername) {
-        MessageDTO message = new MessageDTO(
-                UUID.randomUUID().toString(),
+        sendContentToChatPartner(messageContent.getBytes(StandardCharsets.UTF_8), messageContentType, chatPartnerUsername);
+    }
+
+    public void sendMediaToChatPartner(PreparedImage preparedImage, String chatPartnerUsername) {
+        File contentFile = preparedImage.getContentFile();
+        if (preparedImage.getSizeInBytes() <= MESSAGE_SLICING_SIZE_THRESHOLD_IN_BYTES) {
+            byte[] mediaContent;
+            try {
+                mediaContent = mediaFileStore.readMediaFile(contentFile);
+            } catch (IOException e) {
+                log.error("There was an error while reading the prepared image to send, reason: {}", e.getMessage());
+                return;
+            } finally {
+                mediaFileStore.deleteMediaFile(contentFile);
+            }
+            sendContentToChatPartner(mediaContent, preparedImage.getMessageContentType(), chatPartnerUsername);
+            return;
+        }
+        InputStream contentStream;
+        try {
+            contentStream = mediaFileStore.openMediaFileForReading(contentFile);
+        } catch (IOException e) {
+            log.error("There was an error while opening the prepared image to send, reason: {}", e.getMessage());
+            return;
+        }
+        MessageDTO message = MessageFactory.createMediaMessage(
+                TimeOrderedIdGenerator.generateId(),
+                userSession.getUsername(),
+                chatPartnerUsername,
+                preparedImage.getMessageContentType(),
+                Instant.now(),
+                contentFile,
+                preparedImage.getWidth(),
+                preparedImage.getHeight()
+        );
+        messageRegistry.addMessageToRegistry(chatPartnerUsername, message);
+        messageChunkTransferService.startTransfer(message, contentStream, preparedImage.getSizeInBytes());
+    }
+
+    private void sendContentToChatPartner(byte[] messageBytes, MessageContentType messageContentType, String chatPartnerUsername) {
+        MessageDTO message = MessageFactory.createMessage(
+                TimeOrderedIdGenerator.generateId(),
                 userSession.getUsername(),
                 chatPartnerUsername,
-                messageContent,
                 messageContentType,
-                Instant.now()
+                Instant.now(),
+                messageBytes
         );
         messageRegistry.addMessageToRegistry(chatPartnerUsername, message);
-        Collections.sort(messageRegistry.getMessagesForChatPartner(chatPartnerUsername));
-        byte[] messageBytes = messageContent.getBytes(StandardCharsets.UTF_8);
         if (messageBytes.length <= MESSAGE_SLICING_SIZE_THRESHOLD_IN_BYTES) {
             sendEntireMessageToChatPartner(message);
         } else {
-            sendMessageChunksToChatPartner(message);
+            messageChunkTransferService.startTransfer(message, new ByteArrayInputStream(messageBytes), messageBytes.length);
         }
     }
 
@@ -157,34 +242,62 @@ public class MessageService {
             log.error("There was an error while trying to serialize encrypted message acknowledgement! Reason: {}", e.getMessage());
             return;
         }
-        webSocketClient.sendMessage(serializedEncryptedPacket, CHAT_SERVER_FULL_MESSAGE_RECEIPT_ACKNOWLEDGEMENT_DESTINATION);
+        outboundMessageScheduler.sendHighPriority(serializedEncryptedPacket, CHAT_SERVER_FULL_MESSAGE_RECEIPT_ACKNOWLEDGEMENT_DESTINATION);
 
     }
 
-    private void sendEntireMessageToChatPartner(MessageDTO message) {
+    public void sendAcknowledgementForMessageChunk(String fullMessageId, int serialNumberWithinFullMessage, String messageSender) {
+        MessageChunkAcknowledgementDTO acknowledgement = new MessageChunkAcknowledgementDTO(
+                fullMessageId,
+                serialNumberWithinFullMessage,
+                messageSender
+        );
+        byte[] acknowledgementBytes;
         try {
-            EncryptedPacket encryptedPacket = packetEncryptionService.wrapFullChatMessageInEncryptedPacket(message);
-            String serializedEncryptedPacket = objectMapper.writeValueAsString(encryptedPacket);
-            webSocketClient.sendMessage(serializedEncryptedPacket, CHAT_SERVER_MESSAGE_SINGLE_SENDING_DESTINATION);
-        } catch (AsymmetricEncryptionException e) {
-            log.error("There was an error while encrypting the message to send, reason: {}", e.getMessage());
+            acknowledgementBytes = objectMapper.writeValueAsBytes(acknowledgement);
         } catch (JsonProcessingException e) {
-            log.error("Failed to serialize message to send, reason: {}", e.getMessage());
+            log.error("There was an error while trying to serialize message chunk acknowledgement! Reason: {}", e.getMessage());
+            return;
+        }
+        EncryptedPacket encryptedPacket = packetEncryptionService.encryptEntirePacket(acknowledgementBytes);
+        String serializedEncryptedPacket;
+        try {
+            serializedEncryptedPacket = objectMapper.writeValueAsString(encryptedPacket);
+        } catch (JsonProcessingException e) {
+            log.error("There was an error while trying to serialize encrypted message chunk acknowledgement! Reason: {}", e.getMessage());
+            return;
         }
+        outboundMessageScheduler.sendHighPriority(serializedEncryptedPacket, CHAT_SERVER_MESSAGE_CHUNK_RECEIPT_ACKNOWLEDGEMENT_DESTINATION);
     }
 
-    private void sendMessageChunksToChatPartner(MessageDTO messageDTO) {
+    public void sendMissingMessageChunksRequest(MissingMessageChunksRequestDTO missingMessageChunksRequest) {
+        byte[] missingMessageChunksRequestBytes;
         try {
-            List<EncryptedPacket> encryptedMessageChunkPackets = packetEncryptionService.wrapTooBigChatMessageInEncryptedChunkPackets(messageDTO);
-            for (final EncryptedPacket encryptedPacket : encryptedMessageChunkPackets) {
-                String serializedEncryptedPacket = objectMapper.writeValueAsString(encryptedPacket);
-                webSocketClient.sendMessage(serializedEncryptedPacket, CHAT_SERVER_MESSAGE_SINGLE_CHUNK_SENDING_DESTINATION);
-                log.info("SERIALIZED JSON MESSAGE CHUNK IN sendMessageChunkToChatPartner IN MESSAGE SERVICE CLASS = {}", serializedEncryptedPacket);
-            }
+            missingMessageChunksRequestBytes = objectMapper.writeValueAsBytes(missingMessageChunksRequest);
+        } catch (JsonProcessingException e) {
+            log.error("There was an error while trying to serialize missing message chunks request! Reason: {}", e.getMessage());
+            return;
+        }
+        EncryptedPacket encryptedPacket = packetEncryptionService.encryptEntirePacket(missingMessageChunksRequestBytes);
+        String serializedEncryptedPacket;
+        try {
+            serializedEncryptedPacket = objectMapper.writeValueAsString(encryptedPacket);
         } catch (JsonProcessingException e) {
-            log.error("There was an error while trying to serialize the message chunk to send to JSON, reason: {}", e.getMessage());
+            log.error("There was an error while trying to serialize encrypted missing message chunks request! Reason: {}", e.getMessage());
+            return;
+        }
+        outboundMessageScheduler.sendHighPriority(serializedEncryptedPacket, CHAT_SERVER_MISSING_MESSAGE_CHUNKS_REQUEST_DESTINATION);
+    }
+
+    private void sendEntireMessageToChatPartner(MessageDTO message) {
+        try {
+            EncryptedPacket encryptedPacket = packetEncryptionService.wrapFullChatMessageInEncryptedPacket(message);
+            String serializedEncryptedPacket = objectMapper.writeValueAsString(encryptedPacket);
+            outboundMessageScheduler.sendHighPriority(serializedEncryptedPacket, CHAT_SERVER_MESSAGE_SINGLE_SENDING_DESTINATION);
         } catch (AsymmetricEncryptionException e) {
-            log.error("Failed to encrypt message chunk to send, reason: {}", e.getMessage());
+            log.error("There was an error while encrypting the message to send, reason: {}", e.getMessage());
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize message to send, reason: {}", e.getMessage());
         }
     }
 
@@ -0,0 +1,143 @@
+package com.tpeterb.securechatclient.messages.service;
+
+import com.tpeterb.securechatclient.security.model.EncryptedSentMessageChunkDTO;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+
+import lombok.Getter;
+
+class OutboundMessageChunkTransfer {
+
+    @Getter
+    private final EncryptedMessageChunkStream messageChunkStream;
+
+    @Getter
+    private final int sizeOfFullMessageInBytes;
+
+    @Getter
+    private final long startTimeMs;
+
+    private final int maxSendWindowSizeInChunks;
+
+    private final LinkedHashMap<Integer, InFlightMessageChunk> inFlightMessageChunks;
+
+    private double sendWindowSizeInChunks;
+
+    private int numberOfAcknowledgedChunks;
+
+    @Getter
+    private long numberOfAcknowledgedBytes;
+
+    @Getter
+    private long numberOfAcknowledgedWireBytes;
+
+    OutboundMessageChunkTransfer(EncryptedMessageChunkStream messageChunkStream,
+                                 int sizeOfFullMessageInBytes,
+                                 int initialSendWindowSizeInChunks,
+                                 int maxSendWindowSizeInChunks,
+                                 long startTimeMs) {
+        this.messageChunkStream = messageChunkStream;
+        this.sizeOfFullMessageInBytes = sizeOfFullMessageInBytes;
+        this.maxSendWindowSizeInChunks = maxSendWindowSizeInChunks;
+        this.startTimeMs = startTimeMs;
+        inFlightMessageChunks = new LinkedHashMap<>();
+        sendWindowSizeInChunks = initialSendWindowSizeInChunks;
+        numberOfAcknowledgedChunks = 0;
+        numberOfAcknowledgedBytes = 0;
+        numberOfAcknowledgedWireBytes = 0;
+    }
+
+    String getFullMessageId() {
+        return messageChunkStream.getFullMessageId();
+    }
+
+    boolean canSendNextChunk() {
+        return messageChunkStream.hasNextChunk() && inFlightMessageChunks.size() < (int) sendWindowSizeInChunks;
+    }
+
+    boolean isComplete() {
+        return numberOfAcknowledgedChunks == messageChunkStream.getNumberOfChunks();
+    }
+
+    void markQueued(EncryptedSentMessageChunkDTO messageChunk, int wireSizeInBytes) {
+        inFlightMessageChunks.put(messageChunk.getSerialNumberWithinFullMessage(), new InFlightMessageChunk(messageChunk, wireSizeInBytes));
+    }
+
+    void markDispatched(int serialNumberWithinFullMessage, long dispatchedAtMs) {
+        InFlightMessageChunk inFlightMessageChunk = inFlightMessageChunks.get(serialNumberWithinFullMessage);
+        if (Objects.nonNull(inFlightMessageChunk)) {
+            inFlightMessageChunk.markDispatched(dispatchedAtMs);
+        }
+    }
+
+    boolean isQueuedForDispatch(int serialNumberWithinFullMessage) {
+        InFlightMessageChunk inFlightMessageChunk = inFlightMessageChunks.get(serialNumberWithinFullMessage);
+        return Objects.nonNull(inFlightMessageChunk) && !inFlightMessageChunk.dispatched;
+    }
+
+    InFlightMessageChunk acknowledge(int serialNumberWithinFullMessage) {
+        InFlightMessageChunk acknowledgedMessageChunk = inFlightMessageChunks.remove(serialNumberWithinFullMessage);
+        if (Objects.nonNull(acknowledgedMessageChunk)) {
+            numberOfAcknowledgedChunks++;
+            numberOfAcknowledgedBytes += acknowledgedMessageChunk.getMessageChunk().getContent().length;
+            numberOfAcknowledgedWireBytes += acknowledgedMessageChunk.getWireSizeInBytes();
+            sendWindowSizeInChunks = Math.min(maxSendWindowSizeInChunks, sendWindowSizeInChunks + 1 / sendWindowSizeInChunks);
+        }
+        return acknowledgedMessageChunk;
+    }
+
+    List<InFlightMessageChunk> collectTimedOutMessageChunks(long nowMs, long retransmissionTimeoutMs) {
+        List<InFlightMessageChunk> timedOutMessageChunks = new ArrayList<>();
+        for (InFlightMessageChunk inFlightMessageChunk : inFlightMessageChunks.values()) {
+            if (!inFlightMessageChunk.dispatched) {
+                continue;
+            }
+            long backedOffTimeoutMs = retransmissionTimeoutMs << Math.min(inFlightMessageChunk.numberOfAttempts - 1, 5);
+            if (nowMs - inFlightMessageChunk.sentAtMs >= backedOffTimeoutMs) {
+                timedOutMessageChunks.add(inFlightMessageChunk);
+            }
+        }
+        if (!timedOutMessageChunks.isEmpty()) {
+            sendWindowSizeInChunks = Math.max(1, sendWindowSizeInChunks / 2);
+        }
+        return timedOutMessageChunks;
+    }
+
+    @Getter
+    static class InFlightMessageChunk {
+
+        private final EncryptedSentMessageChunkDTO messageChunk;
+
+        private final int wireSizeInBytes;
+
+        private long sentAtMs;
+
+        private boolean dispatched;
+
+        private int numberOfAttempts;
+
+        private InFlightMessageChunk(EncryptedSentMessageChunkDTO messageChunk, int wireSizeInBytes) {
+            this.messageChunk = messageChunk;
+            this.wireSizeInBytes = wireSizeInBytes;
+            dispatched = false;
+            numberOfAttempts = 1;
+        }
+
+        void markRetransmitted() {
+            dispatched = false;
+            numberOfAttempts++;
+        }
+
+        private void markDispatched(long dispatchedAtMs) {
+            if (!dispatched) {
+                sentAtMs = dispatchedAtMs;
+                dispatched = true;
+            }
+        }
+
+    }
+
+}
@@ -1,7 +1,10 @@
 package com.tpeterb.securechatclient.messages.service;
 
 import static com.tpeterb.securechatclient.constants.Constants.MESSAGE_BULK_FETCHING_GENERAL_DESTINATION;
+import static com.tpeterb.securechatclient.constants.Constants.MESSAGE_CHUNK_ACKNOWLEDGEMENT_RECEIVING_GENERAL_DESTINATION;
+import static com.tpeterb.securechatclient.constants.Constants.MISSING_MESSAGE_CHUNKS_REQUEST_RECEIVING_GENERAL_DESTINATION;
 import static com.tpeterb.securechatclient.constants.Constants.NEW_KEY_EXCHANGE_SIGNALING_GENERAL_ENDPOINT;
+import static com.tpeterb.securechatclient.constants.Constants.NUMBER_OF_MESSAGES_TO_FETCH_AT_ONCE;
 import static com.tpeterb.securechatclient.constants.Constants.SERVER_PUBLIC_KEY_FOR_MESSAGES_DESTINATION_GENERAL_DESTINATION;
 import static com.tpeterb.securechatclient.constants.Constants.SINGLE_MESSAGE_CHUNK_RECEIVING_GENERAL_DESTINATION;
 import static com.tpeterb.securechatclient.constants.Constants.SINGLE_MESSAGE_RECEIVING_GENERAL_DESTINATION;
@@ -17,10 +20,14 @@ import androidx.lifecycle.ProcessLifecycleOwner;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tpeterb.securechatclient.messages.listener.ConversationPartReceivedListener;
 import com.tpeterb.securechatclient.messages.listener.PersonalChatMessageBulkUpdateListener;
 import com.tpeterb.securechatclient.messages.listener.PersonalChatMessageSingleUpdateListener;
+import com.tpeterb.securechatclient.messages.model.ConversationPartFetchDirection;
 import com.tpeterb.securechatclient.messages.model.ConversationPartFetchResponseDTO;
+import com.tpeterb.securechatclient.messages.model.MessageChunkAcknowledgementDTO;
 import com.tpeterb.securechatclient.messages.model.MessageDTO;
+import com.tpeterb.securechatclient.messages.model.MissingMessageChunksRequestDTO;
 import com.tpeterb.securechatclient.messages.registry.ChatPartnerRegistry;
 import com.tpeterb.securechatclient.messages.registry.MessageChunkRegistry;
 import com.tpeterb.securechatclient.messages.registry.MessageRegistry;
@@ -42,7 +49,7 @@ import com.tpeterb.securechatclient.users.session.UserSession;
 
 import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -78,6 +85,8 @@ public class StompSubscriptionService {
 
     private final MessageService messageService;
 
+    private final MessageChunkTransferService messageChunkTransferService;
+
     private final ObjectMapper objectMapper;
 
     private final StompClient stompClient;
@@ -94,6 +103,9 @@ public class StompSubscriptionService {
     @Setter
     private PersonalChatMessageSingleUpdateListener personalChatMessageSingleUpdateListener;
 
+    @Setter
+    private volatile ConversationPartReceivedListener conversationPartReceivedListener;
+
     @Setter
     private Handler handler;
 
@@ -110,6 +122,7 @@ public class StompSubscriptionService {
                                      MessageRegistry messageRegistry,
                                      MessageChunkRegistry messageChunkRegistry,
                                      MessageService messageService,
+                                     MessageChunkTransferService messageChunkTransferService,
                                      ObjectMapper objectMapper,
                                      StompClient stompClient,
                                      ServerPublicKeyCache serverPublicKeyCache,
@@ -125,6 +138,7 @@ public class StompSubscriptionService {
         this.messageRegistry = messageRegistry;
         this.messageChunkRegistry = messageChunkRegistry;
         this.messageService = messageService;
+        this.messageChunkTransferService = messageChunkTransferService;
         this.objectMapper = objectMapper;
         this.stompClient = stompClient;
         this.serverPublicKeyCache = serverPublicKeyCache;
@@ -178,8 +192,12 @@ public class StompSubscriptionService {
     }
 
     public void subscribeToConversationPartFetchingDestination(PersonalChatMessageBulkUpdateListener personalChatMessageBulkUpdateListener) {
-        String subscriptionDestination = MESSAGE_BULK_FETCHING_GENERAL_DESTINATION + userSession.getUsername();
         this.personalChatMessageBulkUpdateListener = personalChatMessageBulkUpdateListener;
+        subscribeToConversationPartFetchingDestination();
+    }
+
+    public void subscribeToConversationPartFetchingDestination() {
+        String subscriptionDestination = MESSAGE_BULK_FETCHING_GENERAL_DESTINATION + userSession.getUsername();
         if (!stompSubscriptionRegistry.isSubscriptionRegistered(subscriptionDestination)) {
             Disposable disposable = stompClient.topic(subscriptionDestination)
                     .subscribe(stompMessage -> {
@@ -191,17 +209,38 @@ public class StompSubscriptionService {
                         log.info("NONCE AFTER RECEIVAL: {}", encryptedPacket.getEncryptionResult().getInitializationVector());
                         byte[] decryptedPacket = packetEncryptionService.decryptEntirePacket(encryptedPacket);
                         ConversationPartFetchResponseDTO conversationPartFetchResponseDTO = objectMapper.readValue(decryptedPacket, new TypeReference<ConversationPartFetchResponseDTO>() {});
-                        List<EncryptedReceivedMessageDTO> encryptedMessages = conversationPartFetchResponseDTO.getMessages();
+                        String chatPartnerUsername = conversationPartFetchResponseDTO.getChatPartnerUsername();
+                        List<EncryptedReceivedMessageDTO> encryptedMessages = new ArrayList<>();
+                        for (EncryptedReceivedMessageDTO encryptedMessage : conversationPartFetchResponseDTO.getMessages()) {
+                            if (!messageRegistry.containsResidentMessage(chatPartnerUsername, encryptedMessage.getId())) {
+                                encryptedMessages.add(encryptedMessage);
+                            }
+                        }
                         List<MessageDTO> decryptedMessages = packetEncryptionService.decryptFullChatMessages(encryptedMessages);
-                        messageRegistry.addAllMessagesToRegistry(conversationPartFetchResponseDTO.getChatPartnerUsername(), decryptedMessages);
-                        Collections.sort(messageRegistry.getMessagesForChatPartner(conversationPartFetchResponseDTO.getChatPartnerUsername()));
+                        messageRegistry.addAllMessagesToRegistry(chatPartnerUsername, decryptedMessages);
+                        messageRegistry.recordConversationPartFetchResult(chatPartnerUsername, conversationPartFetchResponseDTO.getFetchDirection(), conversationPartFetchResponseDTO.isHasMore());
                         log.info("Received conversation part, messages = {}", decryptedMessages);
-                        if (Objects.nonNull(handler)) {
+                        boolean backgroundFetch = messageService.completeBackgroundFetch(chatPartnerUsername);
+                        boolean hasMoreNewerMessages = conversationPartFetchResponseDTO.getFetchDirection() == ConversationPartFetchDirection.SINCE_CURSOR
+                                && conversationPartFetchResponseDTO.isHasMore()
+                                && !conversationPartFetchResponseDTO.getMessages().isEmpty();
+                        if (hasMoreNewerMessages && !backgroundFetch) {
+                            messageService.initiateFetchingMessagesSinceCursor(
+                                    messageRegistry.getNewestMessageForChatPartner(chatPartnerUsername),
+                                    NUMBER_OF_MESSAGES_TO_FETCH_AT_ONCE,
+                                    userSession.getUsername(),
+                                    chatPartnerUsername
+                            );
+                        }
+                        if (Objects.nonNull(handler) && Objects.nonNull(personalChatMessageBulkUpdateListener)) {
                             handler.post(() -> {
-                                this.personalChatMessageBulkUpdateListener.onNewMessages(decryptedMessages);
+                                this.personalChatMessageBulkUpdateListener.onNewMessages(chatPartnerUsername, decryptedMessages);
                             });
                         }
                         messageService.sendAcknowledgementForFullMessage(conversationPartFetchResponseDTO.getConversationPartId());
+                        if (Objects.nonNull(conversationPartReceivedListener)) {
+                            conversationPartReceivedListener.onConversationPartReceived(chatPartnerUsername, serializedEncryptedPacket.length(), backgroundFetch && hasMoreNewerMessages);
+                        }
                     }, throwable -> {
                         log.error("There was an error while trying to subscribe to conversation fetching destination, reason: {}", throwable.getMessage());
                     });
@@ -221,11 +260,15 @@ public class StompSubscriptionService {
                 EncryptedPacket encryptedPacket = objectMapper.readValue(serializedEncryptedPacket, EncryptedPacket.class);
                 byte[] decryptedPacket = packetEncryptionService.decryptEntirePacket(encryptedPacket);
                 EncryptedReceivedMessageDTO encryptedReceivedMessageDTO = objectMapper.readValue(decryptedPacket, EncryptedReceivedMessageDTO.class);
+                if (messageRegistry.containsMessage(encryptedReceivedMessageDTO.getSender(), encryptedReceivedMessageDTO.getId())) {
+                    log.info("Discarding already known message with id {}", encryptedReceivedMessageDTO.getId());
+                    messageService.sendAcknowledgementForFullMessage(encryptedReceivedMessageDTO.getId());
+                    return;
+                }
                 MessageDTO message = packetEncryptionService.decryptFullChatMessage(encryptedReceivedMessageDTO);
                 String messageSenderUsername = message.getSender();
                 chatPartnerRegistry.addChatPartnerToRegistry(new ChatPartner(messageSenderUsername));
                 messageRegistry.addMessageToRegistry(messageSenderUsername, message);
-                Collections.sort(messageRegistry.getMessagesForChatPartner(messageSenderUsername));
                 log.info("Received message, message = {}", message);
                 if (Objects.nonNull(handler)) {
                     handler.post(() -> {
@@ -252,8 +295,8 @@ public class StompSubscriptionService {
                 EncryptedPacket encryptedPacket = objectMapper.readValue(serializedEncryptedPacket, EncryptedPacket.class);
                 byte[] decryptedPacket = packetEncryptionService.decryptEntirePacket(encryptedPacket);
                 EncryptedReceivedMessageChunkDTO messageChunk = objectMapper.readValue(decryptedPacket, EncryptedReceivedMessageChunkDTO.class);
+                log.debug("Received chunk {} of message with id {}", messageChunk.getSerialNumberWithinFullMessage(), messageChunk.getFullMessageId());
                 messageChunkRegistry.addMessageChunk(messageChunk);
-                log.info("Received message chunk for message with id {}, message chunk = {}", messageChunk.getFullMessageId(), messageChunk);
             }, throwable -> {
                 log.error("There was an error while trying to subscribe to message chunk receiving destination, reason: {}", throwable.getMessage());
             });
@@ -263,6 +306,47 @@ public class StompSubscriptionService {
         }
     }
 
+    public void subscribeToMissingMessageChunksRequestReceivingDestination() {
+
+        String loggedInUsername = userSession.getUsername();
+        String subscriptionDestination = MISSING_MESSAGE_CHUNKS_REQUEST_RECEIVING_GENERAL_DESTINATION + loggedInUsername;
+        if (!stompSubscriptionRegistry.isSubscriptionRegistered(subscriptionDestination)) {
+            Disposable disposable = stompClient.topic(subscriptionDestination).subscribe(stompMessage -> {
+                String serializedEncryptedPacket = stompMessage.getPayload();
+                EncryptedPacket encryptedPacket = objectMapper.readValue(serializedEncryptedPacket, EncryptedPacket.class);
+                byte[] decryptedPacket = packetEncryptionService.decryptEntirePacket(encryptedPacket);
+                MissingMessageChunksRequestDTO missingMessageChunksRequest = objectMapper.readValue(decryptedPacket, MissingMessageChunksRequestDTO.class);
+                log.info("Received request for {} missing chunks of message with id {}", missingMessageChunksRequest.getMissingSerialNumbers().size(), missingMessageChunksRequest.getFullMessageId());
+                messageChunkTransferService.retransmitMissingMessageChunks(missingMessageChunksRequest);
+            }, throwable -> {
+                log.error("There was an error while trying to subscribe to missing message chunks request receiving destination, reason: {}", throwable.getMessage());
+            });
+            stompSubscriptionRegistry.addSubscription(subscriptionDestination, disposable);
+        } else {
+            log.info(EXISTING_SUBSCRIPTION_LOG_MESSAGE);
+        }
+    }
+
+    public void subscribeToMessageChunkAcknowledgementReceivingDestination() {
+
+        String loggedInUsername = userSession.getUsername();
+        String subscriptionDestination = MESSAGE_CHUNK_ACKNOWLEDGEMENT_RECEIVING_GENERAL_DESTINATION + loggedInUsername;
+        if (!stompSubscriptionRegistry.isSubscriptionRegistered(subscriptionDestination)) {
+            Disposable disposable = stompClient.topic(subscriptionDestination).subscribe(stompMessage -> {
+                String serializedEncryptedPacket = stompMessage.getPayload();
+                EncryptedPacket encryptedPacket = objectMapper.readValue(serializedEncryptedPacket, EncryptedPacket.class);
+                byte[] decryptedPacket = packetEncryptionService.decryptEntirePacket(encryptedPacket);
+                MessageChunkAcknowledgementDTO messageChunkAcknowledgement = objectMapper.readValue(decryptedPacket, MessageChunkAcknowledgementDTO.class);
+                messageChunkTransferService.handleMessageChunkAcknowledgement(messageChunkAcknowledgement);
+            }, throwable -> {
+                log.error("There was an error while trying to subscribe to message chunk acknowledgement receiving destination, reason: {}", throwable.getMessage());
+            });
+            stompSubscriptionRegistry.addSubscription(subscriptionDestination, disposable);
+        } else {
+            log.info(EXISTING_SUBSCRIPTION_LOG_MESSAGE);
+        }
+    }
+
     private void initiateKeyExchangeWithServerWithRetries(int retryCount, Runnable successfulKeyExchangeTask, Runnable failedRetryAttemptsTask) {
         if (retryCount > securityConfig.getKeyExchangeRetryAttempts()) {
             failedRetryAttemptsTask.run();
@@ -0,0 +1,42 @@
+package com.tpeterb.securechatclient.messages.storage;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+public class HeapReassemblyStorage implements ReassemblyStorage {
+
+    private final byte[] content;
+
+    public HeapReassemblyStorage(int sizeInBytes) {
+        content = new byte[sizeInBytes];
+    }
+
+    @Override
+    public int getSizeInBytes() {
+        return content.length;
+    }
+
+    @Override
+    public void write(int offsetInBytes, byte[] bytes, int length) {
+        System.arraycopy(bytes, 0, content, offsetInBytes, length);
+    }
+
+    @Override
+    public ByteBuffer asReadOnlyByteBuffer() {
+        return ByteBuffer.wrap(content).asReadOnlyBuffer();
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        return content;
+    }
+
+    @Override
+    public File detachFile() {
+        return null;
+    }
+
+    @Override
+    public void close() {}
+
+}
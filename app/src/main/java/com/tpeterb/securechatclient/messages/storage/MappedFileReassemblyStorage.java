@@ -0,0 +1,104 @@
+package com.tpeterb.securechatclient.messages.storage;
+
+import org.bouncycastle.crypto.SkippingStreamCipher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class MappedFileReassemblyStorage implements ReassemblyStorage {
+
+    private static final int ENCRYPTION_BUFFER_SIZE_IN_BYTES = 16 * 1024;
+
+    private final File spillFile;
+
+    private final FileChannel fileChannel;
+
+    private final MappedByteBuffer mappedContent;
+
+    private final MediaFileCipher mediaFileCipher;
+
+    private final byte[] nonce;
+
+    private final byte[] encryptionBuffer;
+
+    private boolean detached;
+
+    public MappedFileReassemblyStorage(File spillDirectory, int sizeInBytes, MediaFileCipher mediaFileCipher) throws IOException {
+        if (!spillDirectory.isDirectory() && !spillDirectory.mkdirs()) {
+            throw new IOException("Failed to create reassembly spill directory " + spillDirectory);
+        }
+        this.mediaFileCipher = mediaFileCipher;
+        nonce = mediaFileCipher.generateNonce();
+        encryptionBuffer = new byte[ENCRYPTION_BUFFER_SIZE_IN_BYTES];
+        spillFile = File.createTempFile("reassembly", ".part", spillDirectory);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(spillFile, "rw")) {
+            randomAccessFile.setLength(MediaFileCipher.NONCE_LENGTH_IN_BYTES + (long) sizeInBytes);
+            randomAccessFile.write(nonce);
+            fileChannel = randomAccessFile.getChannel();
+            mappedContent = fileChannel.map(FileChannel.MapMode.READ_WRITE, MediaFileCipher.NONCE_LENGTH_IN_BYTES, sizeInBytes);
+        } catch (IOException e) {
+            deleteSpillFile();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getSizeInBytes() {
+        return mappedContent.capacity();
+    }
+
+    @Override
+    public void write(int offsetInBytes, byte[] bytes, int length) {
+        SkippingStreamCipher cipher = mediaFileCipher.createCipher(nonce);
+        cipher.seekTo(offsetInBytes);
+        ByteBuffer region = mappedContent.duplicate();
+        region.position(offsetInBytes);
+        int numberOfWrittenBytes = 0;
+        while (numberOfWrittenBytes < length) {
+            int sliceLength = Math.min(encryptionBuffer.length, length - numberOfWrittenBytes);
+            cipher.processBytes(bytes, numberOfWrittenBytes, sliceLength, encryptionBuffer, 0);
+            region.put(encryptionBuffer, 0, sliceLength);
+            numberOfWrittenBytes += sliceLength;
+        }
+    }
+
+    @Override
+    public ByteBuffer asReadOnlyByteBuffer() {
+        return ByteBuffer.wrap(toByteArray()).asReadOnlyBuffer();
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        byte[] content = new byte[mappedContent.capacity()];
+        mappedContent.duplicate().get(content);
+        mediaFileCipher.createCipher(nonce).processBytes(content, 0, content.length, content, 0);
+        return content;
+    }
+
+    @Override
+    public File detachFile() {
+        detached = true;
+        return spillFile;
+    }
+
+    @Override
+    public void close() {
+        if (!detached) {
+            deleteSpillFile();
+        }
+    }
+
+    private void deleteSpillFile() {
+        if (spillFile.exists() && !spillFile.delete()) {
+            log.warn("Failed to delete reassembly spill file {}", spillFile);
+        }
+    }
+
+}
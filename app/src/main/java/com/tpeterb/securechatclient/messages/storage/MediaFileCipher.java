@@ -0,0 +1,81 @@
+package com.tpeterb.securechatclient.messages.storage;
+
+import com.tpeterb.securechatclient.security.service.SymmetricCipherService;
+
+import org.bouncycastle.crypto.SkippingStreamCipher;
+import org.bouncycastle.crypto.engines.ChaCha7539Engine;
+import org.bouncycastle.crypto.io.CipherInputStream;
+import org.bouncycastle.crypto.io.CipherOutputStream;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class MediaFileCipher {
+
+    public static final int NONCE_LENGTH_IN_BYTES = 12;
+
+    private final byte[] mediaFileKey;
+
+    private final SecureRandom secureRandom;
+
+    @Inject
+    public MediaFileCipher(SymmetricCipherService symmetricCipherService) {
+        mediaFileKey = symmetricCipherService.generateSymmetricKey();
+        secureRandom = new SecureRandom();
+    }
+
+    public byte[] generateNonce() {
+        byte[] nonce = new byte[NONCE_LENGTH_IN_BYTES];
+        secureRandom.nextBytes(nonce);
+        return nonce;
+    }
+
+    public SkippingStreamCipher createCipher(byte[] nonce) {
+        ChaCha7539Engine cipher = new ChaCha7539Engine();
+        cipher.init(true, new ParametersWithIV(new KeyParameter(mediaFileKey), nonce));
+        return cipher;
+    }
+
+    public OutputStream openForWriting(File file) throws IOException {
+        OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            byte[] nonce = generateNonce();
+            outputStream.write(nonce);
+            return new CipherOutputStream(outputStream, createCipher(nonce));
+        } catch (IOException e) {
+            outputStream.close();
+            throw e;
+        }
+    }
+
+    public InputStream openForReading(File file) throws IOException {
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(file));
+        try {
+            byte[] nonce = new byte[NONCE_LENGTH_IN_BYTES];
+            new DataInputStream(inputStream).readFully(nonce);
+            return new CipherInputStream(inputStream, createCipher(nonce));
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    public static long getContentSizeInBytes(File file) {
+        return Math.max(0, file.length() - NONCE_LENGTH_IN_BYTES);
+    }
+
+}
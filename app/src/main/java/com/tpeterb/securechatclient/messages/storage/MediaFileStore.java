@@ -0,0 +1,97 @@
+package com.tpeterb.securechatclient.messages.storage;
+
+import android.content.Context;
+
+import com.tpeterb.securechatclient.utils.TimeOrderedIdGenerator;
+
+import java.io.File;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Objects;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Singleton
+public class MediaFileStore {
+
+    private static final String MEDIA_DIRECTORY_NAME = "media";
+
+    private static final String MEDIA_FILE_EXTENSION = ".media";
+
+    private final Context context;
+
+    private final MediaFileCipher mediaFileCipher;
+
+    @Inject
+    public MediaFileStore(Context context, MediaFileCipher mediaFileCipher) {
+        this.context = context;
+        this.mediaFileCipher = mediaFileCipher;
+        clearMediaFiles();
+    }
+
+    public File createMediaFile() throws IOException {
+        File mediaDirectory = getMediaDirectory();
+        if (!mediaDirectory.isDirectory() && !mediaDirectory.mkdirs()) {
+            throw new IOException("Failed to create media directory " + mediaDirectory);
+        }
+        return new File(mediaDirectory, TimeOrderedIdGenerator.generateId() + MEDIA_FILE_EXTENSION);
+    }
+
+    public OutputStream openMediaFileForWriting(File mediaFile) throws IOException {
+        return mediaFileCipher.openForWriting(mediaFile);
+    }
+
+    public InputStream openMediaFileForReading(File mediaFile) throws IOException {
+        return mediaFileCipher.openForReading(mediaFile);
+    }
+
+    public byte[] readMediaFile(File mediaFile) throws IOException {
+        try (InputStream inputStream = openMediaFileForReading(mediaFile);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream((int) getMediaFileContentSizeInBytes(mediaFile))) {
+            byte[] buffer = new byte[16 * 1024];
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                byteArrayOutputStream.write(buffer, 0, bytesRead);
+            }
+            return byteArrayOutputStream.toByteArray();
+        }
+    }
+
+    public long getMediaFileContentSizeInBytes(File mediaFile) {
+        return MediaFileCipher.getContentSizeInBytes(mediaFile);
+    }
+
+    public File moveToMediaFile(File sourceFile) throws IOException {
+        File mediaFile = createMediaFile();
+        Files.move(sourceFile.toPath(), mediaFile.toPath());
+        return mediaFile;
+    }
+
+    public void deleteMediaFile(File mediaFile) {
+        if (mediaFile.exists() && !mediaFile.delete()) {
+            log.warn("Failed to delete media file {}", mediaFile);
+        }
+    }
+
+    public void clearMediaFiles() {
+        File[] mediaFiles = getMediaDirectory().listFiles();
+        if (Objects.isNull(mediaFiles)) {
+            return;
+        }
+        for (File mediaFile : mediaFiles) {
+            deleteMediaFile(mediaFile);
+        }
+    }
+
+    private File getMediaDirectory() {
+        return new File(context.getFilesDir(), MEDIA_DIRECTORY_NAME);
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.tpeterb.securechatclient.messages.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.nio.ByteBuffer;
+
+public interface ReassemblyStorage extends Closeable {
+
+    int getSizeInBytes();
+
+    void write(int offsetInBytes, byte[] bytes, int length);
+
+    ByteBuffer asReadOnlyByteBuffer();
+
+    byte[] toByteArray();
+
+    File detachFile();
+
+    @Override
+    void close();
+
+}
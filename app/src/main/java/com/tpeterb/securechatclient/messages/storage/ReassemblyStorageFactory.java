@@ -0,0 +1,59 @@
+package com.tpeterb.securechatclient.messages.storage;
+
+import android.content.Context;
+
+import com.tpeterb.securechatclient.messages.config.MessageChunkConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Objects;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Singleton
+public class ReassemblyStorageFactory {
+
+    private static final String SPILL_DIRECTORY_NAME = "reassembly";
+
+    private final Context context;
+
+    private final MediaFileCipher mediaFileCipher;
+
+    private final int spillThresholdInBytes;
+
+    @Inject
+    public ReassemblyStorageFactory(Context context, MediaFileCipher mediaFileCipher, MessageChunkConfig messageChunkConfig) {
+        this.context = context;
+        this.mediaFileCipher = mediaFileCipher;
+        spillThresholdInBytes = messageChunkConfig.getReassemblySpillThresholdInBytes();
+        deleteLeftoverSpillFiles();
+    }
+
+    public ReassemblyStorage createReassemblyStorage(int sizeInBytes) throws IOException {
+        if (sizeInBytes < spillThresholdInBytes) {
+            return new HeapReassemblyStorage(sizeInBytes);
+        }
+        return new MappedFileReassemblyStorage(getSpillDirectory(), sizeInBytes, mediaFileCipher);
+    }
+
+    private File getSpillDirectory() {
+        return new File(context.getCacheDir(), SPILL_DIRECTORY_NAME);
+    }
+
+    private void deleteLeftoverSpillFiles() {
+        File[] leftoverSpillFiles = getSpillDirectory().listFiles();
+        if (Objects.isNull(leftoverSpillFiles)) {
+            return;
+        }
+        for (File leftoverSpillFile : leftoverSpillFiles) {
+            if (!leftoverSpillFile.delete()) {
+                log.warn("Failed to delete leftover reassembly spill file {}", leftoverSpillFile);
+            }
+        }
+    }
+
+}
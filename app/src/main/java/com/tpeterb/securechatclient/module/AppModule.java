@@ -12,6 +12,7 @@ import androidx.security.crypto.MasterKey;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.tpeterb.securechatclient.exception.SessionKeyStorageInitializationException;
+import com.tpeterb.securechatclient.messages.delivery.WebSocketDrainMonitor;
 import com.tpeterb.securechatclient.security.service.AsymmetricCipherService;
 import com.tpeterb.securechatclient.security.service.ChaCha20Service;
 import com.tpeterb.securechatclient.security.service.DigitalSignatureService;
@@ -30,6 +31,7 @@ import javax.inject.Singleton;
 import dagger.Module;
 import dagger.Provides;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
 import retrofit2.Retrofit;
 import retrofit2.converter.jackson.JacksonConverterFactory;
 import ua.naiksoftware.stomp.Stomp;
@@ -53,8 +55,11 @@ public class AppModule {
 
     @Provides
     @Singleton
-    public StompClient provideStompClient() {
-        return Stomp.over(Stomp.ConnectionProvider.OKHTTP, CHAT_SERVER_WEBSOCKET_BASE_URL);
+    public StompClient provideStompClient(WebSocketDrainMonitor webSocketDrainMonitor) {
+        OkHttpClient okHttpClient = new OkHttpClient.Builder()
+                .socketFactory(webSocketDrainMonitor.getSocketFactory())
+                .build();
+        return Stomp.over(Stomp.ConnectionProvider.OKHTTP, CHAT_SERVER_WEBSOCKET_BASE_URL, null, okHttpClient);
     }
 
     @Provides
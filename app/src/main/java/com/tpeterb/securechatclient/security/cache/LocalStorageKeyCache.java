@@ -0,0 +1,46 @@
+package com.tpeterb.securechatclient.security.cache;
+
+import androidx.security.crypto.EncryptedSharedPreferences;
+
+import com.tpeterb.securechatclient.security.service.SymmetricCipherService;
+import com.tpeterb.securechatclient.utils.Base64Utils;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class LocalStorageKeyCache {
+
+    private final Map<String, byte[]> localStorageKeys;
+
+    private final EncryptedSharedPreferences encryptedSharedPreferences;
+
+    private final SymmetricCipherService symmetricCipherService;
+
+    @Inject
+    public LocalStorageKeyCache(EncryptedSharedPreferences encryptedSharedPreferences,
+                                SymmetricCipherService symmetricCipherService) {
+        localStorageKeys = new ConcurrentHashMap<>();
+        this.encryptedSharedPreferences = encryptedSharedPreferences;
+        this.symmetricCipherService = symmetricCipherService;
+    }
+
+    public byte[] getLocalStorageKey(String username, String keyPostfix) {
+        return localStorageKeys.computeIfAbsent(username + keyPostfix, preferenceKey -> {
+            String storedKey = encryptedSharedPreferences.getString(preferenceKey, null);
+            if (Objects.nonNull(storedKey)) {
+                return Base64Utils.decode(storedKey);
+            }
+            byte[] generatedKey = symmetricCipherService.generateSymmetricKey();
+            encryptedSharedPreferences.edit()
+                    .putString(preferenceKey, Base64Utils.encode(generatedKey))
+                    .commit();
+            return generatedKey;
+        });
+    }
+
+}
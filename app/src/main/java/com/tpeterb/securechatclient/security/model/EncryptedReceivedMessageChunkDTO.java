@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.tpeterb.securechatclient.messages.model.MessageContentType;
 
 import java.time.Instant;
+import java.util.Objects;
 
 import lombok.Builder;
 import lombok.Value;
@@ -23,6 +24,8 @@ public class EncryptedReceivedMessageChunkDTO {
 
     int sizeOfFullMessageInBytes;
 
+    int offsetWithinFullMessageInBytes;
+
     String sender;
 
     String receiver;
@@ -37,6 +40,10 @@ public class EncryptedReceivedMessageChunkDTO {
 
     byte[] fullMessageContentInitializationVector;
 
+    boolean chunkEncryptedIndependently;
+
+    byte[] chunkContentInitializationVector;
+
     @JsonCreator
     public EncryptedReceivedMessageChunkDTO(
             @JsonProperty("fullMessageId") String fullMessageId,
@@ -44,19 +51,23 @@ public class EncryptedReceivedMessageChunkDTO {
             @JsonProperty("serialNumberWithinFullMessage") int serialNumberWithinFullMessage,
             @JsonProperty("numberOfChunksOfFullMessage") int numberOfChunksOfFullMessage,
             @JsonProperty("sizeOfFullMessageInBytes") int sizeOfFullMessageInBytes,
+            @JsonProperty("offsetWithinFullMessageInBytes") int offsetWithinFullMessageInBytes,
             @JsonProperty("sender") String sender,
             @JsonProperty("receiver") String receiver,
             @JsonProperty("content") byte[] content,
             @JsonProperty("messageContentType") MessageContentType messageContentType,
             @JsonProperty("timestamp") Instant timestamp,
             @JsonProperty("fullMessageContentEncryptionKey") byte[] fullMessageContentEncryptionKey,
-            @JsonProperty("fullMessageContentInitializationVector") byte[] fullMessageContentInitializationVector
+            @JsonProperty("fullMessageContentInitializationVector") byte[] fullMessageContentInitializationVector,
+            @JsonProperty("chunkEncryptedIndependently") boolean chunkEncryptedIndependently,
+            @JsonProperty("chunkContentInitializationVector") byte[] chunkContentInitializationVector
     ) {
         this.fullMessageId = fullMessageId;
         this.messageChunkId = messageChunkId;
         this.serialNumberWithinFullMessage = serialNumberWithinFullMessage;
         this.numberOfChunksOfFullMessage = numberOfChunksOfFullMessage;
         this.sizeOfFullMessageInBytes = sizeOfFullMessageInBytes;
+        this.offsetWithinFullMessageInBytes = offsetWithinFullMessageInBytes;
         this.sender = sender;
         this.receiver = receiver;
         this.content = content;
@@ -64,6 +75,12 @@ public class EncryptedReceivedMessageChunkDTO {
         this.timestamp = timestamp;
         this.fullMessageContentEncryptionKey = fullMessageContentEncryptionKey;
         this.fullMessageContentInitializationVector = fullMessageContentInitializationVector;
+        this.chunkEncryptedIndependently = chunkEncryptedIndependently;
+        this.chunkContentInitializationVector = chunkContentInitializationVector;
+    }
+
+    public boolean hasFullMessageMetadata() {
+        return Objects.nonNull(messageContentType) && Objects.nonNull(fullMessageContentEncryptionKey);
     }
 
 }
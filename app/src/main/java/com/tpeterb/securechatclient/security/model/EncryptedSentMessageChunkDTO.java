@@ -1,6 +1,7 @@
 package com.tpeterb.securechatclient.security.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.tpeterb.securechatclient.messages.model.MessageContentType;
 
@@ -11,6 +12,7 @@ import lombok.Value;
 
 @Value
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class EncryptedSentMessageChunkDTO {
 
     String sessionId;
@@ -25,6 +27,8 @@ public class EncryptedSentMessageChunkDTO {
 
     int sizeOfFullMessageInBytes;
 
+    int offsetWithinFullMessageInBytes;
+
     byte[] sender;
 
     byte[] receiver;
@@ -39,6 +43,10 @@ public class EncryptedSentMessageChunkDTO {
 
     byte[] fullMessageContentInitializationVector;
 
+    boolean chunkEncryptedIndependently;
+
+    byte[] chunkContentInitializationVector;
+
     @JsonCreator
     public EncryptedSentMessageChunkDTO(
             @JsonProperty("sessionId") String sessionId,
@@ -47,13 +55,16 @@ public class EncryptedSentMessageChunkDTO {
             @JsonProperty("serialNumberWithinFullMessage") int serialNumberWithinFullMessage,
             @JsonProperty("numberOfChunksOfFullMessage") int numberOfChunksOfFullMessage,
             @JsonProperty("sizeOfFullMessageInBytes") int sizeOfFullMessageInBytes,
+            @JsonProperty("offsetWithinFullMessageInBytes") int offsetWithinFullMessageInBytes,
             @JsonProperty("sender") byte[] sender,
             @JsonProperty("receiver") byte[] receiver,
             @JsonProperty("content") byte[] content,
             @JsonProperty("messageContentType") MessageContentType messageContentType,
             @JsonProperty("timestamp") Instant timestamp,
             @JsonProperty("fullMessageContentEncryptionKey") byte[] fullMessageContentEncryptionKey,
-            @JsonProperty("fullMessageContentInitializationVector") byte[] fullMessageContentInitializationVector
+            @JsonProperty("fullMessageContentInitializationVector") byte[] fullMessageContentInitializationVector,
+            @JsonProperty("chunkEncryptedIndependently") boolean chunkEncryptedIndependently,
+            @JsonProperty("chunkContentInitializationVector") byte[] chunkContentInitializationVector
     ) {
         this.sessionId = sessionId;
         this.fullMessageId = fullMessageId;
@@ -61,6 +72,7 @@ public class EncryptedSentMessageChunkDTO {
         this.serialNumberWithinFullMessage = serialNumberWithinFullMessage;
         this.numberOfChunksOfFullMessage = numberOfChunksOfFullMessage;
         this.sizeOfFullMessageInBytes = sizeOfFullMessageInBytes;
+        this.offsetWithinFullMessageInBytes = offsetWithinFullMessageInBytes;
         this.sender = sender;
         this.receiver = receiver;
         this.content = content;
@@ -68,6 +80,8 @@ public class EncryptedSentMessageChunkDTO {
         this.timestamp = timestamp;
         this.fullMessageContentEncryptionKey = fullMessageContentEncryptionKey;
         this.fullMessageContentInitializationVector = fullMessageContentInitializationVector;
+        this.chunkEncryptedIndependently = chunkEncryptedIndependently;
+        this.chunkContentInitializationVector = chunkContentInitializationVector;
     }
 
 }
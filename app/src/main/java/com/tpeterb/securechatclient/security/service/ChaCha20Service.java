@@ -11,6 +11,7 @@ import org.bouncycastle.crypto.params.KeyParameter;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import java.nio.ByteBuffer;
 import java.security.SecureRandom;
 
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +26,8 @@ public class ChaCha20Service implements SymmetricCipherService {
 
     private static final int NONCE_SIZE = 96;
 
+    private static final int DECRYPTION_SLICE_SIZE_IN_BYTES = 16 * 1024;
+
     private final SecureRandom secureRandom;
 
     @Inject
@@ -41,17 +44,28 @@ public class ChaCha20Service implements SymmetricCipherService {
 
     @Override
     public EncryptionResult encryptData(byte[] dataToEncrypt, byte[] encryptionKey) {
+        return encryptData(dataToEncrypt, 0, dataToEncrypt.length, encryptionKey);
+    }
+
+    @Override
+    public EncryptionResult encryptData(byte[] dataToEncrypt, int offset, int length, byte[] encryptionKey) {
+        return encryptData(dataToEncrypt, offset, length, encryptionKey, null);
+    }
+
+    @Override
+    public EncryptionResult encryptData(byte[] dataToEncrypt, int offset, int length, byte[] encryptionKey, byte[] associatedData) {
         byte[] nonce = generateNonce();
         ChaCha20Poly1305 chaCha20Poly1305 = new ChaCha20Poly1305();
         AEADParameters aeadParameters = new AEADParameters(
             new KeyParameter(encryptionKey),
             MAC_SIZE,
-            nonce
+            nonce,
+            associatedData
         );
         chaCha20Poly1305.init(true, aeadParameters);
-        int outputLength = chaCha20Poly1305.getOutputSize(dataToEncrypt.length);
+        int outputLength = chaCha20Poly1305.getOutputSize(length);
         byte[] encryptedData = new byte[outputLength];
-        int processedNumberOfBytes = chaCha20Poly1305.processBytes(dataToEncrypt, 0, dataToEncrypt.length, encryptedData, 0);
+        int processedNumberOfBytes = chaCha20Poly1305.processBytes(dataToEncrypt, offset, length, encryptedData, 0);
         try {
             chaCha20Poly1305.doFinal(encryptedData, processedNumberOfBytes);
         } catch (InvalidCipherTextException e) {
@@ -66,6 +80,39 @@ public class ChaCha20Service implements SymmetricCipherService {
 
     @Override
     public byte[] decryptData(byte[] dataToDecrypt, byte[] decryptionKey, byte[] initializationVector) {
+        return decryptData(dataToDecrypt, decryptionKey, initializationVector, null);
+    }
+
+    @Override
+    public byte[] decryptData(byte[] dataToDecrypt, byte[] decryptionKey, byte[] initializationVector, byte[] associatedData) {
+        byte[] decryptedData = new byte[Math.max(0, dataToDecrypt.length - MAC_SIZE / Byte.SIZE)];
+        if (decryptData(dataToDecrypt, decryptionKey, initializationVector, associatedData, decryptedData) < 0) {
+            return null;
+        }
+        return decryptedData;
+    }
+
+    @Override
+    public int decryptData(byte[] dataToDecrypt, byte[] decryptionKey, byte[] initializationVector, byte[] associatedData, byte[] decryptedData) {
+        ChaCha20Poly1305 chaCha20Poly1305 = new ChaCha20Poly1305();
+        AEADParameters aeadParameters = new AEADParameters(
+                new KeyParameter(decryptionKey),
+                MAC_SIZE,
+                initializationVector,
+                associatedData
+        );
+        chaCha20Poly1305.init(false, aeadParameters);
+        try {
+            int processedNumberOfBytes = chaCha20Poly1305.processBytes(dataToDecrypt, 0, dataToDecrypt.length, decryptedData, 0);
+            return processedNumberOfBytes + chaCha20Poly1305.doFinal(decryptedData, processedNumberOfBytes);
+        } catch (InvalidCipherTextException e) {
+            log.error("Failed to decrypt data with ChaCha20-Poly1305, reason: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public byte[] decryptData(ByteBuffer dataToDecrypt, byte[] decryptionKey, byte[] initializationVector) {
         ChaCha20Poly1305 chaCha20Poly1305 = new ChaCha20Poly1305();
         AEADParameters aeadParameters = new AEADParameters(
                 new KeyParameter(decryptionKey),
@@ -73,9 +120,16 @@ public class ChaCha20Service implements SymmetricCipherService {
                 initializationVector
         );
         chaCha20Poly1305.init(false, aeadParameters);
-        int outputLength = chaCha20Poly1305.getOutputSize(dataToDecrypt.length);
+        ByteBuffer remainingData = dataToDecrypt.duplicate();
+        int outputLength = chaCha20Poly1305.getOutputSize(remainingData.remaining());
         byte[] decryptedData = new byte[outputLength];
-        int processedNumberOfBytes = chaCha20Poly1305.processBytes(dataToDecrypt, 0, dataToDecrypt.length, decryptedData, 0);
+        byte[] slice = new byte[Math.min(DECRYPTION_SLICE_SIZE_IN_BYTES, remainingData.remaining())];
+        int processedNumberOfBytes = 0;
+        while (remainingData.hasRemaining()) {
+            int sliceLength = Math.min(slice.length, remainingData.remaining());
+            remainingData.get(slice, 0, sliceLength);
+            processedNumberOfBytes += chaCha20Poly1305.processBytes(slice, 0, sliceLength, decryptedData, processedNumberOfBytes);
+        }
         try {
             chaCha20Poly1305.doFinal(decryptedData, processedNumberOfBytes);
         } catch (InvalidCipherTextException e) {
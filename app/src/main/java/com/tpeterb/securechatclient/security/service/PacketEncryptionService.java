@@ -5,7 +5,9 @@ import androidx.core.util.Pair;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tpeterb.securechatclient.exception.AsymmetricEncryptionException;
+import com.tpeterb.securechatclient.messages.factory.MessageFactory;
 import com.tpeterb.securechatclient.messages.model.MessageDTO;
+import com.tpeterb.securechatclient.messages.service.EncryptedMessageChunkStream;
 import com.tpeterb.securechatclient.messages.service.MessagePartitioningService;
 import com.tpeterb.securechatclient.security.cache.ServerPublicKeyCache;
 import com.tpeterb.securechatclient.security.cache.SessionKeyCache;
@@ -18,6 +20,7 @@ import com.tpeterb.securechatclient.users.session.UserSession;
 
 import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -88,13 +91,13 @@ public class PacketEncryptionService {
                     encryptedReceivedMessageDTO.getContentEncryptionKey(),
                     encryptedReceivedMessageDTO.getContent().getInitializationVector()
             );
-            decryptedMessages.add(new MessageDTO(
+            decryptedMessages.add(MessageFactory.createMessage(
                     encryptedReceivedMessageDTO.getId(),
                     encryptedReceivedMessageDTO.getSender(),
                     encryptedReceivedMessageDTO.getReceiver(),
-                    new String(decryptedMessageContent, StandardCharsets.UTF_8),
                     encryptedReceivedMessageDTO.getMessageContentType(),
-                    encryptedReceivedMessageDTO.getTimestamp()
+                    encryptedReceivedMessageDTO.getTimestamp(),
+                    decryptedMessageContent
             ));
         }
         return decryptedMessages;
@@ -106,52 +109,42 @@ public class PacketEncryptionService {
                 encryptedReceivedMessageDTO.getContentEncryptionKey(),
                 encryptedReceivedMessageDTO.getContent().getInitializationVector()
         );
-        return new MessageDTO(
+        return MessageFactory.createMessage(
             encryptedReceivedMessageDTO.getId(),
             encryptedReceivedMessageDTO.getSender(),
             encryptedReceivedMessageDTO.getReceiver(),
-            new String(decryptedMessageContent, StandardCharsets.UTF_8),
             encryptedReceivedMessageDTO.getMessageContentType(),
-            encryptedReceivedMessageDTO.getTimestamp()
+            encryptedReceivedMessageDTO.getTimestamp(),
+            decryptedMessageContent
         );
     }
 
-    public List<EncryptedPacket> wrapTooBigChatMessageInEncryptedChunkPackets(MessageDTO messageDTO) throws AsymmetricEncryptionException, JsonProcessingException {
+    public EncryptedMessageChunkStream openEncryptedChunkStreamForChatMessage(MessageDTO messageDTO, InputStream contentStream, int contentSizeInBytes, int chunkSizeInBytes) throws AsymmetricEncryptionException {
         byte[] fullMessageContentEncryptionKey = symmetricCipherService.generateSymmetricKey();
-        log.info("TITKOSÍTATLAN CONTENT ENCRYPTION KEY = {}", fullMessageContentEncryptionKey);
-        EncryptionResult fullMessageContentEncryptionResult = symmetricCipherService.encryptData(messageDTO.getContent().getBytes(StandardCharsets.UTF_8), fullMessageContentEncryptionKey);
-        log.info("TITKOSÍTOTT EGÉSZ ÜZENET: {}", fullMessageContentEncryptionResult.getEncryptedData());
-        log.info("INITIALIZATION VECTOR: {}", fullMessageContentEncryptionResult.getInitializationVector());
         AsymmetricKeyParameter serverPublicKey = serverPublicKeyCache.getServerPublicKeyForChatMessages();
         byte[] encryptedSender = asymmetricCipherService.encryptData(messageDTO.getSender().getBytes(StandardCharsets.UTF_8), serverPublicKey);
         byte[] encryptedReceiver = asymmetricCipherService.encryptData(messageDTO.getReceiver().getBytes(StandardCharsets.UTF_8), serverPublicKey);
         byte[] encryptedFullMessageContentEncryptionKey = asymmetricCipherService.encryptData(fullMessageContentEncryptionKey, serverPublicKey);
-        log.info("TITKOSÍTOTT CONTENT ENCRYPTION KEY = {}", encryptedFullMessageContentEncryptionKey);
-        EncryptedSentMessageDTO encryptedSentMessageDTO = EncryptedSentMessageDTO.builder()
+        EncryptedSentMessageDTO fullMessageHeader = EncryptedSentMessageDTO.builder()
                 .id(messageDTO.getId())
                 .sender(encryptedSender)
                 .receiver(encryptedReceiver)
-                .content(fullMessageContentEncryptionResult)
                 .messageContentType(messageDTO.getMessageContentType())
                 .timestamp(messageDTO.getTimestamp())
                 .contentEncryptionKey(encryptedFullMessageContentEncryptionKey)
                 .build();
-        List<EncryptedSentMessageChunkDTO> messageChunks = messagePartitioningService.partitionMessageIntoChunks(encryptedSentMessageDTO);
-        List<EncryptedPacket> encryptedMessageChunkPackets = new ArrayList<>();
-        for (final EncryptedSentMessageChunkDTO encryptedSentMessageChunkDTO : messageChunks) {
-            log.info("CHUNK NUMBER = {}, ENCRYPTED CHUNK CONTENT = {}", encryptedSentMessageChunkDTO.getSerialNumberWithinFullMessage(), encryptedSentMessageChunkDTO.getContent());
-            byte[] serializedEncryptedMessageChunk = objectMapper.writeValueAsBytes(encryptedSentMessageChunkDTO);
-            EncryptedPacket encryptedPacket = encryptEntirePacket(serializedEncryptedMessageChunk);
-            log.info("ENCRYPTED CHUNK PACKET = {}", encryptedPacket);
-            encryptedMessageChunkPackets.add(encryptedPacket);
-        }
-        return encryptedMessageChunkPackets;
+        return messagePartitioningService.openEncryptedMessageChunkStream(fullMessageHeader, fullMessageContentEncryptionKey, contentStream, contentSizeInBytes, chunkSizeInBytes);
+    }
+
+    public EncryptedPacket wrapMessageChunkInEncryptedPacket(EncryptedSentMessageChunkDTO encryptedSentMessageChunkDTO) throws JsonProcessingException {
+        byte[] serializedEncryptedMessageChunk = objectMapper.writeValueAsBytes(encryptedSentMessageChunkDTO);
+        return encryptEntirePacket(serializedEncryptedMessageChunk);
     }
 
     public EncryptedPacket wrapFullChatMessageInEncryptedPacket(MessageDTO messageDTO) throws AsymmetricEncryptionException, JsonProcessingException {
         byte[] contentEncryptionKey = symmetricCipherService.generateSymmetricKey();
         AsymmetricKeyParameter serverPublicKey = serverPublicKeyCache.getServerPublicKeyForChatMessages();
-        EncryptionResult encryptedMessageContent = symmetricCipherService.encryptData(messageDTO.getContent().getBytes(StandardCharsets.UTF_8), contentEncryptionKey);
+        EncryptionResult encryptedMessageContent = symmetricCipherService.encryptData(messageDTO.getContentBytes(), contentEncryptionKey);
         byte[] encryptedContentEncryptionKey = asymmetricCipherService.encryptData(contentEncryptionKey, serverPublicKey);
         byte[] encryptedSender = asymmetricCipherService.encryptData(messageDTO.getSender().getBytes(StandardCharsets.UTF_8), serverPublicKey);
         byte[] encryptedReceiver = asymmetricCipherService.encryptData(messageDTO.getReceiver().getBytes(StandardCharsets.UTF_8), serverPublicKey);
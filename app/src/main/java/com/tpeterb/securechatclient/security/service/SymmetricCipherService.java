@@ -2,14 +2,26 @@ package com.tpeterb.securechatclient.security.service;
 
 import com.tpeterb.securechatclient.security.model.EncryptionResult;
 
+import java.nio.ByteBuffer;
+
 public interface SymmetricCipherService {
 
     byte[] generateSymmetricKey();
 
     EncryptionResult encryptData(byte[] dataToEncrypt, byte[] encryptionKey);
 
+    EncryptionResult encryptData(byte[] dataToEncrypt, int offset, int length, byte[] encryptionKey);
+
+    EncryptionResult encryptData(byte[] dataToEncrypt, int offset, int length, byte[] encryptionKey, byte[] associatedData);
+
     byte[] decryptData(byte[] dataToDecrypt, byte[] decryptionKey, byte[] initializationVector);
 
+    byte[] decryptData(byte[] dataToDecrypt, byte[] decryptionKey, byte[] initializationVector, byte[] associatedData);
+
+    int decryptData(byte[] dataToDecrypt, byte[] decryptionKey, byte[] initializationVector, byte[] associatedData, byte[] decryptedData);
+
+    byte[] decryptData(ByteBuffer dataToDecrypt, byte[] decryptionKey, byte[] initializationVector);
+
     int getKeySize();
 
 }
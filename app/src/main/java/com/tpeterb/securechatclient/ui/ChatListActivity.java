@@ -20,6 +20,7 @@ import com.tpeterb.securechatclient.application.ChatApplication;
 import com.tpeterb.securechatclient.messages.delivery.WebSocketClient;
 import com.tpeterb.securechatclient.messages.registry.ChatPartnerRegistry;
 import com.tpeterb.securechatclient.messages.registry.StompSubscriptionRegistry;
+import com.tpeterb.securechatclient.messages.service.ConversationWarmUpService;
 import com.tpeterb.securechatclient.messages.service.StompSubscriptionService;
 import com.tpeterb.securechatclient.security.cache.DigitalSignatureKeyPairCache;
 import com.tpeterb.securechatclient.security.config.SecurityConfig;
@@ -31,7 +32,6 @@ import com.tpeterb.securechatclient.users.model.ChatPartner;
 import com.tpeterb.securechatclient.users.service.UserService;
 import com.tpeterb.securechatclient.users.session.UserSession;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -71,6 +71,9 @@ public class ChatListActivity extends AppCompatActivity {
     @Inject
     StompSubscriptionService stompSubscriptionService;
 
+    @Inject
+    ConversationWarmUpService conversationWarmUpService;
+
     private TextView brandNameTextView;
 
     private SearchView userSearchBarView;
@@ -212,7 +215,7 @@ public class ChatListActivity extends AppCompatActivity {
         });
         userSearchResultsView.setAdapter(searchAdapter);
 
-        chatListAdapter = new ChatListAdapter(this, new ArrayList<>(), chatPartner -> {
+        chatListAdapter = new ChatListAdapter(this, List.of(), chatPartner -> {
             Intent intent = new Intent(this, PersonalChatActivity.class);
             intent.putExtra("chatPartnerUsername", chatPartner.getUsername());
             startActivity(intent);
@@ -270,8 +273,9 @@ public class ChatListActivity extends AppCompatActivity {
     }
 
     private void replaceChatList() {
-        chatListAdapter.replaceChatPartners(chatPartnerRegistry.getChatPartnerRegistry());
-        chatListAdapter.notifyDataSetChanged();
+        if (chatListAdapter.replaceChatPartnerSummaries(chatPartnerRegistry.getChatPartnerSummaries())) {
+            chatListAdapter.notifyDataSetChanged();
+        }
     }
 
     private void loadChatUsers() {
@@ -288,8 +292,8 @@ public class ChatListActivity extends AppCompatActivity {
                 log.info("Fetched chat partners = {}", chatPartners);
                 chatPartnerRegistry.addAllChatPartners(chatPartners);
                 chatPartnerRegistry.setInitialFetchDone(true);
-                chatListAdapter.replaceChatPartners(chatPartnerRegistry.getChatPartnerRegistry());
-                chatListAdapter.notifyDataSetChanged();
+                replaceChatList();
+                conversationWarmUpService.warmUpRecentConversations();
             }
         });
     }
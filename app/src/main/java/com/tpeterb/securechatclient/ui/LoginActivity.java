@@ -21,13 +21,19 @@ import com.tpeterb.securechatclient.R;
 import com.tpeterb.securechatclient.application.ChatApplication;
 import com.tpeterb.securechatclient.messages.registry.ChatPartnerRegistry;
 import com.tpeterb.securechatclient.messages.registry.MessageRegistry;
+import com.tpeterb.securechatclient.messages.registry.SentMessageChunkRegistry;
 import com.tpeterb.securechatclient.messages.registry.StompSubscriptionRegistry;
+import com.tpeterb.securechatclient.messages.search.MessageSearchIndex;
+import com.tpeterb.securechatclient.messages.service.ConversationWarmUpService;
+import com.tpeterb.securechatclient.messages.service.MessageChunkTransferService;
 import com.tpeterb.securechatclient.messages.service.StompSubscriptionService;
+import com.tpeterb.securechatclient.messages.storage.MediaFileStore;
 import com.tpeterb.securechatclient.security.cache.DigitalSignatureKeyPairCache;
 import com.tpeterb.securechatclient.security.config.SecurityConfig;
 import com.tpeterb.securechatclient.security.model.KeyExchangeResult;
 import com.tpeterb.securechatclient.security.service.EllipticCurveDiffieHellmanKeyExchangeService;
 import com.tpeterb.securechatclient.ui.form.UserFormService;
+import com.tpeterb.securechatclient.ui.image.ChatImageLoader;
 import com.tpeterb.securechatclient.users.model.LoginUserDTO;
 import com.tpeterb.securechatclient.users.model.UserLoginResult;
 import com.tpeterb.securechatclient.users.service.UserService;
@@ -72,6 +78,24 @@ public class LoginActivity extends AppCompatActivity {
     @Inject
     ChatPartnerRegistry chatPartnerRegistry;
 
+    @Inject
+    SentMessageChunkRegistry sentMessageChunkRegistry;
+
+    @Inject
+    MessageChunkTransferService messageChunkTransferService;
+
+    @Inject
+    ConversationWarmUpService conversationWarmUpService;
+
+    @Inject
+    MessageSearchIndex messageSearchIndex;
+
+    @Inject
+    ChatImageLoader chatImageLoader;
+
+    @Inject
+    MediaFileStore mediaFileStore;
+
     @Inject
     DigitalSignatureKeyPairCache digitalSignatureKeyPairCache;
 
@@ -274,6 +298,12 @@ public class LoginActivity extends AppCompatActivity {
         messageRegistry.clearMessageRegistry();
         chatPartnerRegistry.clearChatPartnerRegistry();
         stompSubscriptionRegistry.clearStompSubscriptionRegistry();
+        messageChunkTransferService.abortAllTransfers();
+        conversationWarmUpService.cancelWarmUp();
+        messageSearchIndex.clearMessageSearchIndex();
+        chatImageLoader.clearImageCache();
+        sentMessageChunkRegistry.clearSentMessageChunkRegistry();
+        mediaFileStore.clearMediaFiles();
     }
 
 }
\ No newline at end of file
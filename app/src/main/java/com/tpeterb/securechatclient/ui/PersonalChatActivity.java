@@ -13,42 +13,40 @@ import android.view.View;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.EditText;
 import android.widget.ImageView;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.tpeterb.securechatclient.R;
 import com.tpeterb.securechatclient.application.ChatApplication;
+import com.tpeterb.securechatclient.messages.config.HistoryPrefetchConfig;
 import com.tpeterb.securechatclient.messages.delivery.WebSocketClient;
 import com.tpeterb.securechatclient.messages.listener.PersonalChatMessageBulkUpdateListener;
 import com.tpeterb.securechatclient.messages.listener.PersonalChatMessageSingleUpdateListener;
 import com.tpeterb.securechatclient.messages.model.MessageContentType;
+import com.tpeterb.securechatclient.messages.model.MessageDTO;
 import com.tpeterb.securechatclient.messages.registry.ChatPartnerRegistry;
 import com.tpeterb.securechatclient.messages.registry.MessageRegistry;
 import com.tpeterb.securechatclient.messages.registry.StompSubscriptionRegistry;
-import com.tpeterb.securechatclient.messages.service.CompressionService;
 import com.tpeterb.securechatclient.messages.service.MessageChunkService;
+import com.tpeterb.securechatclient.messages.service.MediaPreparationService;
 import com.tpeterb.securechatclient.messages.service.MessageService;
 import com.tpeterb.securechatclient.messages.service.StompSubscriptionService;
 import com.tpeterb.securechatclient.security.cache.ServerPublicKeyCache;
 import com.tpeterb.securechatclient.security.config.SecurityConfig;
 import com.tpeterb.securechatclient.security.observer.MessagePublicKeyChangeObserver;
 import com.tpeterb.securechatclient.ui.adapter.PersonalChatAdapter;
+import com.tpeterb.securechatclient.ui.image.ChatImageLoader;
+import com.tpeterb.securechatclient.ui.listener.HistoryPrefetchScrollListener;
 import com.tpeterb.securechatclient.users.model.ChatPartner;
 import com.tpeterb.securechatclient.users.session.UserSession;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Base64;
 import java.util.Objects;
-import java.util.Optional;
 
 import javax.inject.Inject;
 
@@ -69,22 +67,30 @@ public class PersonalChatActivity extends AppCompatActivity implements MessagePu
 
     private ImageView imageSendingButton;
 
+    private ProgressBar mediaPreparationProgressBar;
+
     private EditText messageInputBox;
 
     private ImageView messageSendingButton;
 
     private LinearLayoutManager linearLayoutManager;
 
-    private int numberOfMessagesInConversationBeforeFetching = 0;
+    private HistoryPrefetchScrollListener historyPrefetchScrollListener;
 
     private ActivityResultLauncher<String> imagePickingActivityLauncher;
 
     @Inject
-    CompressionService compressionService;
+    MediaPreparationService mediaPreparationService;
+
+    @Inject
+    ChatImageLoader chatImageLoader;
 
     @Inject
     SecurityConfig securityConfig;
 
+    @Inject
+    HistoryPrefetchConfig historyPrefetchConfig;
+
     @Inject
     ServerPublicKeyCache serverPublicKeyCache;
 
@@ -142,6 +148,15 @@ public class PersonalChatActivity extends AppCompatActivity implements MessagePu
         log.info("onResume of Personal, chatPartnerRegistry = {}", chatPartnerRegistry);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        historyPrefetchScrollListener.cancel();
+        chatMessagesView.removeOnScrollListener(historyPrefetchScrollListener);
+        messageRegistry.unpinConversation(chatPartnerUsernameTextView.getText().toString());
+        chatPartnerRegistry.markConversationAsRead(chatPartnerUsernameTextView.getText().toString());
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
 
@@ -161,6 +176,9 @@ public class PersonalChatActivity extends AppCompatActivity implements MessagePu
         String chatPartnerUsername = causeIntent.getStringExtra("chatPartnerUsername");
         chatPartnerUsernameTextView.setText(chatPartnerUsername);
 
+        messageRegistry.pinConversation(chatPartnerUsername);
+        chatPartnerRegistry.markConversationAsRead(chatPartnerUsername);
+
         setupMessageChunkService(chatPartnerUsername);
 
         initializeImagePickingActivityLauncher(chatPartnerUsername);
@@ -175,16 +193,23 @@ public class PersonalChatActivity extends AppCompatActivity implements MessagePu
 
         stompSubscriptionService.subscribeToSingleMessageReceivingDestination();
         stompSubscriptionService.subscribeToSingleMessageChunkReceivingDestination();
+        stompSubscriptionService.subscribeToMissingMessageChunksRequestReceivingDestination();
+        stompSubscriptionService.subscribeToMessageChunkAcknowledgementReceivingDestination();
 
         messageService.sendServerMessagePublicKeyRequest();
 
         log.info("BEFORE CALLING conversationNeedMessageFetching, chatPartnerUsername = {}", chatPartnerUsername);
 
         if (messageRegistry.conversationNeedsInitialMessageFetching(chatPartnerUsername)) {
-            fetchInitialMessages(chatPartnerUsername);
+            messageRegistry.hydrateConversationFromLocalStore(chatPartnerUsername).thenAccept(hydrated -> handler.post(() -> {
+                if (hydrated) {
+                    displayMessages(chatPartnerUsername, this::scrollToBottomOfConversation);
+                }
+                fetchNewestMessages(chatPartnerUsername);
+            }));
         } else {
-            displayMessages(chatPartnerUsername);
-            scrollToBottomOfConversation();
+            displayMessages(chatPartnerUsername, this::scrollToBottomOfConversation);
+            fetchNewestMessages(chatPartnerUsername);
         }
 
     }
@@ -195,6 +220,7 @@ public class PersonalChatActivity extends AppCompatActivity implements MessagePu
         chatPartnerUsernameTextView = findViewById(R.id.personal_chat_chat_partner_username);
         chatMessagesView = findViewById(R.id.personal_chat_messages);
         imageSendingButton = findViewById(R.id.personal_chat_image_sending_button);
+        mediaPreparationProgressBar = findViewById(R.id.personal_chat_media_preparation_progress);
         messageInputBox = findViewById(R.id.personal_chat_message_input_box);
         messageSendingButton = findViewById(R.id.personal_chat_message_sending_button);
 
@@ -204,11 +230,7 @@ public class PersonalChatActivity extends AppCompatActivity implements MessagePu
     }
 
     private void setupMessageChunkService(String chatPartnerUsername) {
-        PersonalChatMessageSingleUpdateListener messageSingleListener = receivedMessage -> {
-            displayMessages(chatPartnerUsername);
-            scrollToBottomOfConversation();
-            numberOfMessagesInConversationBeforeFetching++;
-        };
+        PersonalChatMessageSingleUpdateListener messageSingleListener = receivedMessage -> displayMessages(chatPartnerUsername, this::scrollToBottomOfConversation);
         messageChunkService.setHandler(handler);
         messageChunkService.setPersonalChatMessageSingleUpdateListener(messageSingleListener);
     }
@@ -218,21 +240,7 @@ public class PersonalChatActivity extends AppCompatActivity implements MessagePu
                 new ActivityResultContracts.GetContent(),
                 uri -> {
                     if (Objects.nonNull(uri)) {
-                        byte[] imageBytes = getImageFromURI(uri);
-                        log.info("RAW BYTES = {}", imageBytes.length);
-                        byte[] compressedBytes = compressionService.compressBytesWithGzip(imageBytes);
-                        log.info("COMPRESSED BYTES = {}", compressedBytes.length);
-                        String encodedImage = Base64.getEncoder().encodeToString(compressedBytes);
-                        log.info("ENCODED IMAGE = {}", encodedImage.length());
-                        String mimeType = getContentResolver().getType(uri);
-                        log.info("MIME TYPE OF IMAGE TO SEND = {}", mimeType);
-                        Optional<MessageContentType> messageContentTypeOptional = MessageContentType.of(mimeType);
-                        messageContentTypeOptional.ifPresentOrElse(messageContentType -> {
-                            log.info("IMAGE WILL BE SENT, MESSAGE CONTENT TYPE = {}", messageContentType);
-                            sendMessage(encodedImage, messageContentType, chatPartnerUsername);
-                        }, () -> {
-                            log.info("The mime type of the selected image is not supported!");
-                        });
+                        prepareAndSendImage(uri, chatPartnerUsername);
                     }
                 }
         );
@@ -259,7 +267,8 @@ public class PersonalChatActivity extends AppCompatActivity implements MessagePu
 
         messageSendingButton.setOnClickListener(view -> {
             if (!isEditTextEmpty(messageInputBox)) {
-                sendMessage(messageInputBox.getText().toString(), MessageContentType.TEXT, chatPartnerUsername);
+                String message = messageInputBox.getText().toString();
+                sendMessage(chatPartnerUsername, () -> messageService.sendMessageToChatPartner(message, MessageContentType.TEXT, chatPartnerUsername));
                 messageInputBox.setText(null);
             }
         });
@@ -268,61 +277,54 @@ public class PersonalChatActivity extends AppCompatActivity implements MessagePu
 
     private void setupMessageViewScrollHandling(String chatPartnerUsername) {
 
-        chatMessagesView.addOnScrollListener(new RecyclerView.OnScrollListener() {
-            @Override
-            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
-                super.onScrollStateChanged(recyclerView, newState);
-                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
-                    LinearLayoutManager linearLayoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
-                    if (Objects.nonNull(linearLayoutManager)) {
-                        int firstCurrentlyVisibleItemPosition = linearLayoutManager.findFirstVisibleItemPosition();
-                        if (firstCurrentlyVisibleItemPosition == 0 && !messageRegistry.conversationHasNoPreviousMessages(chatPartnerUsername)) {
-                            fetchFurtherMessagesWhenScrollingUp(chatPartnerUsername);
-                        }
-                    }
-                }
-            }
-        });
+        historyPrefetchScrollListener = new HistoryPrefetchScrollListener(
+                chatPartnerUsername,
+                linearLayoutManager,
+                messageRegistry,
+                historyPrefetchConfig,
+                () -> fetchFurtherMessagesWhenScrollingUp(chatPartnerUsername)
+        );
+        chatMessagesView.addOnScrollListener(historyPrefetchScrollListener);
 
     }
 
     private void setupAdapters() {
 
-        personalChatAdapter = new PersonalChatAdapter(this, new ArrayList<>(), userSession);
+        personalChatAdapter = new PersonalChatAdapter(this, chatImageLoader, userSession);
         chatMessagesView.setAdapter(personalChatAdapter);
 
     }
 
-    private byte[] getImageFromURI(Uri imageURI) {
-        try (InputStream inputStream = getContentResolver().openInputStream(imageURI);
-             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
-            byte[] buffer = new byte[1024];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                byteArrayOutputStream.write(buffer, 0, bytesRead);
-            }
-            return byteArrayOutputStream.toByteArray();
-        } catch (IOException e) {
-            log.error("There was an error while trying to read the into bytes, reason: {}", e.getMessage());
-            return new byte[] {};
-        }
+    private void prepareAndSendImage(Uri imageUri, String chatPartnerUsername) {
+
+        imageSendingButton.setEnabled(false);
+        mediaPreparationProgressBar.setProgress(0);
+        mediaPreparationProgressBar.setVisibility(View.VISIBLE);
+
+        mediaPreparationService.prepareImage(imageUri, progressPercentage -> handler.post(() -> mediaPreparationProgressBar.setProgress(progressPercentage)))
+                .whenComplete((preparedImage, throwable) -> handler.post(() -> {
+                    mediaPreparationProgressBar.setVisibility(View.GONE);
+                    imageSendingButton.setEnabled(true);
+                    if (Objects.nonNull(throwable) || Objects.isNull(preparedImage)) {
+                        log.error("The selected image could not be prepared for sending");
+                        return;
+                    }
+                    log.info("Sending prepared {} image of {}x{}, size = {} bytes", preparedImage.getMessageContentType(), preparedImage.getWidth(), preparedImage.getHeight(), preparedImage.getSizeInBytes());
+                    sendMessage(chatPartnerUsername, () -> messageService.sendMediaToChatPartner(preparedImage, chatPartnerUsername));
+                }));
+
     }
 
-    private void sendMessage(String message, MessageContentType messageContentType, String chatPartnerUsername) {
+    private void sendMessage(String chatPartnerUsername, Runnable messageSender) {
 
         log.info("sendMessage");
 
-        PersonalChatMessageSingleUpdateListener messageSingleListener = receivedMessage -> {
-            displayMessages(chatPartnerUsername);
-            scrollToBottomOfConversation();
-            numberOfMessagesInConversationBeforeFetching++;
-        };
+        PersonalChatMessageSingleUpdateListener messageSingleListener = receivedMessage -> displayMessages(chatPartnerUsername, this::scrollToBottomOfConversation);
 
         stompSubscriptionService.setPersonalChatMessageSingleUpdateListener(messageSingleListener);
-        messageService.sendMessageToChatPartner(message, messageContentType, chatPartnerUsername);
+        messageSender.run();
         chatPartnerRegistry.addChatPartnerToRegistry(new ChatPartner(chatPartnerUsername));
-        displayMessages(chatPartnerUsername);
-        scrollToBottomOfConversation();
+        displayMessages(chatPartnerUsername, this::scrollToBottomOfConversation);
 
     }
 
@@ -331,16 +333,28 @@ public class PersonalChatActivity extends AppCompatActivity implements MessagePu
         log.info("fetchFurtherMessagesWhenScrollingUp");
         log.info("chatPartnerUsername = {}", chatPartnerUsername);
 
-        PersonalChatMessageBulkUpdateListener messageBulkListener = messages -> {
+        messageRegistry.loadOlderMessagesFromLocalStore(chatPartnerUsername, NUMBER_OF_MESSAGES_TO_FETCH_AT_ONCE).thenAccept(loaded -> handler.post(() -> {
+            if (loaded) {
+                displayMessages(chatPartnerUsername, historyPrefetchScrollListener::onHistoryPageReceived);
+            } else {
+                fetchFurtherMessagesFromServer(chatPartnerUsername);
+            }
+        }));
+
+    }
+
+    private void fetchFurtherMessagesFromServer(String chatPartnerUsername) {
+
+        PersonalChatMessageBulkUpdateListener messageBulkListener = (receivedChatPartnerUsername, messages) -> {
             log.info("IN messageBulkListener, chatPartnerUsername = {}", chatPartnerUsername);
-            displayMessages(chatPartnerUsername);
-            scrollToTopMessageBeforeFurtherFetching();
-            numberOfMessagesInConversationBeforeFetching = messageRegistry.getNumberOfAlreadyFetchedMessagesForChatParner(chatPartnerUsername);
+            if (chatPartnerUsername.equals(receivedChatPartnerUsername)) {
+                displayMessages(chatPartnerUsername, historyPrefetchScrollListener::onHistoryPageReceived);
+            }
         };
 
         stompSubscriptionService.setPersonalChatMessageBulkUpdateListener(messageBulkListener);
-        messageService.initiateFetchingLastMessagesForConversation(
-                messageRegistry.getNumberOfAlreadyFetchedMessagesForChatParner(chatPartnerUsername),
+        messageService.initiateFetchingMessagesBeforeCursor(
+                messageRegistry.getOldestMessageForChatPartner(chatPartnerUsername),
                 NUMBER_OF_MESSAGES_TO_FETCH_AT_ONCE,
                 userSession.getUsername(),
                 chatPartnerUsername
@@ -348,42 +362,44 @@ public class PersonalChatActivity extends AppCompatActivity implements MessagePu
 
     }
 
-    private void fetchInitialMessages(String chatPartnerUsername) {
+    private void fetchNewestMessages(String chatPartnerUsername) {
 
-        log.info("fetchMessages");
+        log.info("fetchNewestMessages");
         log.info("chatPartnerUsername = {}", chatPartnerUsername);
 
-        PersonalChatMessageBulkUpdateListener messageBulkListener = messages -> {
+        PersonalChatMessageBulkUpdateListener messageBulkListener = (receivedChatPartnerUsername, messages) -> {
             log.info("IN messageBulkListener, chatPartnerUsername = {}", chatPartnerUsername);
-            displayMessages(chatPartnerUsername);
-            scrollToBottomOfConversation();
-            numberOfMessagesInConversationBeforeFetching = messageRegistry.getNumberOfAlreadyFetchedMessagesForChatParner(chatPartnerUsername);
+            if (chatPartnerUsername.equals(receivedChatPartnerUsername)) {
+                displayMessages(chatPartnerUsername, this::scrollToBottomOfConversation);
+            }
         };
 
         stompSubscriptionService.subscribeToConversationPartFetchingDestination(messageBulkListener);
-        messageService.initiateFetchingLastMessagesForConversation(
-                messageRegistry.getNumberOfAlreadyFetchedMessagesForChatParner(chatPartnerUsername),
-                NUMBER_OF_MESSAGES_TO_FETCH_AT_ONCE,
-                userSession.getUsername(),
-                chatPartnerUsername
-        );
-
-    }
+        MessageDTO newestMessage = messageRegistry.getNewestMessageForChatPartner(chatPartnerUsername);
+        if (Objects.nonNull(newestMessage)) {
+            messageService.initiateFetchingMessagesSinceCursor(
+                    newestMessage,
+                    NUMBER_OF_MESSAGES_TO_FETCH_AT_ONCE,
+                    userSession.getUsername(),
+                    chatPartnerUsername
+            );
+        } else {
+            messageService.initiateFetchingMessagesBeforeCursor(
+                    null,
+                    NUMBER_OF_MESSAGES_TO_FETCH_AT_ONCE,
+                    userSession.getUsername(),
+                    chatPartnerUsername
+            );
+        }
 
-    private void scrollToTopMessageBeforeFurtherFetching() {
-        int firstVisiblePosition = linearLayoutManager.findFirstVisibleItemPosition();
-        View firstVisibleView = linearLayoutManager.findViewByPosition(firstVisiblePosition);
-        int offset = (firstVisibleView != null) ? firstVisibleView.getTop() : 0;
-        linearLayoutManager.scrollToPositionWithOffset(firstVisiblePosition + messageRegistry.getNumberOfAlreadyFetchedMessagesForChatParner(chatPartnerUsernameTextView.getText().toString()) - numberOfMessagesInConversationBeforeFetching, offset);
     }
 
     private void scrollToBottomOfConversation() {
         chatMessagesView.scrollToPosition(personalChatAdapter.getItemCount() - 1);
     }
 
-    private void displayMessages(String chatPartnerUsername) {
-        personalChatAdapter.replaceChatMessages(messageRegistry.getMessagesForChatPartner(chatPartnerUsername));
-        personalChatAdapter.notifyDataSetChanged();
+    private void displayMessages(String chatPartnerUsername, Runnable onMessagesDisplayed) {
+        personalChatAdapter.submitChatMessages(messageRegistry.getMessagesForChatPartner(chatPartnerUsername), onMessagesDisplayed);
     }
 
     private boolean isEditTextEmpty(EditText editText) {
@@ -12,9 +12,10 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.tpeterb.securechatclient.R;
 import com.tpeterb.securechatclient.ui.listener.ChatListUserItemClickListener;
 import com.tpeterb.securechatclient.users.model.ChatPartner;
+import com.tpeterb.securechatclient.users.model.ChatPartnerSummary;
 
-import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 
 import lombok.AllArgsConstructor;
 
@@ -23,7 +24,7 @@ public class ChatListAdapter extends RecyclerView.Adapter<ChatListAdapter.ChatVi
 
     private Context context;
 
-    private List<ChatPartner> chatPartnerList;
+    private List<ChatPartnerSummary> chatPartnerSummaries;
 
     private ChatListUserItemClickListener chatListUserItemClickListener;
 
@@ -36,28 +37,57 @@ public class ChatListAdapter extends RecyclerView.Adapter<ChatListAdapter.ChatVi
 
     @Override
     public void onBindViewHolder(@NonNull ChatViewHolder holder, int position) {
-        ChatPartner chatPartner = chatPartnerList.get(position);
-        holder.usernameTextView.setText(chatPartner.getUsername());
-        holder.itemView.setOnClickListener(view -> chatListUserItemClickListener.onChatListUserItemClick(chatPartner));
+        ChatPartnerSummary chatPartnerSummary = chatPartnerSummaries.get(position);
+        holder.usernameTextView.setText(chatPartnerSummary.getChatPartnerUsername());
+        bindLastMessagePreview(holder, chatPartnerSummary);
+        if (chatPartnerSummary.getUnreadMessageCount() > 0) {
+            holder.unreadMessageCountTextView.setText(String.valueOf(chatPartnerSummary.getUnreadMessageCount()));
+            holder.unreadMessageCountTextView.setVisibility(View.VISIBLE);
+        } else {
+            holder.unreadMessageCountTextView.setVisibility(View.GONE);
+        }
+        holder.itemView.setOnClickListener(view -> chatListUserItemClickListener.onChatListUserItemClick(new ChatPartner(chatPartnerSummary.getChatPartnerUsername())));
     }
 
     @Override
     public int getItemCount() {
-        return chatPartnerList.size();
+        return chatPartnerSummaries.size();
+    }
+
+    public synchronized boolean replaceChatPartnerSummaries(List<ChatPartnerSummary> chatPartnerSummaries) {
+        if (this.chatPartnerSummaries == chatPartnerSummaries) {
+            return false;
+        }
+        this.chatPartnerSummaries = chatPartnerSummaries;
+        return true;
     }
 
-    public synchronized void replaceChatPartners(Collection<ChatPartner> chatPartners) {
-        chatPartnerList.clear();
-        chatPartnerList.addAll(chatPartners);
+    private void bindLastMessagePreview(ChatViewHolder holder, ChatPartnerSummary chatPartnerSummary) {
+        if (Objects.isNull(chatPartnerSummary.getLastMessageContentType())) {
+            holder.lastMessagePreviewTextView.setVisibility(View.GONE);
+            return;
+        }
+        if (chatPartnerSummary.getLastMessageContentType().isImage()) {
+            holder.lastMessagePreviewTextView.setText(R.string.chat_list_page_image_message_preview);
+        } else {
+            holder.lastMessagePreviewTextView.setText(chatPartnerSummary.getLastMessagePreview());
+        }
+        holder.lastMessagePreviewTextView.setVisibility(View.VISIBLE);
     }
 
     public static class ChatViewHolder extends RecyclerView.ViewHolder {
 
         private TextView usernameTextView;
 
+        private TextView lastMessagePreviewTextView;
+
+        private TextView unreadMessageCountTextView;
+
         public ChatViewHolder(View itemView) {
             super(itemView);
             usernameTextView = itemView.findViewById(R.id.chat_list_page_user_item_username);
+            lastMessagePreviewTextView = itemView.findViewById(R.id.chat_list_page_user_item_last_message_preview);
+            unreadMessageCountTextView = itemView.findViewById(R.id.chat_list_page_user_item_unread_message_count);
         }
 
     }
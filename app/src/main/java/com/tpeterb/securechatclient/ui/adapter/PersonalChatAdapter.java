@@ -1,7 +1,8 @@
 package com.tpeterb.securechatclient.ui.adapter;
 
 import android.content.Context;
-import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,36 +10,49 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.tpeterb.securechatclient.R;
 import com.tpeterb.securechatclient.messages.model.MessageDTO;
-import com.tpeterb.securechatclient.messages.service.CompressionService;
+import com.tpeterb.securechatclient.ui.image.ChatImageLoader;
+import com.tpeterb.securechatclient.ui.image.ChatImageRequest;
 import com.tpeterb.securechatclient.users.session.UserSession;
 
-import java.util.Base64;
 import java.util.List;
-
-import javax.inject.Inject;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class PersonalChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
-    private final Context context;
+    private static final Executor MESSAGE_DIFF_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "personal-chat-message-diff");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    private final CompressionService compressionService;
+    private final Context context;
 
-    private final List<MessageDTO> messages;
+    private final ChatImageLoader chatImageLoader;
 
     private final UserSession userSession;
 
-    public PersonalChatAdapter(Context context, List<MessageDTO> messages, UserSession userSession) {
+    private final Handler mainThreadHandler;
+
+    private List<MessageDTO> messages;
+
+    private int submissionGeneration;
+
+    public PersonalChatAdapter(Context context, ChatImageLoader chatImageLoader, UserSession userSession) {
         this.context = context;
-        compressionService = new CompressionService();
-        this.messages = messages;
+        this.chatImageLoader = chatImageLoader;
         this.userSession = userSession;
+        mainThreadHandler = new Handler(Looper.getMainLooper());
+        messages = List.of();
     }
 
     private static final int RECEIVED_TEXT_MESSAGE = 1;
@@ -49,11 +63,39 @@ public class PersonalChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
 
     private static final int SENT_IMAGE = 4;
 
-    public void replaceChatMessages(List<MessageDTO> messages) {
-        log.info("replaceChatMessages");
-        log.info("Messages to display = {}", messages);
-        this.messages.clear();
-        this.messages.addAll(messages);
+    public void submitChatMessages(List<MessageDTO> newMessages, Runnable onMessagesDisplayed) {
+        int generation = ++submissionGeneration;
+        List<MessageDTO> oldMessages = messages;
+        int oldSize = oldMessages.size();
+        int newSize = newMessages.size();
+        if (oldMessages == newMessages) {
+            onMessagesDisplayed.run();
+        } else if (oldSize == 0 || newSize == 0) {
+            messages = newMessages;
+            notifyItemRangeRemoved(0, oldSize);
+            notifyItemRangeInserted(0, newSize);
+            onMessagesDisplayed.run();
+        } else if (isAppendedTo(oldMessages, newMessages)) {
+            messages = newMessages;
+            notifyItemRangeInserted(oldSize, newSize - oldSize);
+            onMessagesDisplayed.run();
+        } else if (isPrependedTo(oldMessages, newMessages)) {
+            messages = newMessages;
+            notifyItemRangeInserted(0, newSize - oldSize);
+            onMessagesDisplayed.run();
+        } else {
+            MESSAGE_DIFF_EXECUTOR.execute(() -> {
+                DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new MessageDiffCallback(oldMessages, newMessages), false);
+                mainThreadHandler.post(() -> {
+                    if (generation != submissionGeneration) {
+                        return;
+                    }
+                    messages = newMessages;
+                    diffResult.dispatchUpdatesTo(this);
+                    onMessagesDisplayed.run();
+                });
+            });
+        }
     }
 
     @Override
@@ -89,9 +131,17 @@ public class PersonalChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
         } else if (messageType == SENT_TEXT_MESSAGE) {
             ((SentTextMessageViewHolder) holder).bindData(message.getContent());
         } else if (messageType == RECEIVED_IMAGE) {
-            ((ReceivedImageViewHolder) holder).bindData(message.getContent());
+            ((ReceivedImageViewHolder) holder).bindData(message);
         } else {
-            ((SentImageViewHolder) holder).bindData(message.getContent());
+            ((SentImageViewHolder) holder).bindData(message);
+        }
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        super.onViewRecycled(holder);
+        if (holder instanceof ImageViewHolder) {
+            ((ImageViewHolder) holder).cancelImageRequest();
         }
     }
 
@@ -130,36 +180,91 @@ public class PersonalChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
 
     }
 
-    public class ReceivedImageViewHolder extends RecyclerView.ViewHolder {
+    public abstract class ImageViewHolder extends RecyclerView.ViewHolder {
 
-        private ImageView imageView;
+        private final ImageView imageView;
 
-        public ReceivedImageViewHolder(View view) {
+        private ChatImageRequest chatImageRequest;
+
+        protected ImageViewHolder(View view, ImageView imageView) {
             super(view);
-            imageView = view.findViewById(R.id.personal_chat_received_image);
+            this.imageView = imageView;
         }
 
-        public void bindData(String message) {
-            byte[] decodedAndCompressedImage = Base64.getDecoder().decode(message);
-            byte[] decompressedImage = compressionService.decompressBytesWithGzip(decodedAndCompressedImage);
-            imageView.setImageBitmap(BitmapFactory.decodeByteArray(decompressedImage, 0, decompressedImage.length));
+        public void bindData(MessageDTO message) {
+            cancelImageRequest();
+            chatImageRequest = chatImageLoader.loadImage(message, imageView);
+        }
+
+        public void cancelImageRequest() {
+            if (Objects.nonNull(chatImageRequest)) {
+                chatImageRequest.cancel();
+                chatImageRequest = null;
+            }
         }
 
     }
 
-    public class SentImageViewHolder extends RecyclerView.ViewHolder {
+    public class ReceivedImageViewHolder extends ImageViewHolder {
+
+        public ReceivedImageViewHolder(View view) {
+            super(view, view.findViewById(R.id.personal_chat_received_image));
+        }
+
+    }
 
-        private ImageView imageView;
+    public class SentImageViewHolder extends ImageViewHolder {
 
         public SentImageViewHolder(View view) {
-            super(view);
-            imageView = view.findViewById(R.id.personal_chat_sent_image);
+            super(view, view.findViewById(R.id.personal_chat_sent_image));
         }
 
-        public void bindData(String message) {
-            byte[] decodedAndCompressedImage = Base64.getDecoder().decode(message);
-            byte[] decompressedImage = compressionService.decompressBytesWithGzip(decodedAndCompressedImage);
-            imageView.setImageBitmap(BitmapFactory.decodeByteArray(decompressedImage, 0, decompressedImage.length));
+    }
+
+    private static boolean isAppendedTo(List<MessageDTO> oldMessages, List<MessageDTO> newMessages) {
+        int oldSize = oldMessages.size();
+        return newMessages.size() > oldSize
+                && oldMessages.get(0).equals(newMessages.get(0))
+                && oldMessages.get(oldSize - 1).equals(newMessages.get(oldSize - 1));
+    }
+
+    private static boolean isPrependedTo(List<MessageDTO> oldMessages, List<MessageDTO> newMessages) {
+        int oldSize = oldMessages.size();
+        int numberOfPrependedMessages = newMessages.size() - oldSize;
+        return numberOfPrependedMessages > 0
+                && oldMessages.get(0).equals(newMessages.get(numberOfPrependedMessages))
+                && oldMessages.get(oldSize - 1).equals(newMessages.get(newMessages.size() - 1));
+    }
+
+    private static class MessageDiffCallback extends DiffUtil.Callback {
+
+        private final List<MessageDTO> oldMessages;
+
+        private final List<MessageDTO> newMessages;
+
+        MessageDiffCallback(List<MessageDTO> oldMessages, List<MessageDTO> newMessages) {
+            this.oldMessages = oldMessages;
+            this.newMessages = newMessages;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldMessages.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newMessages.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return Objects.equals(oldMessages.get(oldItemPosition).getId(), newMessages.get(newItemPosition).getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldMessages.get(oldItemPosition).equals(newMessages.get(newItemPosition));
         }
 
     }
@@ -0,0 +1,158 @@
+package com.tpeterb.securechatclient.ui.image;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import com.tpeterb.securechatclient.R;
+import com.tpeterb.securechatclient.messages.config.ChatImageLoaderConfig;
+import com.tpeterb.securechatclient.messages.model.ImageDimensions;
+import com.tpeterb.securechatclient.messages.model.MessageDTO;
+import com.tpeterb.securechatclient.messages.service.ImageDecodingService;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Singleton
+public class ChatImageLoader {
+
+    private final LruCache<String, Bitmap> bitmapCache;
+
+    private final LruCache<String, ImageDimensions> imageDimensionsCache;
+
+    private final ExecutorService imageDecodingExecutor;
+
+    private final Handler mainThreadHandler;
+
+    private final ImageDecodingService imageDecodingService;
+
+    private final ChatImageLoaderConfig chatImageLoaderConfig;
+
+    private final int maxImageBubbleWidthPx;
+
+    private final int maxImageBubbleHeightPx;
+
+    @Inject
+    public ChatImageLoader(Context context, ImageDecodingService imageDecodingService, ChatImageLoaderConfig chatImageLoaderConfig) {
+        int bitmapCacheSizeInBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / chatImageLoaderConfig.getBitmapCacheFractionOfMaxMemory());
+        bitmapCache = new LruCache<>(bitmapCacheSizeInBytes) {
+            @Override
+            protected int sizeOf(String messageId, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+        imageDimensionsCache = new LruCache<>(chatImageLoaderConfig.getMaxNumberOfCachedImageDimensions());
+        imageDecodingExecutor = Executors.newFixedThreadPool(chatImageLoaderConfig.getNumberOfImageDecodingThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "chat-image-decoding");
+            thread.setDaemon(true);
+            return thread;
+        });
+        mainThreadHandler = new Handler(Looper.getMainLooper());
+        this.imageDecodingService = imageDecodingService;
+        this.chatImageLoaderConfig = chatImageLoaderConfig;
+        float density = context.getResources().getDisplayMetrics().density;
+        maxImageBubbleWidthPx = Math.round(chatImageLoaderConfig.getMaxImageBubbleWidthDp() * density);
+        maxImageBubbleHeightPx = Math.round(chatImageLoaderConfig.getMaxImageBubbleHeightDp() * density);
+    }
+
+    public ChatImageRequest loadImage(MessageDTO message, ImageView imageView) {
+        ChatImageRequest chatImageRequest = new ChatImageRequest();
+        ImageDimensions knownImageDimensions = getKnownImageDimensions(message);
+        reserveImageBubbleSpace(knownImageDimensions, imageView);
+        Bitmap cachedBitmap = bitmapCache.get(message.getId());
+        if (Objects.nonNull(cachedBitmap)) {
+            imageView.setImageBitmap(cachedBitmap);
+            return chatImageRequest;
+        }
+        imageView.setImageResource(R.drawable.personal_chat_image_placeholder);
+        chatImageRequest.setDecodingTask(imageDecodingExecutor.submit(() -> {
+            if (chatImageRequest.isCancelled()) {
+                return;
+            }
+            ImageDimensions imageDimensions = Objects.nonNull(knownImageDimensions) ? knownImageDimensions : readImageDimensions(message);
+            ImageDimensions targetDimensions = calculateImageBubbleDimensions(imageDimensions);
+            Bitmap bitmap = imageDecodingService.decodeSampledImage(
+                    message,
+                    targetDimensions.getWidth(),
+                    targetDimensions.getHeight(),
+                    chatImageLoaderConfig.isDecodeOpaqueImagesAsRgb565()
+            );
+            if (Objects.isNull(bitmap)) {
+                log.warn("Could not decode the image of message with id {}", message.getId());
+                return;
+            }
+            bitmapCache.put(message.getId(), bitmap);
+            mainThreadHandler.post(() -> {
+                if (!chatImageRequest.isCancelled()) {
+                    if (Objects.isNull(knownImageDimensions)) {
+                        reserveImageBubbleSpace(imageDimensions, imageView);
+                    }
+                    imageView.setImageBitmap(bitmap);
+                }
+            });
+        }));
+        return chatImageRequest;
+    }
+
+    public void clearImageCache() {
+        bitmapCache.evictAll();
+        imageDimensionsCache.evictAll();
+    }
+
+    private ImageDimensions getKnownImageDimensions(MessageDTO message) {
+        if (message.hasImageDimensions()) {
+            return new ImageDimensions(message.getImageWidth(), message.getImageHeight());
+        }
+        return imageDimensionsCache.get(message.getId());
+    }
+
+    private ImageDimensions readImageDimensions(MessageDTO message) {
+        ImageDimensions imageDimensions = imageDecodingService.readImageDimensions(message);
+        if (Objects.nonNull(imageDimensions)) {
+            imageDimensionsCache.put(message.getId(), imageDimensions);
+        }
+        return imageDimensions;
+    }
+
+    private void reserveImageBubbleSpace(ImageDimensions imageDimensions, ImageView imageView) {
+        ViewGroup.LayoutParams layoutParams = imageView.getLayoutParams();
+        if (Objects.isNull(layoutParams)) {
+            return;
+        }
+        if (Objects.nonNull(imageDimensions)) {
+            ImageDimensions imageBubbleDimensions = calculateImageBubbleDimensions(imageDimensions);
+            layoutParams.width = imageBubbleDimensions.getWidth();
+            layoutParams.height = imageBubbleDimensions.getHeight();
+        } else {
+            layoutParams.width = ViewGroup.LayoutParams.WRAP_CONTENT;
+            layoutParams.height = ViewGroup.LayoutParams.WRAP_CONTENT;
+        }
+        imageView.setLayoutParams(layoutParams);
+    }
+
+    private ImageDimensions calculateImageBubbleDimensions(ImageDimensions imageDimensions) {
+        if (Objects.isNull(imageDimensions)) {
+            return new ImageDimensions(maxImageBubbleWidthPx, maxImageBubbleHeightPx);
+        }
+        double scale = Math.min(1.0, Math.min(
+                (double) maxImageBubbleWidthPx / imageDimensions.getWidth(),
+                (double) maxImageBubbleHeightPx / imageDimensions.getHeight()
+        ));
+        return new ImageDimensions(
+                Math.max(1, (int) Math.round(imageDimensions.getWidth() * scale)),
+                Math.max(1, (int) Math.round(imageDimensions.getHeight() * scale))
+        );
+    }
+
+}
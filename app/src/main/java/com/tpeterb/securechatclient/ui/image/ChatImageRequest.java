@@ -0,0 +1,27 @@
+package com.tpeterb.securechatclient.ui.image;
+
+import java.util.Objects;
+import java.util.concurrent.Future;
+
+public class ChatImageRequest {
+
+    private volatile boolean cancelled;
+
+    private Future<?> decodingTask;
+
+    void setDecodingTask(Future<?> decodingTask) {
+        this.decodingTask = decodingTask;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        if (Objects.nonNull(decodingTask)) {
+            decodingTask.cancel(false);
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.tpeterb.securechatclient.ui.listener;
+
+import static com.tpeterb.securechatclient.constants.Constants.NUMBER_OF_MESSAGES_TO_FETCH_AT_ONCE;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.tpeterb.securechatclient.messages.config.HistoryPrefetchConfig;
+import com.tpeterb.securechatclient.messages.registry.MessageRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class HistoryPrefetchScrollListener extends RecyclerView.OnScrollListener {
+
+    private final String chatPartnerUsername;
+
+    private final LinearLayoutManager linearLayoutManager;
+
+    private final MessageRegistry messageRegistry;
+
+    private final HistoryPrefetchConfig historyPrefetchConfig;
+
+    private final Runnable historyPageRequester;
+
+    private int lastFirstVisibleItemPosition = RecyclerView.NO_POSITION;
+
+    private long lastScrollTimeMs;
+
+    private double upwardScrollVelocityInItemsPerSecond;
+
+    private boolean cancelled;
+
+    public HistoryPrefetchScrollListener(String chatPartnerUsername,
+                                         LinearLayoutManager linearLayoutManager,
+                                         MessageRegistry messageRegistry,
+                                         HistoryPrefetchConfig historyPrefetchConfig,
+                                         Runnable historyPageRequester) {
+        this.chatPartnerUsername = chatPartnerUsername;
+        this.linearLayoutManager = linearLayoutManager;
+        this.messageRegistry = messageRegistry;
+        this.historyPrefetchConfig = historyPrefetchConfig;
+        this.historyPageRequester = historyPageRequester;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        super.onScrolled(recyclerView, dx, dy);
+        if (cancelled || dy > 0) {
+            return;
+        }
+        updateUpwardScrollVelocity();
+        prefetchHistoryIfNeeded();
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        super.onScrollStateChanged(recyclerView, newState);
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            upwardScrollVelocityInItemsPerSecond = 0;
+            lastFirstVisibleItemPosition = RecyclerView.NO_POSITION;
+            prefetchHistoryIfNeeded();
+        }
+    }
+
+    public void onHistoryPageReceived() {
+        lastFirstVisibleItemPosition = RecyclerView.NO_POSITION;
+        prefetchHistoryIfNeeded();
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void updateUpwardScrollVelocity() {
+        int firstVisibleItemPosition = linearLayoutManager.findFirstVisibleItemPosition();
+        long nowMs = System.currentTimeMillis();
+        if (lastFirstVisibleItemPosition != RecyclerView.NO_POSITION && firstVisibleItemPosition != RecyclerView.NO_POSITION && nowMs > lastScrollTimeMs) {
+            double currentVelocity = (lastFirstVisibleItemPosition - firstVisibleItemPosition) * 1000.0 / (nowMs - lastScrollTimeMs);
+            double smoothingFactor = historyPrefetchConfig.getScrollVelocitySmoothingFactor();
+            upwardScrollVelocityInItemsPerSecond = smoothingFactor * Math.max(0, currentVelocity) + (1 - smoothingFactor) * upwardScrollVelocityInItemsPerSecond;
+        }
+        lastFirstVisibleItemPosition = firstVisibleItemPosition;
+        lastScrollTimeMs = nowMs;
+    }
+
+    private void prefetchHistoryIfNeeded() {
+        if (cancelled || !messageRegistry.conversationHasOlderMessages(chatPartnerUsername)) {
+            return;
+        }
+        int firstVisibleItemPosition = linearLayoutManager.findFirstVisibleItemPosition();
+        if (firstVisibleItemPosition == RecyclerView.NO_POSITION) {
+            return;
+        }
+        int prefetchDistanceInItems = historyPrefetchConfig.getNumberOfPagesToPrefetchAhead() * NUMBER_OF_MESSAGES_TO_FETCH_AT_ONCE
+                + (int) Math.ceil(upwardScrollVelocityInItemsPerSecond * historyPrefetchConfig.getExpectedHistoryFetchLatencyMs() / 1000.0);
+        if (firstVisibleItemPosition > prefetchDistanceInItems) {
+            return;
+        }
+        if (messageRegistry.tryStartHistoryFetch(chatPartnerUsername, historyPrefetchConfig.getHistoryFetchTimeoutMs())) {
+            log.info("Prefetching older messages of conversation with {}, first visible position = {}, prefetch distance = {}", chatPartnerUsername, firstVisibleItemPosition, prefetchDistanceInItems);
+            historyPageRequester.run();
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.tpeterb.securechatclient.users.model;
+
+import com.tpeterb.securechatclient.messages.model.MessageContentType;
+
+import java.time.Instant;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder(toBuilder = true)
+public class ChatPartnerSummary {
+
+    String chatPartnerUsername;
+
+    String lastMessagePreview;
+
+    MessageContentType lastMessageContentType;
+
+    Instant lastMessageTimestamp;
+
+    int unreadMessageCount;
+
+}
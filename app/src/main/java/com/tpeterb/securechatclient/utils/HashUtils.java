@@ -0,0 +1,37 @@
+package com.tpeterb.securechatclient.utils;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.macs.HMac;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.util.encoders.Hex;
+
+import java.nio.charset.StandardCharsets;
+
+public final class HashUtils {
+
+    private HashUtils() {}
+
+    public static String sha256Hex(String data) {
+        return Hex.toHexString(sha256(data));
+    }
+
+    public static byte[] sha256(String data) {
+        byte[] dataBytes = data.getBytes(StandardCharsets.UTF_8);
+        SHA256Digest digest = new SHA256Digest();
+        digest.update(dataBytes, 0, dataBytes.length);
+        byte[] hash = new byte[digest.getDigestSize()];
+        digest.doFinal(hash, 0);
+        return hash;
+    }
+
+    public static String hmacSha256Hex(byte[] key, String data) {
+        byte[] dataBytes = data.getBytes(StandardCharsets.UTF_8);
+        HMac hmac = new HMac(new SHA256Digest());
+        hmac.init(new KeyParameter(key));
+        hmac.update(dataBytes, 0, dataBytes.length);
+        byte[] mac = new byte[hmac.getMacSize()];
+        hmac.doFinal(mac, 0);
+        return Hex.toHexString(mac);
+    }
+
+}
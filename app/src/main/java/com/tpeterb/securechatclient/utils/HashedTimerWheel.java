@@ -0,0 +1,96 @@
+package com.tpeterb.securechatclient.utils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class HashedTimerWheel {
+
+    private final long tickDurationMs;
+
+    private final List<Set<Timeout>> buckets;
+
+    private final ScheduledExecutorService ticker;
+
+    private long currentTick;
+
+    public HashedTimerWheel(String name, long tickDurationMs, int numberOfBuckets) {
+        this.tickDurationMs = tickDurationMs;
+        buckets = new ArrayList<>(numberOfBuckets);
+        for (int i = 0; i < numberOfBuckets; i++) {
+            buckets.add(new HashSet<>());
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        currentTick = 0;
+        ticker.scheduleAtFixedRate(this::tick, tickDurationMs, tickDurationMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized Timeout schedule(Runnable task, long delayMs) {
+        long numberOfTicksToWait = Math.max(1, (delayMs + tickDurationMs - 1) / tickDurationMs);
+        Timeout timeout = new Timeout(task, currentTick + numberOfTicksToWait);
+        bucketOf(timeout.deadlineTick).add(timeout);
+        return timeout;
+    }
+
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    private void tick() {
+        List<Timeout> expiredTimeouts = new ArrayList<>();
+        synchronized (this) {
+            currentTick++;
+            Iterator<Timeout> iterator = bucketOf(currentTick).iterator();
+            while (iterator.hasNext()) {
+                Timeout timeout = iterator.next();
+                if (timeout.deadlineTick <= currentTick) {
+                    iterator.remove();
+                    expiredTimeouts.add(timeout);
+                }
+            }
+        }
+        for (Timeout expiredTimeout : expiredTimeouts) {
+            try {
+                expiredTimeout.task.run();
+            } catch (RuntimeException e) {
+                log.error("Timer task failed, reason: {}", e.getMessage());
+            }
+        }
+    }
+
+    private Set<Timeout> bucketOf(long tick) {
+        return buckets.get((int) (tick % buckets.size()));
+    }
+
+    public final class Timeout {
+
+        private final Runnable task;
+
+        private final long deadlineTick;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public boolean cancel() {
+            synchronized (HashedTimerWheel.this) {
+                return bucketOf(deadlineTick).remove(this);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.tpeterb.securechatclient.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+public class LongPairHashMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] highKeys;
+
+    private long[] lowKeys;
+
+    private Object[] values;
+
+    private int mask;
+
+    private int size;
+
+    public LongPairHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongPairHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long highKey, long lowKey) {
+        int slot = findSlot(highKey, lowKey);
+        return Objects.nonNull(values[slot]) ? (V) values[slot] : null;
+    }
+
+    public boolean containsKey(long highKey, long lowKey) {
+        return Objects.nonNull(values[findSlot(highKey, lowKey)]);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long highKey, long lowKey, V value) {
+        Objects.requireNonNull(value);
+        int slot = findSlot(highKey, lowKey);
+        V previousValue = (V) values[slot];
+        if (Objects.isNull(previousValue)) {
+            highKeys[slot] = highKey;
+            lowKeys[slot] = lowKey;
+            size++;
+        }
+        values[slot] = value;
+        if (Objects.isNull(previousValue) && size * 4 > values.length * 3) {
+            resize(values.length * 2);
+        }
+        return previousValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long highKey, long lowKey) {
+        int slot = findSlot(highKey, lowKey);
+        V removedValue = (V) values[slot];
+        if (Objects.isNull(removedValue)) {
+            return null;
+        }
+        values[slot] = null;
+        size--;
+        shiftEntriesBackAfter(slot);
+        return removedValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> presentValues = new ArrayList<>(size);
+        for (Object value : values) {
+            if (Objects.nonNull(value)) {
+                presentValues.add((V) value);
+            }
+        }
+        return presentValues;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int findSlot(long highKey, long lowKey) {
+        int slot = hash(highKey, lowKey) & mask;
+        while (Objects.nonNull(values[slot]) && (highKeys[slot] != highKey || lowKeys[slot] != lowKey)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void shiftEntriesBackAfter(int freedSlot) {
+        int slot = freedSlot;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (Objects.isNull(values[slot])) {
+                return;
+            }
+            int idealSlot = hash(highKeys[slot], lowKeys[slot]) & mask;
+            if (((slot - idealSlot) & mask) >= ((slot - freedSlot) & mask)) {
+                highKeys[freedSlot] = highKeys[slot];
+                lowKeys[freedSlot] = lowKeys[slot];
+                values[freedSlot] = values[slot];
+                values[slot] = null;
+                freedSlot = slot;
+            }
+        }
+    }
+
+    private void resize(int newCapacity) {
+        long[] oldHighKeys = highKeys;
+        long[] oldLowKeys = lowKeys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (Objects.nonNull(oldValues[i])) {
+                int slot = findSlot(oldHighKeys[i], oldLowKeys[i]);
+                highKeys[slot] = oldHighKeys[i];
+                lowKeys[slot] = oldLowKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        highKeys = new long[capacity];
+        lowKeys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 < expectedSize * 4) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(long highKey, long lowKey) {
+        long hash = highKey * 0x9E3779B97F4A7C15L ^ lowKey;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.tpeterb.securechatclient.utils;
+
+import java.util.Objects;
+
+public final class MediaSignatureUtils {
+
+    private static final byte[] JPEG_SIGNATURE = {(byte) 0xff, (byte) 0xd8, (byte) 0xff};
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 0x50, 0x4e, 0x47, 0x0d, 0x0a, 0x1a, 0x0a};
+
+    private static final byte[] GZIP_SIGNATURE = {0x1f, (byte) 0x8b};
+
+    private MediaSignatureUtils() {}
+
+    public static boolean isGzipCompressed(byte[] data) {
+        return startsWith(data, GZIP_SIGNATURE);
+    }
+
+    public static boolean hasKnownMediaSignature(byte[] data) {
+        return startsWith(data, JPEG_SIGNATURE) || startsWith(data, PNG_SIGNATURE) || startsWith(data, GZIP_SIGNATURE);
+    }
+
+    private static boolean startsWith(byte[] data, byte[] signature) {
+        if (Objects.isNull(data) || data.length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (data[i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.tpeterb.securechatclient.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public final class MessageChunkAssociatedDataUtils {
+
+    private MessageChunkAssociatedDataUtils() {}
+
+    public static byte[] createAssociatedData(String fullMessageId, int serialNumberWithinFullMessage, int offsetWithinFullMessageInBytes, int sizeOfFullMessageInBytes) {
+        byte[] fullMessageIdBytes = fullMessageId.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(4 * Integer.BYTES + fullMessageIdBytes.length)
+                .putInt(fullMessageIdBytes.length)
+                .put(fullMessageIdBytes)
+                .putInt(serialNumberWithinFullMessage)
+                .putInt(offsetWithinFullMessageInBytes)
+                .putInt(sizeOfFullMessageInBytes)
+                .array();
+    }
+
+}
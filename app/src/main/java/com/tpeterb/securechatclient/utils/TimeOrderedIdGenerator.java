@@ -0,0 +1,25 @@
+package com.tpeterb.securechatclient.utils;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+public final class TimeOrderedIdGenerator {
+
+    private static final long VERSION_7_BITS = 0x7000L;
+
+    private static final long RANDOM_A_MASK = 0x0FFFL;
+
+    private static final long VARIANT_BITS = 0x8000000000000000L;
+
+    private static final long RANDOM_B_MASK = 0x3FFFFFFFFFFFFFFFL;
+
+    private TimeOrderedIdGenerator() {}
+
+    public static String generateId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSignificantBits = (System.currentTimeMillis() << 16) | VERSION_7_BITS | (random.nextLong() & RANDOM_A_MASK);
+        long leastSignificantBits = VARIANT_BITS | (random.nextLong() & RANDOM_B_MASK);
+        return new UUID(mostSignificantBits, leastSignificantBits).toString();
+    }
+
+}
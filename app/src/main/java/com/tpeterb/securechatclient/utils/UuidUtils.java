@@ -0,0 +1,46 @@
+package com.tpeterb.securechatclient.utils;
+
+import java.util.Objects;
+
+public final class UuidUtils {
+
+    private static final int CANONICAL_UUID_LENGTH = 36;
+
+    private UuidUtils() {}
+
+    public static boolean isCanonicalUuid(String id) {
+        if (Objects.isNull(id) || id.length() != CANONICAL_UUID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < CANONICAL_UUID_LENGTH; i++) {
+            char character = id.charAt(i);
+            if (isDashPosition(i) ? character != '-' : Character.digit(character, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static long mostSignificantBits(String canonicalUuid) {
+        return parseHexBits(canonicalUuid, 0, 18);
+    }
+
+    public static long leastSignificantBits(String canonicalUuid) {
+        return parseHexBits(canonicalUuid, 19, CANONICAL_UUID_LENGTH);
+    }
+
+    private static long parseHexBits(String canonicalUuid, int beginIndex, int endIndex) {
+        long bits = 0;
+        for (int i = beginIndex; i < endIndex; i++) {
+            if (!isDashPosition(i)) {
+                bits = (bits << 4) | Character.digit(canonicalUuid.charAt(i), 16);
+            }
+        }
+        return bits;
+    }
+
+    private static boolean isDashPosition(int index) {
+        return index == 8 || index == 13 || index == 18 || index == 23;
+    }
+
+}